@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * All pairs distance algorithms of {@link AllPairsShortestPaths} by atom count; used to set the atom count range
+ * {@link AllPairsShortestPaths.Algorithm#AUTO} selects {@link AllPairsShortestPaths.Algorithm#DENSE} for.
+ *
+ * Random sparse structures with one ring per eight atoms approximate drug like molecules; ladders are the worst case
+ * for the dense kernel, having a diameter proportional to the atom count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllPairsBenchmark {
+
+    @Param({"RANDOM_SPARSE", "LADDER"})
+    public String family;
+
+    @Param({"16", "32", "64", "128", "256", "512"})
+    public int atomCount;
+
+    @Param({"BFS", "BIT_PARALLEL", "DENSE", "AUTO"})
+    public AllPairsShortestPaths.Algorithm algorithm;
+
+    private CompactGraph graph;
+
+    @Setup
+    public void setup() {
+        switch (this.family) {
+            case "RANDOM_SPARSE":
+                this.graph = CompactGraph.of(SyntheticGraphs.randomSparse(this.atomCount, this.atomCount / 8, 42));
+                break;
+            case "LADDER":
+                this.graph = CompactGraph.of(SyntheticGraphs.ladder(this.atomCount / 2));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown family " + this.family);
+        }
+    }
+
+    @Benchmark
+    public AllPairsShortestPaths all_pairs() {
+        return new AllPairsShortestPaths(this.graph, this.algorithm);
+    }
+
+}
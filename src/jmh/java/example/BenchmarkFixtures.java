@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import chemaxon.struc.Molecule;
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.base.Strings;
+
+/**
+ * Named structures used as benchmark parameters.
+ *
+ * Real world fixtures are shared with {@link ShortestPathsTest}; synthetic ones come from {@link SyntheticGraphs}.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    /**
+     * Fixture as molecule.
+     *
+     * @param name Fixture name; synthetic fixtures are available only when they have a SMILES representation
+     * @return Molecule
+     * @throws IllegalArgumentException when no such fixture available as molecule
+     */
+    static Molecule molecule(String name) throws IllegalArgumentException {
+        switch (name) {
+            case "C6":
+                return ofSmiles(ShortestPathsTest.C6_SMILES);
+            case "BIPHENYL":
+                return ofSmiles(ShortestPathsTest.BIPHENYL_SMILES);
+            case "VANCOMYCIN":
+                return ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES);
+            case "LARGE_MULTIFRAG":
+                return ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES);
+            case "CHAIN_1000":
+                return ofSmiles(Strings.repeat("C", 1000));
+            default:
+                throw new IllegalArgumentException("Unknown molecule fixture " + name);
+        }
+    }
+
+    /**
+     * Fixture as connection table.
+     *
+     * @param name Fixture name
+     * @return Connection table
+     * @throws IllegalArgumentException when no such fixture available
+     */
+    static int [][] ctab(String name) throws IllegalArgumentException {
+        switch (name) {
+            case "CHAIN_1000":
+                return SyntheticGraphs.chain(1000);
+            case "GRID_32x32":
+                return SyntheticGraphs.grid(32, 32);
+            case "FULLERENE_C60":
+                return SyntheticGraphs.fullerene60();
+            case "RANDOM_SPARSE_256":
+                return SyntheticGraphs.randomSparse(256, 32, 42);
+            default:
+                return molecule(name).getCtab();
+        }
+    }
+
+    /**
+     * Most distant atom reachable from an atom.
+     *
+     * @param paths Shortest paths from the atom
+     * @param a1 Index of the atom
+     * @return Index of a reachable atom having the largest shortest distance
+     */
+    static int farthestAtom(FindShortestPaths paths, int a1) {
+        int ret = a1;
+        for (int ai = 0; ai < paths.getAtomCount(); ai++) {
+            if (paths.isPathExistsTo(ai) && paths.getShortestPathLengthTo(ai) > paths.getShortestPathLengthTo(ret)) {
+                ret = ai;
+            }
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Distance descriptor calculation by {@link DistanceDescriptors}, sequential and parallel over source atoms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceDescriptorsBenchmark {
+
+    @Param({"VANCOMYCIN", "LARGE_MULTIFRAG", "CHAIN_1000", "GRID_32x32", "FULLERENE_C60"})
+    public String fixture;
+
+    private CompactGraph graph;
+
+    @Setup
+    public void setup() {
+        this.graph = CompactGraph.of(BenchmarkFixtures.ctab(this.fixture));
+    }
+
+    @Benchmark
+    public DistanceDescriptors sequential() {
+        return DistanceDescriptors.of(this.graph, false);
+    }
+
+    @Benchmark
+    public DistanceDescriptors parallel() {
+        return DistanceDescriptors.of(this.graph, true);
+    }
+
+    @Benchmark
+    public AllPairsShortestPaths all_pairs_matrix() {
+        return new AllPairsShortestPaths(this.graph);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Export of all pairs distances and single shortest paths by {@link ShortestPathsExporter}, compared with string
+ * formatting into a buffered writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"VANCOMYCIN", "GRID_32x32"})
+    public String fixture;
+
+    private AllPairsShortestPaths allPairs;
+
+    private FindShortestPaths [] searches;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        this.allPairs = new AllPairsShortestPaths(BenchmarkFixtures.ctab(this.fixture));
+        this.searches = new FindShortestPaths[this.allPairs.getAtomCount()];
+        for (int a1 = 0; a1 < this.searches.length; a1++) {
+            this.searches[a1] = this.allPairs.getShortestPathsFrom(a1);
+        }
+        this.file = Files.createTempFile("export", ".out");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    private long export(ShortestPathsExporter.Format format) throws IOException {
+        try (ShortestPathsExporter exporter = new ShortestPathsExporter(this.file, format)) {
+            for (int a1 = 0; a1 < this.searches.length; a1++) {
+                final FindShortestPaths fsp = this.searches[a1];
+                for (int a2 = a1 + 1; a2 < this.searches.length; a2++) {
+                    exporter.writeDistance(0, a1, a2, fsp.getShortestPathLengthTo(a2));
+                    exporter.writePath(0, fsp.getSingleShortestPathTo(a2));
+                }
+            }
+        }
+        return Files.size(this.file);
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        return export(ShortestPathsExporter.Format.CSV);
+    }
+
+    @Benchmark
+    public long binary() throws IOException {
+        return export(ShortestPathsExporter.Format.BINARY);
+    }
+
+    @Benchmark
+    public long string_formatting() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(this.file, StandardCharsets.US_ASCII)) {
+            for (int a1 = 0; a1 < this.searches.length; a1++) {
+                final FindShortestPaths fsp = this.searches[a1];
+                for (int a2 = a1 + 1; a2 < this.searches.length; a2++) {
+                    writer.write("distance,0," + a1 + "," + a2 + "," + fsp.getShortestPathLengthTo(a2));
+                    writer.newLine();
+                    writer.write("path,0," + a1 + "," + a2 + ","
+                            + Arrays.toString(fsp.getSingleShortestPathTo(a2)));
+                    writer.newLine();
+                }
+            }
+        }
+        return Files.size(this.file);
+    }
+
+}
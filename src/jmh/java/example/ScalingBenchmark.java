@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Shortest path operations on large synthetic structures, see {@link ScalingStressTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ScalingBenchmark {
+
+    @Param({"CHAIN", "LADDER", "DENDRIMER", "RANDOM_SPARSE"})
+    public String family;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int atomCount;
+
+    private CompactGraph graph;
+
+    private FindShortestPaths paths;
+
+    private int a2;
+
+    @Setup
+    public void setup() {
+        final int [][] ctab;
+        switch (this.family) {
+            case "CHAIN":
+                ctab = SyntheticGraphs.chain(this.atomCount);
+                break;
+            case "LADDER":
+                ctab = SyntheticGraphs.ladder(this.atomCount / 2);
+                break;
+            case "DENDRIMER":
+                ctab = SyntheticGraphs.dendrimer(this.atomCount, 3);
+                break;
+            case "RANDOM_SPARSE":
+                ctab = SyntheticGraphs.randomSparse(this.atomCount, this.atomCount / 2, 42);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown family " + this.family);
+        }
+        this.graph = CompactGraph.of(ctab);
+        this.paths = new FindShortestPaths(this.graph, 0);
+        this.a2 = BenchmarkFixtures.farthestAtom(this.paths, 0);
+    }
+
+    @Benchmark
+    public FindShortestPaths construct() {
+        return new FindShortestPaths(this.graph, 0);
+    }
+
+    @Benchmark
+    public int [] single_shortest_path() {
+        return this.paths.getSingleShortestPathTo(this.a2);
+    }
+
+    @Benchmark
+    public BitSet union_of_shortest_paths() {
+        return this.paths.unionOfShortestPaths(this.a2);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single source shortest path queries of {@link FindShortestPaths}.
+ *
+ * Queries are made from atom 0 to the most distant atom reachable from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortestPathsBenchmark {
+
+    /**
+     * Maximal number of paths consumed from enumerations; grids have exponentially many shortest paths.
+     */
+    private static final int ENUMERATION_LIMIT = 1000;
+
+    @Param({"C6", "BIPHENYL", "VANCOMYCIN", "LARGE_MULTIFRAG", "CHAIN_1000", "GRID_32x32", "FULLERENE_C60"})
+    public String fixture;
+
+    private int [][] ctab;
+
+    private CompactGraph graph;
+
+    private FindShortestPaths paths;
+
+    private int a2;
+
+    @Setup
+    public void setup() {
+        this.ctab = BenchmarkFixtures.ctab(this.fixture);
+        this.graph = CompactGraph.of(this.ctab);
+        this.paths = new FindShortestPaths(this.graph, 0);
+        this.a2 = BenchmarkFixtures.farthestAtom(this.paths, 0);
+    }
+
+    @Benchmark
+    public FindShortestPaths construct_from_ctab() {
+        return new FindShortestPaths(this.ctab, 0);
+    }
+
+    @Benchmark
+    public FindShortestPaths construct_from_graph() {
+        return new FindShortestPaths(this.graph, 0);
+    }
+
+    @Benchmark
+    public FindShortestPaths construct_by_sweep() {
+        return new FindShortestPaths(this.graph, 0, FindShortestPaths.Algorithm.SWEEP);
+    }
+
+    @Benchmark
+    public int [] single_shortest_path() {
+        return this.paths.getSingleShortestPathTo(this.a2);
+    }
+
+    @Benchmark
+    public void enumerate_shortest_paths(Blackhole blackhole) {
+        final Iterator<int []> it = this.paths.enumerateShortestPathsTo(this.a2);
+        for (int i = 0; i < ENUMERATION_LIMIT && it.hasNext(); i++) {
+            blackhole.consume(it.next());
+        }
+    }
+
+    @Benchmark
+    public BitSet union_of_shortest_paths() {
+        return this.paths.unionOfShortestPaths(this.a2);
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cache hit of {@link ShortestPathsCache} against recomputing the distances; a hit must be the cheaper one for the
+ * cache to pay off.
+ *
+ * Hits look up a renumbered copy of the cached structure, so canonicalization does the full work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortestPathsCacheBenchmark {
+
+    @Param({"VANCOMYCIN", "FULLERENE_C60", "GRID_32x32", "CHAIN_1000", "RANDOM_SPARSE_256"})
+    public String fixture;
+
+    private CompactGraph graph;
+
+    private ShortestPathsCache cache;
+
+    @Setup
+    public void setup() {
+        final int [][] ctab = BenchmarkFixtures.ctab(this.fixture);
+        final Random random = new Random(42);
+        this.graph = CompactGraph.of(ShortestPathsCacheTest.permute(ctab,
+                ShortestPathsCacheTest.randomPermutation(ctab.length, random), random));
+        this.cache = new ShortestPathsCache(1 << 26);
+        this.cache.get(ctab);
+        if (this.cache.get(this.graph) == null || this.cache.getStats().hitCount() != 1) {
+            throw new IllegalStateException("Renumbered " + this.fixture + " missed the cache");
+        }
+    }
+
+    @Benchmark
+    public ShortestPathsCache.Entry hit() {
+        return this.cache.get(this.graph);
+    }
+
+    @Benchmark
+    public AllPairsShortestPaths recompute() {
+        return new AllPairsShortestPaths(this.graph, AllPairsShortestPaths.Algorithm.BFS);
+    }
+
+}
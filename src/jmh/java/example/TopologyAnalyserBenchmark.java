@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import chemaxon.marvin.calculations.TopologyAnalyserPlugin;
+import chemaxon.struc.Molecule;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Shortest path lengths by {@link TopologyAnalyserPlugin#getShortestPath(int, int)} compared to this project.
+ *
+ * The plugin calculates all pairs distances on {@code run()}, so it is compared to {@link AllPairsShortestPaths}
+ * construction and to a single source search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopologyAnalyserBenchmark {
+
+    @Param({"C6", "BIPHENYL", "VANCOMYCIN", "LARGE_MULTIFRAG", "CHAIN_1000"})
+    public String fixture;
+
+    private Molecule molecule;
+
+    private CompactGraph graph;
+
+    private int a2;
+
+    @Setup
+    public void setup() {
+        this.molecule = BenchmarkFixtures.molecule(this.fixture);
+        this.graph = CompactGraph.of(this.molecule);
+        this.a2 = BenchmarkFixtures.farthestAtom(new FindShortestPaths(this.graph, 0), 0);
+    }
+
+    @Benchmark
+    public int topology_analyser_plugin() throws Exception {
+        final TopologyAnalyserPlugin plugin = new TopologyAnalyserPlugin();
+        plugin.setMolecule(this.molecule);
+        plugin.run();
+        return plugin.getShortestPath(0, this.a2);
+    }
+
+    @Benchmark
+    public int all_pairs_bfs() {
+        return new AllPairsShortestPaths(this.graph, AllPairsShortestPaths.Algorithm.BFS).distance(0, this.a2);
+    }
+
+    @Benchmark
+    public int all_pairs_bit_parallel() {
+        return new AllPairsShortestPaths(this.graph, AllPairsShortestPaths.Algorithm.BIT_PARALLEL)
+                .distance(0, this.a2);
+    }
+
+    @Benchmark
+    public int single_source() {
+        return new FindShortestPaths(this.graph, 0).getShortestPathLengthTo(this.a2);
+    }
+
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+
+/**
+ * Shortest path lengths between all atom pairs.
+ *
+ * Distances are calculated by running a breadth first search from every atom once, optionally in bit parallel batches
+ * or all at once on dense bitsets (see {@link Algorithm}). They are stored in a flat lower triangular matrix of bytes;
+ * shorts are used when the diameter of the structure exceeds {@link Byte#MAX_VALUE}.
+ */
+public class AllPairsShortestPaths {
+    /**
+     * Flag to mark disconnected atom pairs in the distance matrix.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Lower triangular distance matrix when all distances fit into a byte; {@code null} otherwise.
+     */
+    private byte [] byteDistances;
+
+    /**
+     * Lower triangular distance matrix when some distances do not fit into a byte; {@code null} otherwise.
+     */
+    private short [] shortDistances;
+
+    /**
+     * Largest distance between connected atoms.
+     */
+    private int diameter;
+
+    /**
+     * Smallest atom count for which {@link Algorithm#AUTO} selects {@link Algorithm#DENSE}.
+     *
+     * Measured by {@code AllPairsBenchmark} on molecule like structures: below this plain breadth first search has
+     * less setup cost.
+     */
+    static final int DENSE_MIN_ATOMS = 32;
+
+    /**
+     * Largest atom count for which {@link Algorithm#AUTO} selects {@link Algorithm#DENSE}.
+     *
+     * Measured by {@code AllPairsBenchmark} on molecule like structures: above this the per level word operations of
+     * the dense kernel make {@link Algorithm#BIT_PARALLEL} faster.
+     */
+    static final int DENSE_MAX_ATOMS = 128;
+
+    /**
+     * Algorithms available for calculating the distance matrix.
+     */
+    public enum Algorithm {
+        /**
+         * Breadth first search from every atom one by one, see {@link FindShortestPaths.Algorithm#BFS}.
+         */
+        BFS,
+
+        /**
+         * Bit parallel breadth first search from 64 atoms at once, see {@link MultiSourceBfs}.
+         */
+        BIT_PARALLEL,
+
+        /**
+         * Breadth first search from all atoms at once: each atom holds a dense bitset of the central atoms reaching
+         * it, processed a 64 bit word at a time. Scales as O(d * m * n / 64) for diameter {@code d}; fastest for small
+         * structures. The bitsets take O(n * n / 64) words, so above {@link #DENSE_MAX_ATOMS} atoms
+         * {@link #BIT_PARALLEL} is used instead.
+         */
+        DENSE,
+
+        /**
+         * Select by atom count: {@link #BFS} for the smallest structures, {@link #DENSE} for typical drug like
+         * molecules of 32 - 128 atoms, {@link #BIT_PARALLEL} above.
+         */
+        AUTO
+    }
+
+    /**
+     * Construct using {@link Algorithm#BFS}.
+     *
+     * The connection table is copied into a new {@link CompactGraph}, held by this instance. When the structure is
+     * also searched by other algorithms convert it once and use {@link #AllPairsShortestPaths(CompactGraph)}.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public AllPairsShortestPaths(int [][] ctab) throws IllegalArgumentException {
+        this(CompactGraph.of(ctab), Algorithm.BFS);
+    }
+
+    /**
+     * Construct.
+     *
+     * The connection table is copied into a new {@link CompactGraph}, see {@link #AllPairsShortestPaths(int[][])}.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @param algorithm Algorithm used to calculate distances
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public AllPairsShortestPaths(int [][] ctab, Algorithm algorithm) throws IllegalArgumentException {
+        this(CompactGraph.of(ctab), algorithm);
+    }
+
+    /**
+     * Construct using {@link Algorithm#BFS}.
+     *
+     * @param graph Input structure
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public AllPairsShortestPaths(CompactGraph graph) throws IllegalArgumentException {
+        this(graph, Algorithm.BFS);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     * @param algorithm Algorithm used to calculate distances
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public AllPairsShortestPaths(CompactGraph graph, Algorithm algorithm) throws IllegalArgumentException {
+        this.graph = graph;
+
+        final int atomCount = graph.getAtomCount();
+        final long size = (long) atomCount * (atomCount - 1) / 2;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many atoms for all pairs distance matrix: " + atomCount);
+        }
+
+        this.byteDistances = new byte[(int) size];
+        Arrays.fill(this.byteDistances, (byte) UNKNOWN);
+
+        switch (algorithm) {
+            case BFS:
+                fillByBfs();
+                break;
+            case BIT_PARALLEL:
+                fillByBitParallelBfs();
+                break;
+            case DENSE:
+                if (atomCount <= DENSE_MAX_ATOMS) {
+                    fillByDenseBfs();
+                } else {
+                    fillByBitParallelBfs();
+                }
+                break;
+            case AUTO:
+                if (atomCount < DENSE_MIN_ATOMS) {
+                    fillByBfs();
+                } else if (atomCount <= DENSE_MAX_ATOMS) {
+                    fillByDenseBfs();
+                } else {
+                    fillByBitParallelBfs();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * Fill the distance matrix by a breadth first search from every atom.
+     */
+    private void fillByBfs() {
+        final int atomCount = this.graph.getAtomCount();
+        final int [] distances = new int[atomCount];
+        final int [] queue = new int[atomCount];
+        Arrays.fill(distances, UNKNOWN);
+
+        for (int i = 1; i < atomCount; i++) {
+            final int reached = FindShortestPaths.bfs(this.graph, i, distances, queue, null);
+
+            final int rowStart = rowStart(i);
+            for (int q = 0; q < reached; q++) {
+                final int j = queue[q];
+                final int d = distances[j];
+                distances[j] = UNKNOWN;
+
+                if (j < i) {
+                    store(rowStart + j, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the distance matrix by bit parallel breadth first search from batches of atoms.
+     */
+    private void fillByBitParallelBfs() {
+        final int atomCount = this.graph.getAtomCount();
+        final MultiSourceBfs bfs = new MultiSourceBfs(this.graph);
+        final int [] sources = new int[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            sources[i] = i;
+        }
+        final int [][] rows = new int[Math.min(atomCount, MultiSourceBfs.BATCH_SIZE)][atomCount];
+
+        for (int first = 0; first < atomCount; first += MultiSourceBfs.BATCH_SIZE) {
+            final int count = Math.min(MultiSourceBfs.BATCH_SIZE, atomCount - first);
+            bfs.run(sources, first, count, rows);
+
+            for (int k = 0; k < count; k++) {
+                final int i = first + k;
+                final int rowStart = rowStart(i);
+                final int [] row = rows[k];
+                for (int j = 0; j < i; j++) {
+                    if (row[j] != UNKNOWN) {
+                        store(rowStart + j, row[j]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the distance matrix by breadth first search from all atoms at once.
+     *
+     * Atom {@code v} holds a bitset of the central atoms which reached it so far, {@code words} longs long. In each
+     * level the atoms reached in the previous level push only their newly reached bits to their neighbors, so every
+     * bit is pushed along every bond once.
+     */
+    private void fillByDenseBfs() {
+        final int atomCount = this.graph.getAtomCount();
+        final int words = (atomCount + Long.SIZE - 1) / Long.SIZE;
+        final int [] offsets = this.graph.offsets;
+        final int [] neighbors = this.graph.neighbors;
+
+        final long [] visited = new long[atomCount * words];
+        long [] frontier = new long[atomCount * words];
+        long [] next = new long[atomCount * words];
+        int [] active = new int[atomCount];
+        int [] nextActive = new int[atomCount];
+        final boolean [] queued = new boolean[atomCount];
+
+        for (int v = 0; v < atomCount; v++) {
+            visited[v * words + v / Long.SIZE] = 1L << v;
+            frontier[v * words + v / Long.SIZE] = 1L << v;
+            active[v] = v;
+        }
+
+        int activeCount = atomCount;
+        int level = 0;
+        while (activeCount > 0) {
+            level++;
+
+            // push frontiers to the neighbors, keeping bits not yet visited there
+            int nextCount = 0;
+            for (int a = 0; a < activeCount; a++) {
+                final int u = active[a];
+                final int uBase = u * words;
+                final int end = offsets[u + 1];
+                for (int j = offsets[u]; j < end; j++) {
+                    final int v = neighbors[j];
+                    final int vBase = v * words;
+                    long any = 0;
+                    for (int w = 0; w < words; w++) {
+                        final long reached = frontier[uBase + w] & ~visited[vBase + w];
+                        next[vBase + w] |= reached;
+                        any |= reached;
+                    }
+                    if (any != 0 && !queued[v]) {
+                        queued[v] = true;
+                        nextActive[nextCount++] = v;
+                    }
+                }
+                for (int w = 0; w < words; w++) {
+                    frontier[uBase + w] = 0;
+                }
+            }
+
+            // record distances from central atoms of higher index and make the next level current
+            for (int a = 0; a < nextCount; a++) {
+                final int v = nextActive[a];
+                final int vBase = v * words;
+                queued[v] = false;
+                for (int w = 0; w < words; w++) {
+                    final long reached = next[vBase + w];
+                    visited[vBase + w] |= reached;
+                    for (long bits = reached; bits != 0; bits &= bits - 1) {
+                        final int source = w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        if (source > v) {
+                            store(rowStart(source) + v, level);
+                        }
+                    }
+                }
+            }
+
+            final long [] swapBits = frontier;
+            frontier = next;
+            next = swapBits;
+            final int [] swap = active;
+            active = nextActive;
+            nextActive = swap;
+            activeCount = nextCount;
+        }
+    }
+
+    /**
+     * Store a distance, switching to short representation when necessary.
+     *
+     * @param index Index in the triangular matrix
+     * @param d Distance to store
+     */
+    private void store(int index, int d) {
+        if (d > this.diameter) {
+            this.diameter = d;
+        }
+
+        if (this.byteDistances != null) {
+            if (d <= Byte.MAX_VALUE) {
+                this.byteDistances[index] = (byte) d;
+                return;
+            }
+
+            // diameter exceeds byte range; switch to short representation
+            this.shortDistances = new short[this.byteDistances.length];
+            for (int k = 0; k < this.byteDistances.length; k++) {
+                this.shortDistances[k] = this.byteDistances[k];
+            }
+            this.byteDistances = null;
+        }
+
+        if (d > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large diameter for all pairs distance matrix: " + d);
+        }
+        this.shortDistances[index] = (short) d;
+    }
+
+    /**
+     * Start index of a row in the triangular matrix.
+     *
+     * @param i Row (atom) index
+     * @return Index of element {@code (i, 0)}
+     */
+    private static int rowStart(int i) {
+        return (int) ((long) i * (i - 1) / 2);
+    }
+
+    /**
+     * Stored distance of two atoms.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @return Shortest path length or {@link #UNKNOWN} when disconnected
+     */
+    private int get(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        final int index = i > j ? rowStart(i) + j : rowStart(j) + i;
+        return this.byteDistances != null ? this.byteDistances[index] : this.shortDistances[index];
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.graph.getAtomCount();
+    }
+
+    /**
+     * Memory used by the distance matrix.
+     *
+     * @return Size of the distance matrix in bytes
+     */
+    long getMemorySize() {
+        return this.byteDistances != null ? this.byteDistances.length : 2L * this.shortDistances.length;
+    }
+
+    /**
+     * Largest shortest path length between connected atoms.
+     *
+     * @return Diameter of the structure; for multi fragment structures the largest diameter of the fragments
+     */
+    public int getDiameter() {
+        return this.diameter;
+    }
+
+    /**
+     * Check if a path exists between two atoms.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @return {@code true} when the specified atoms are connected
+     */
+    public boolean pathExists(int i, int j) {
+        return get(i, j) != UNKNOWN;
+    }
+
+    /**
+     * Get shortest path length between two atoms.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @return length of the shortest path
+     * @throws IllegalArgumentException when no path exists
+     */
+    public int distance(int i, int j) throws IllegalArgumentException {
+        final int ret = get(i, j);
+        if (ret == UNKNOWN) {
+            throw new IllegalArgumentException("No path found between atoms " + i + " and " + j);
+        }
+        return ret;
+    }
+
+    /**
+     * Shortest paths from a central atom.
+     *
+     * The returned instance is backed by the distances stored in this matrix; no shortest path search is made.
+     *
+     * @param a1 Central atom index
+     * @return Shortest paths from the specified atom
+     */
+    public FindShortestPaths getShortestPathsFrom(int a1) {
+        final int [] distances = new int[getAtomCount()];
+        for (int j = 0; j < distances.length; j++) {
+            distances[j] = get(a1, j);
+        }
+        return new FindShortestPaths(this.graph, a1, distances);
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Atoms within a limited number of bonds from a center.
+ *
+ * Breadth first search from the center stops expanding at the requested depth. Scratch state is reused when searching
+ * from a new center: only the atoms of the previous neighborhood are reset, so the cost of a search grows with the
+ * size of the neighborhood and not with the size of the structure.
+ *
+ * Instances hold scratch state, they are not thread safe.
+ */
+public class BoundedNeighborhood {
+    /**
+     * Flag to mark atoms outside of the neighborhood.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Shortest distances from the center; {@link #UNKNOWN} for atoms outside of the neighborhood.
+     */
+    private final int [] distances;
+
+    /**
+     * Atoms of the neighborhood in breadth first (shell) order.
+     */
+    private final int [] atoms;
+
+    /**
+     * Number of atoms in the neighborhood.
+     */
+    private int size;
+
+    /**
+     * Start index of each shell in {@link #atoms}; element {@code [depth + 1]} is the neighborhood size.
+     */
+    private int [] shellStart;
+
+    /**
+     * Largest shell index of the current neighborhood.
+     */
+    private int depth;
+
+    /**
+     * Current center.
+     */
+    private int center;
+
+    /**
+     * Construct.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     */
+    public BoundedNeighborhood(int [][] ctab) {
+        this(CompactGraph.of(ctab));
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     */
+    public BoundedNeighborhood(CompactGraph graph) {
+        this.graph = graph;
+        this.distances = new int[graph.getAtomCount()];
+        Arrays.fill(this.distances, UNKNOWN);
+        this.atoms = new int[graph.getAtomCount()];
+        this.shellStart = new int[2];
+        this.center = UNKNOWN;
+    }
+
+    /**
+     * Search neighborhood of a center.
+     *
+     * Results of the previous search are discarded.
+     *
+     * @param center Center atom index
+     * @param maxDepth Maximal distance of atoms from the center to include
+     * @throws IllegalArgumentException when maxDepth is negative
+     */
+    public void search(int center, int maxDepth) throws IllegalArgumentException {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Invalid max depth " + maxDepth);
+        }
+
+        // reset atoms of the previous neighborhood only
+        for (int q = 0; q < this.size; q++) {
+            this.distances[this.atoms[q]] = UNKNOWN;
+        }
+
+        this.center = center;
+        this.distances[center] = 0;
+        this.atoms[0] = center;
+        this.size = 1;
+        this.depth = 0;
+        this.shellStart[0] = 0;
+
+        final int [] offsets = this.graph.offsets;
+        final int [] neighbors = this.graph.neighbors;
+
+        int levelStart = 0;
+        while (this.depth < maxDepth && levelStart < this.size) {
+            final int levelEnd = this.size;
+            final int nextDistance = this.depth + 1;
+            for (int q = levelStart; q < levelEnd; q++) {
+                final int ai = this.atoms[q];
+                for (int j = offsets[ai]; j < offsets[ai + 1]; j++) {
+                    final int n = neighbors[j];
+                    if (this.distances[n] == UNKNOWN) {
+                        this.distances[n] = nextDistance;
+                        this.atoms[this.size++] = n;
+                    }
+                }
+            }
+
+            if (this.size == levelEnd) {
+                // no more atoms reachable
+                break;
+            }
+
+            levelStart = levelEnd;
+            this.depth++;
+            if (this.shellStart.length < this.depth + 2) {
+                this.shellStart = Arrays.copyOf(this.shellStart, 2 * (this.depth + 2));
+            }
+            this.shellStart[this.depth] = levelStart;
+        }
+        this.shellStart[this.depth + 1] = this.size;
+    }
+
+    /**
+     * Ensure that a search was made.
+     *
+     * @throws IllegalStateException when no search was made
+     */
+    private void ensureSearched() throws IllegalStateException {
+        if (this.center == UNKNOWN) {
+            throw new IllegalStateException("No search made");
+        }
+    }
+
+    /**
+     * Center of the current neighborhood.
+     *
+     * @return Center atom index
+     * @throws IllegalStateException when no search was made
+     */
+    public int getCenter() throws IllegalStateException {
+        ensureSearched();
+        return this.center;
+    }
+
+    /**
+     * Depth of the current neighborhood.
+     *
+     * @return Largest distance of neighborhood atoms from the center; smaller than the requested maximal depth when
+     * the fragment of the center is exhausted
+     * @throws IllegalStateException when no search was made
+     */
+    public int getDepth() throws IllegalStateException {
+        ensureSearched();
+        return this.depth;
+    }
+
+    /**
+     * Size of the current neighborhood.
+     *
+     * @return Number of atoms in the neighborhood, including the center
+     * @throws IllegalStateException when no search was made
+     */
+    public int getSize() throws IllegalStateException {
+        ensureSearched();
+        return this.size;
+    }
+
+    /**
+     * Check if an atom is in the current neighborhood.
+     *
+     * @param atom Atom index
+     * @return {@code true} when the atom is within the searched depth from the center
+     */
+    public boolean contains(int atom) {
+        return this.distances[atom] != UNKNOWN;
+    }
+
+    /**
+     * Get shortest path length from the center.
+     *
+     * @param atom Atom index
+     * @return length of the shortest path from the center
+     * @throws IllegalArgumentException when the atom is not in the neighborhood
+     */
+    public int getDistanceTo(int atom) throws IllegalArgumentException {
+        if (!contains(atom)) {
+            throw new IllegalArgumentException("Atom " + atom + " is not in the neighborhood of " + center);
+        }
+        return this.distances[atom];
+    }
+
+    /**
+     * Atoms of the current neighborhood.
+     *
+     * @return Atom indices in ascending order, including the center
+     * @throws IllegalStateException when no search was made
+     */
+    public int [] getAtoms() throws IllegalStateException {
+        ensureSearched();
+        final int [] ret = Arrays.copyOf(this.atoms, this.size);
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    /**
+     * Atoms at a given distance from the center.
+     *
+     * @param distance Distance from the center
+     * @return Atom indices of the shell; empty when distance exceeds {@link #getDepth()}
+     * @throws IllegalStateException when no search was made
+     */
+    public BitSet getShell(int distance) throws IllegalStateException {
+        ensureSearched();
+        final BitSet ret = new BitSet();
+        if (distance >= 0 && distance <= this.depth) {
+            for (int q = this.shellStart[distance]; q < this.shellStart[distance + 1]; q++) {
+                ret.set(this.atoms[q]);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Union of shortest paths from a neighborhood atom to the center.
+     *
+     * Only the atoms of the neighborhood are visited.
+     *
+     * @param startAtom Start atom index
+     * @return Atom indices from the union of all of the shortest paths starting from the specified atom
+     * @throws IllegalArgumentException when the atom is not in the neighborhood
+     */
+    public BitSet unionOfShortestPaths(int startAtom) throws IllegalArgumentException {
+        getDistanceTo(startAtom);
+
+        final BitSet ret = new BitSet();
+        final int [] work = new int[this.size];
+        int count = 0;
+
+        ret.set(startAtom);
+        work[count++] = startAtom;
+        for (int q = 0; q < count; q++) {
+            final int ai = work[q];
+            final int prevDistance = this.distances[ai] - 1;
+            if (prevDistance < 0) {
+                continue;
+            }
+            for (int j = this.graph.offsets[ai]; j < this.graph.offsets[ai + 1]; j++) {
+                final int n = this.graph.neighbors[j];
+                if (this.distances[n] == prevDistance && !ret.get(n)) {
+                    ret.set(n);
+                    work[count++] = n;
+                }
+            }
+        }
+        return ret;
+    }
+
+}
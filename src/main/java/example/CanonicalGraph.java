@@ -0,0 +1,430 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.Arrays;
+
+/**
+ * Graph renumbered into a canonical atom order; used as cache key.
+ *
+ * Canonical order is found by color refinement starting from atom degrees; remaining ties are broken by
+ * individualizing the lowest indexed atom of the first tied class and refining again. Tie breaking is exact for
+ * atoms related by symmetry; for the rare non symmetric ties different input numberings of the same graph can lead to
+ * different canonical graphs. Equality compares the renumbered neighbor lists themselves, so such cases only miss a
+ * cache hit and never give a wrong one.
+ *
+ * Only the topology is considered: shortest paths do not depend on atom or bond types.
+ */
+final class CanonicalGraph {
+    /**
+     * Canonical neighbor list offsets.
+     */
+    private final int [] offsets;
+
+    /**
+     * Canonical neighbor lists, each sorted.
+     */
+    private final int [] neighbors;
+
+    /**
+     * Hash code of the neighbor lists.
+     */
+    private final int hash;
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     * @param canonicalIndex Canonical index of each atom, see {@link #canonicalOrder(CompactGraph)}
+     */
+    CanonicalGraph(CompactGraph graph, int [] canonicalIndex) {
+        final int atomCount = graph.getAtomCount();
+        final int [] atomAt = new int[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            atomAt[canonicalIndex[i]] = i;
+        }
+
+        this.offsets = new int[atomCount + 1];
+        this.neighbors = new int[graph.neighbors.length];
+        for (int c = 0; c < atomCount; c++) {
+            final int i = atomAt[c];
+            final int start = this.offsets[c];
+            int end = start;
+            for (int j = graph.offsets[i]; j < graph.offsets[i + 1]; j++) {
+                this.neighbors[end++] = canonicalIndex[graph.neighbors[j]];
+            }
+            Arrays.sort(this.neighbors, start, end);
+            this.offsets[c + 1] = end;
+        }
+        this.hash = 31 * Arrays.hashCode(this.offsets) + Arrays.hashCode(this.neighbors);
+    }
+
+    /**
+     * Canonical atom order.
+     *
+     * @param graph Input structure
+     * @return Canonical index of each atom, a permutation of {@code 0 .. n-1}
+     */
+    static int [] canonicalOrder(CompactGraph graph) {
+        final int atomCount = graph.getAtomCount();
+        final Refiner refiner = new Refiner(graph);
+        refiner.refine();
+
+        int first = 0;
+        while (true) {
+            // cells only get finer, so singletons already skipped stay singletons
+            while (first < atomCount && refiner.cellEnd[first] == first + 1) {
+                first++;
+            }
+            if (first == atomCount) {
+                return refiner.position;
+            }
+            refiner.individualize(first);
+            refiner.refine();
+        }
+    }
+
+    /**
+     * Ordered partition of the atoms refined by neighbor counts.
+     *
+     * Cells are ranges of {@link #atoms}, identified by their start position; the position of a cell only depends on
+     * the topology, which makes the final atom positions canonical. Refinement takes a cell from a queue of splitters,
+     * counts the neighbors in it of every atom and splits cells by these counts. Only the atoms having a neighbor in
+     * the splitter are moved, and a split cell not waiting in the queue enqueues all parts but its largest, so a full
+     * refinement costs O(m log n) instead of a sort of all atoms per round.
+     */
+    private static final class Refiner {
+        /**
+         * Neighbor list offsets of the input structure.
+         */
+        private final int [] offsets;
+
+        /**
+         * Neighbor lists of the input structure.
+         */
+        private final int [] neighbors;
+
+        /**
+         * Atoms in partition order.
+         */
+        private final int [] atoms;
+
+        /**
+         * Position of each atom in {@link #atoms}.
+         */
+        private final int [] position;
+
+        /**
+         * Start position of the cell of each atom.
+         */
+        private final int [] cellOf;
+
+        /**
+         * End position (exclusive) of each cell, indexed by the start position of the cell.
+         */
+        private final int [] cellEnd;
+
+        /**
+         * Number of atoms moved to the end of each cell by the current splitter, indexed by cell start.
+         */
+        private final int [] movedCount;
+
+        /**
+         * Number of neighbors of each atom in the current splitter.
+         */
+        private final int [] neighborCount;
+
+        /**
+         * Cells waiting to be used as splitter, as a ring buffer of cell starts.
+         */
+        private final int [] queue;
+
+        /**
+         * Flags of the cells in {@link #queue}, indexed by cell start.
+         */
+        private final boolean [] queued;
+
+        /**
+         * First element of {@link #queue}.
+         */
+        private int queueHead;
+
+        /**
+         * Element count of {@link #queue}.
+         */
+        private int queueSize;
+
+        /**
+         * Copy of the atoms of the current splitter.
+         */
+        private final int [] splitter;
+
+        /**
+         * Atoms having a neighbor in the current splitter.
+         */
+        private final int [] touchedAtoms;
+
+        /**
+         * Starts of the cells of {@link #touchedAtoms}.
+         */
+        private final int [] touchedCells;
+
+        /**
+         * Sort keys of neighbor count and atom index.
+         */
+        private final long [] keys;
+
+        /**
+         * Starts of the parts of a split cell.
+         */
+        private final int [] parts;
+
+        /**
+         * Construct with atoms partitioned by degree, all cells queued.
+         *
+         * @param graph Input structure
+         */
+        Refiner(CompactGraph graph) {
+            final int atomCount = graph.getAtomCount();
+            this.offsets = graph.offsets;
+            this.neighbors = graph.neighbors;
+            this.atoms = new int[atomCount];
+            this.position = new int[atomCount];
+            this.cellOf = new int[atomCount];
+            this.cellEnd = new int[atomCount];
+            this.movedCount = new int[atomCount];
+            this.neighborCount = new int[atomCount];
+            this.queue = new int[atomCount];
+            this.queued = new boolean[atomCount];
+            this.splitter = new int[atomCount];
+            this.touchedAtoms = new int[atomCount];
+            this.touchedCells = new int[atomCount];
+            this.keys = new long[atomCount];
+            this.parts = new int[atomCount + 1];
+
+            // counting sort by degree
+            int maxDegree = 0;
+            for (int i = 0; i < atomCount; i++) {
+                maxDegree = Math.max(maxDegree, graph.getDegree(i));
+            }
+            final int [] degreeStart = new int[maxDegree + 2];
+            for (int i = 0; i < atomCount; i++) {
+                degreeStart[graph.getDegree(i) + 1]++;
+            }
+            for (int d = 0; d <= maxDegree; d++) {
+                degreeStart[d + 1] += degreeStart[d];
+            }
+            final int [] next = Arrays.copyOf(degreeStart, maxDegree + 1);
+            for (int i = 0; i < atomCount; i++) {
+                final int d = graph.getDegree(i);
+                this.atoms[next[d]] = i;
+                this.position[i] = next[d];
+                this.cellOf[i] = degreeStart[d];
+                next[d]++;
+            }
+            for (int d = 0; d <= maxDegree; d++) {
+                if (degreeStart[d] < degreeStart[d + 1]) {
+                    this.cellEnd[degreeStart[d]] = degreeStart[d + 1];
+                    enqueue(degreeStart[d]);
+                }
+            }
+        }
+
+        /**
+         * Add a cell to the splitter queue.
+         *
+         * @param cell Cell start
+         */
+        private void enqueue(int cell) {
+            this.queue[(this.queueHead + this.queueSize) % this.queue.length] = cell;
+            this.queueSize++;
+            this.queued[cell] = true;
+        }
+
+        /**
+         * Swap the atoms at two positions.
+         *
+         * @param p Position
+         * @param q Position
+         */
+        private void swap(int p, int q) {
+            final int atomP = this.atoms[p];
+            final int atomQ = this.atoms[q];
+            this.atoms[p] = atomQ;
+            this.position[atomQ] = p;
+            this.atoms[q] = atomP;
+            this.position[atomP] = q;
+        }
+
+        /**
+         * Split off the lowest indexed atom of a cell as the last position of the cell.
+         *
+         * @param cell Start of a cell of at least two atoms
+         */
+        void individualize(int cell) {
+            final int end = this.cellEnd[cell];
+            int chosen = this.atoms[cell];
+            for (int p = cell + 1; p < end; p++) {
+                chosen = Math.min(chosen, this.atoms[p]);
+            }
+            swap(this.position[chosen], end - 1);
+            this.cellEnd[cell] = end - 1;
+            this.cellEnd[end - 1] = end;
+            this.cellOf[chosen] = end - 1;
+            enqueue(end - 1);
+        }
+
+        /**
+         * Refine until every queued splitter is processed; the partition is equitable then.
+         */
+        void refine() {
+            while (this.queueSize > 0) {
+                final int start = this.queue[this.queueHead];
+                this.queueHead = (this.queueHead + 1) % this.queue.length;
+                this.queueSize--;
+                this.queued[start] = false;
+
+                final int splitterSize = this.cellEnd[start] - start;
+                System.arraycopy(this.atoms, start, this.splitter, 0, splitterSize);
+
+                // count neighbors in the splitter, moving touched atoms to the end of their cells
+                int touchedAtomCount = 0;
+                int touchedCellCount = 0;
+                for (int k = 0; k < splitterSize; k++) {
+                    final int v = this.splitter[k];
+                    for (int j = this.offsets[v]; j < this.offsets[v + 1]; j++) {
+                        final int w = this.neighbors[j];
+                        if (this.neighborCount[w]++ == 0) {
+                            this.touchedAtoms[touchedAtomCount++] = w;
+                            final int cell = this.cellOf[w];
+                            if (this.movedCount[cell] == 0) {
+                                this.touchedCells[touchedCellCount++] = cell;
+                            }
+                            swap(this.position[w], this.cellEnd[cell] - 1 - this.movedCount[cell]++);
+                        }
+                    }
+                }
+
+                // cell order is canonical, process touched cells by it
+                Arrays.sort(this.touchedCells, 0, touchedCellCount);
+                for (int k = 0; k < touchedCellCount; k++) {
+                    split(this.touchedCells[k]);
+                }
+
+                for (int k = 0; k < touchedAtomCount; k++) {
+                    this.neighborCount[this.touchedAtoms[k]] = 0;
+                }
+            }
+        }
+
+        /**
+         * Split a cell by the neighbor counts of its atoms: untouched atoms first, then by increasing count.
+         *
+         * @param cell Cell start
+         */
+        private void split(int cell) {
+            final int end = this.cellEnd[cell];
+            final int movedFrom = end - this.movedCount[cell];
+            this.movedCount[cell] = 0;
+
+            for (int p = movedFrom; p < end; p++) {
+                this.keys[p] = (long) this.neighborCount[this.atoms[p]] << Integer.SIZE | this.atoms[p];
+            }
+            Arrays.sort(this.keys, movedFrom, end);
+            for (int p = movedFrom; p < end; p++) {
+                this.atoms[p] = (int) this.keys[p];
+                this.position[this.atoms[p]] = p;
+            }
+
+            int partCount = 0;
+            if (movedFrom > cell) {
+                this.parts[partCount++] = cell;
+            }
+            for (int p = movedFrom; p < end; p++) {
+                if (p == movedFrom || this.neighborCount[this.atoms[p]] != this.neighborCount[this.atoms[p - 1]]) {
+                    this.parts[partCount++] = p;
+                }
+            }
+            if (partCount == 1) {
+                return;
+            }
+
+            int largest = cell;
+            for (int k = 0; k < partCount; k++) {
+                final int part = this.parts[k];
+                final int partEnd = k + 1 < partCount ? this.parts[k + 1] : end;
+                this.cellEnd[part] = partEnd;
+                if (k > 0) {
+                    for (int p = part; p < partEnd; p++) {
+                        this.cellOf[this.atoms[p]] = part;
+                    }
+                }
+                if (partEnd - part > this.cellEnd[largest] - largest) {
+                    largest = part;
+                }
+            }
+
+            // a queued cell stays queued, its new parts are added; otherwise the largest part can be skipped
+            final boolean wasQueued = this.queued[cell];
+            for (int k = 0; k < partCount; k++) {
+                final int part = this.parts[k];
+                if (wasQueued ? part != cell : part != largest) {
+                    enqueue(part);
+                }
+            }
+        }
+    }
+
+    /**
+     * Canonical structure.
+     *
+     * @return Graph in canonical numbering, sharing the neighbor lists of this instance
+     */
+    CompactGraph toGraph() {
+        return new CompactGraph(this.offsets, this.neighbors);
+    }
+
+    /**
+     * Memory used.
+     *
+     * @return Approximate size of the neighbor lists in bytes
+     */
+    long getMemorySize() {
+        return 4L * (this.offsets.length + this.neighbors.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CanonicalGraph)) {
+            return false;
+        }
+        final CanonicalGraph other = (CanonicalGraph) o;
+        return this.hash == other.hash
+                && Arrays.equals(this.offsets, other.offsets)
+                && Arrays.equals(this.neighbors, other.neighbors);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Immutable, compact representation of the connection table of a structure.
+ *
+ * Neighbor lists are stored in compressed sparse row form: neighbors of atom {@code i} are
+ * {@code neighbors[offsets[i]]} to {@code neighbors[offsets[i + 1] - 1]}. Compared to {@link Molecule#getCtab()} this
+ * needs two arrays instead of one array per atom, and neighbor lists of successive atoms are adjacent in memory.
+ *
+ * Build it once per structure and share it between the shortest path algorithms.
+ */
+public final class CompactGraph {
+    /**
+     * Start index of the neighbors of each atom in {@link #neighbors}; atom count + 1 length.
+     */
+    final int [] offsets;
+
+    /**
+     * Concatenated neighbor lists.
+     */
+    final int [] neighbors;
+
+    /**
+     * Construct.
+     *
+     * @param offsets Neighbor list offsets; no defensive copy is made
+     * @param neighbors Concatenated neighbor lists; no defensive copy is made
+     */
+    CompactGraph(int [] offsets, int [] neighbors) {
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Convert a connection table.
+     *
+     * Neighbor order of the connection table is preserved.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @return Compact representation; independent of the connection table
+     */
+    public static CompactGraph of(int [][] ctab) {
+        final int atomCount = ctab.length;
+        final int [] offsets = new int[atomCount + 1];
+        for (int i = 0; i < atomCount; i++) {
+            offsets[i + 1] = offsets[i] + ctab[i].length;
+        }
+
+        final int [] neighbors = new int[offsets[atomCount]];
+        for (int i = 0; i < atomCount; i++) {
+            System.arraycopy(ctab[i], 0, neighbors, offsets[i], ctab[i].length);
+        }
+        return new CompactGraph(offsets, neighbors);
+    }
+
+    /**
+     * Convert the connection table of a molecule.
+     *
+     * @param molecule Molecule
+     * @return Compact representation of {@link Molecule#getCtab()}
+     */
+    public static CompactGraph of(Molecule molecule) {
+        return of(molecule.getCtab());
+    }
+
+    /**
+     * Build from bond list.
+     *
+     * Neighbors of each atom are listed in the order of the bonds.
+     *
+     * @param atomCount Atom count
+     * @param bondAtoms1 First atom index of each bond
+     * @param bondAtoms2 Second atom index of each bond
+     * @return Compact representation
+     * @throws IllegalArgumentException when the bond arrays have different lengths or refer invalid atoms
+     */
+    public static CompactGraph ofBonds(int atomCount, int [] bondAtoms1, int [] bondAtoms2)
+            throws IllegalArgumentException {
+        if (bondAtoms1.length != bondAtoms2.length) {
+            throw new IllegalArgumentException("Bond atom array lengths differ: " + bondAtoms1.length + ", "
+                    + bondAtoms2.length);
+        }
+
+        final int [] offsets = new int[atomCount + 1];
+        for (int b = 0; b < bondAtoms1.length; b++) {
+            final int i = bondAtoms1[b];
+            final int j = bondAtoms2[b];
+            if (i < 0 || i >= atomCount || j < 0 || j >= atomCount || i == j) {
+                throw new IllegalArgumentException("Invalid bond #" + b + ": " + i + " - " + j);
+            }
+            offsets[i + 1]++;
+            offsets[j + 1]++;
+        }
+        for (int i = 0; i < atomCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        final int [] fill = new int[atomCount];
+        System.arraycopy(offsets, 0, fill, 0, atomCount);
+        final int [] neighbors = new int[offsets[atomCount]];
+        for (int b = 0; b < bondAtoms1.length; b++) {
+            final int i = bondAtoms1[b];
+            final int j = bondAtoms2[b];
+            neighbors[fill[i]++] = j;
+            neighbors[fill[j]++] = i;
+        }
+        return new CompactGraph(offsets, neighbors);
+    }
+
+    /**
+     * Subgraph induced by a closed set of atoms.
+     *
+     * @param atoms Atoms of the subgraph in {@code [from, to)}; neighbors of these atoms must all be in the set
+     * @param from Start index in {@code atoms}
+     * @param to End index in {@code atoms}, exclusive
+     * @param localIndex Index of each atom within the set, {@code atoms[from + localIndex[i]] == i}
+     * @return Subgraph in the order of {@code atoms}
+     */
+    CompactGraph subgraph(int [] atoms, int from, int to, int [] localIndex) {
+        final int atomCount = to - from;
+        final int [] subOffsets = new int[atomCount + 1];
+        for (int k = 0; k < atomCount; k++) {
+            subOffsets[k + 1] = subOffsets[k] + getDegree(atoms[from + k]);
+        }
+
+        final int [] subNeighbors = new int[subOffsets[atomCount]];
+        for (int k = 0; k < atomCount; k++) {
+            final int i = atoms[from + k];
+            int fill = subOffsets[k];
+            for (int j = this.offsets[i]; j < this.offsets[i + 1]; j++) {
+                subNeighbors[fill++] = localIndex[this.neighbors[j]];
+            }
+        }
+        return new CompactGraph(subOffsets, subNeighbors);
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Bond count.
+     *
+     * @return Bond count
+     */
+    public int getBondCount() {
+        return this.neighbors.length / 2;
+    }
+
+    /**
+     * Degree of an atom.
+     *
+     * @param atom Atom index
+     * @return Number of neighbors
+     */
+    public int getDegree(int atom) {
+        return this.offsets[atom + 1] - this.offsets[atom];
+    }
+
+    /**
+     * Neighbor of an atom.
+     *
+     * @param atom Atom index
+     * @param index Neighbor index, in range {@code [0, getDegree(atom))}
+     * @return Atom index of the neighbor
+     * @throws IndexOutOfBoundsException when index is out of range
+     */
+    public int getNeighbor(int atom, int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= getDegree(atom)) {
+            throw new IndexOutOfBoundsException("Invalid neighbor index " + index + " for atom " + atom);
+        }
+        return this.neighbors[this.offsets[atom] + index];
+    }
+
+    /**
+     * Convert to connection table.
+     *
+     * @return Connection table in {@link Molecule#getCtab()} form
+     */
+    public int [][] toCtab() {
+        final int [][] ret = new int[getAtomCount()][];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = new int[getDegree(i)];
+            System.arraycopy(this.neighbors, this.offsets[i], ret[i], 0, ret[i].length);
+        }
+        return ret;
+    }
+
+    /**
+     * Serialized size.
+     *
+     * @return Number of bytes written by {@link #writeTo(ByteBuffer)}
+     */
+    public int getSerializedSize() {
+        return 4 * (2 + this.offsets.length + this.neighbors.length);
+    }
+
+    /**
+     * Serialize into a buffer.
+     *
+     * Layout (little endian ints): atom count, neighbor array length, offsets, neighbors. Used to store or transfer
+     * structures; the graph itself is always held in heap arrays.
+     *
+     * @param buffer Buffer to write to its position; must have at least {@link #getSerializedSize()} remaining bytes
+     */
+    public void writeTo(ByteBuffer buffer) {
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(getAtomCount());
+        buffer.putInt(this.neighbors.length);
+        buffer.asIntBuffer().put(this.offsets).put(this.neighbors);
+        buffer.position(buffer.position() + 4 * (this.offsets.length + this.neighbors.length));
+        buffer.order(order);
+    }
+
+    /**
+     * Deserialize from a buffer.
+     *
+     * The content is validated before use: counts must fit in the remaining bytes, offsets must be non decreasing
+     * from {@code 0} to the neighbor array length and neighbors must be valid atom indices. On failure the buffer
+     * position is undefined.
+     *
+     * @param buffer Buffer to read from its position, see {@link #writeTo(ByteBuffer)}
+     * @return Graph read
+     * @throws IllegalArgumentException when the buffer does not contain a valid serialized graph
+     */
+    public static CompactGraph readFrom(ByteBuffer buffer) throws IllegalArgumentException {
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.remaining() < 8) {
+                throw new IllegalArgumentException("Truncated graph header: " + buffer.remaining() + " bytes");
+            }
+            final int atomCount = buffer.getInt();
+            final int neighborCount = buffer.getInt();
+            if (atomCount < 0 || neighborCount < 0
+                    || 4L * ((long) atomCount + 1 + neighborCount) > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid graph size: " + atomCount + " atoms, " + neighborCount
+                        + " neighbors in " + buffer.remaining() + " bytes");
+            }
+
+            final int [] offsets = new int[atomCount + 1];
+            final int [] neighbors = new int[neighborCount];
+            buffer.asIntBuffer().get(offsets).get(neighbors);
+            buffer.position(buffer.position() + 4 * (offsets.length + neighbors.length));
+
+            if (offsets[0] != 0 || offsets[atomCount] != neighborCount) {
+                throw new IllegalArgumentException("Invalid offset range: " + offsets[0] + " - " + offsets[atomCount]);
+            }
+            for (int i = 0; i < atomCount; i++) {
+                if (offsets[i] > offsets[i + 1]) {
+                    throw new IllegalArgumentException("Decreasing offset of atom " + (i + 1) + ": " + offsets[i + 1]);
+                }
+            }
+            for (int j = 0; j < neighborCount; j++) {
+                if (neighbors[j] < 0 || neighbors[j] >= atomCount) {
+                    throw new IllegalArgumentException("Invalid neighbor #" + j + ": " + neighbors[j]);
+                }
+            }
+            return new CompactGraph(offsets, neighbors);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+}
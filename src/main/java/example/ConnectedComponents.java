@@ -0,0 +1,309 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+
+/**
+ * Connected components (fragments) of a structure.
+ *
+ * Components are labeled once by a single breadth first sweep, after which connectivity of any atom pair is answered in
+ * constant time. Each component is also available as a separate {@link CompactGraph} in component local atom
+ * numbering, so shortest path searches from an atom are confined to its own component and use arrays sized to it.
+ * This pays off for salts, mixtures and multi chain structures, where a search on the whole structure would allocate
+ * and scan state for all fragments. Searches made directly on the whole structure, like {@link FindShortestPaths}, do
+ * not use this index: query through this class to benefit from it.
+ *
+ * Component graphs are built on first request, so components never searched cost no copy. Instances are thread
+ * safe.
+ *
+ * Components are numbered in the order of their lowest indexed atoms; atoms of a component are listed in increasing
+ * index order, and the position of an atom in this list is its local index.
+ */
+public final class ConnectedComponents {
+    /**
+     * Flag to mark unlabeled atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Component index of each atom.
+     */
+    private final int [] componentOf;
+
+    /**
+     * Start index of the atoms of each component in {@link #members}; component count + 1 length.
+     */
+    private final int [] offsets;
+
+    /**
+     * Atoms grouped by component, in increasing index order within each component.
+     */
+    private final int [] members;
+
+    /**
+     * Index of each atom within its component.
+     */
+    private final int [] localIndex;
+
+    /**
+     * Component subgraphs in local numbering; {@code null} until requested. Racing threads may build a subgraph twice,
+     * both results are equal and safely published by the final fields of {@link CompactGraph}.
+     */
+    private final CompactGraph [] componentGraphs;
+
+    /**
+     * Construct.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     */
+    public ConnectedComponents(int [][] ctab) {
+        this(CompactGraph.of(ctab));
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     */
+    public ConnectedComponents(CompactGraph graph) {
+        final int atomCount = graph.getAtomCount();
+        this.graph = graph;
+        this.componentOf = new int[atomCount];
+        Arrays.fill(this.componentOf, UNKNOWN);
+
+        // label by breadth first sweep; queue entries of finished components are not needed later
+        final int [] queue = new int[atomCount];
+        int componentCount = 0;
+        for (int start = 0; start < atomCount; start++) {
+            if (this.componentOf[start] != UNKNOWN) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            this.componentOf[start] = componentCount;
+            queue[tail++] = start;
+            while (head < tail) {
+                final int ai = queue[head++];
+                for (int j = graph.offsets[ai]; j < graph.offsets[ai + 1]; j++) {
+                    final int n = graph.neighbors[j];
+                    if (this.componentOf[n] == UNKNOWN) {
+                        this.componentOf[n] = componentCount;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+            componentCount++;
+        }
+
+        // group atoms by component with a counting sort, keeping index order
+        this.offsets = new int[componentCount + 1];
+        for (int i = 0; i < atomCount; i++) {
+            this.offsets[this.componentOf[i] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            this.offsets[c + 1] += this.offsets[c];
+        }
+        this.members = new int[atomCount];
+        this.localIndex = new int[atomCount];
+        final int [] fill = Arrays.copyOf(this.offsets, componentCount);
+        for (int i = 0; i < atomCount; i++) {
+            final int c = this.componentOf[i];
+            this.localIndex[i] = fill[c] - this.offsets[c];
+            this.members[fill[c]++] = i;
+        }
+
+        this.componentGraphs = new CompactGraph[componentCount];
+        if (componentCount == 1) {
+            // local numbering is the same as the input numbering
+            this.componentGraphs[0] = graph;
+        }
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count of the structure
+     */
+    public int getAtomCount() {
+        return this.graph.getAtomCount();
+    }
+
+    /**
+     * Component count.
+     *
+     * @return Number of connected components
+     */
+    public int getComponentCount() {
+        return this.componentGraphs.length;
+    }
+
+    /**
+     * Component of an atom.
+     *
+     * @param atom Atom index
+     * @return Component index
+     */
+    public int getComponent(int atom) {
+        return this.componentOf[atom];
+    }
+
+    /**
+     * Component size.
+     *
+     * @param component Component index
+     * @return Number of atoms in the component
+     */
+    public int getComponentSize(int component) {
+        return this.offsets[component + 1] - this.offsets[component];
+    }
+
+    /**
+     * Largest component.
+     *
+     * @return Index of the component with the most atoms, the lowest index on ties; {@code -1} for empty structures
+     */
+    public int getLargestComponent() {
+        int ret = UNKNOWN;
+        for (int c = 0; c < getComponentCount(); c++) {
+            if (ret == UNKNOWN || getComponentSize(c) > getComponentSize(ret)) {
+                ret = c;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Atoms of a component.
+     *
+     * @param component Component index
+     * @return Atom indices in increasing order; a copy
+     */
+    public int [] getMembers(int component) {
+        return Arrays.copyOfRange(this.members, this.offsets[component], this.offsets[component + 1]);
+    }
+
+    /**
+     * Local index of an atom.
+     *
+     * @param atom Atom index
+     * @return Index of the atom within its component
+     */
+    public int getLocalIndex(int atom) {
+        return this.localIndex[atom];
+    }
+
+    /**
+     * Atom index from local index.
+     *
+     * @param component Component index
+     * @param localIndex Index within the component
+     * @return Atom index in the structure
+     * @throws IndexOutOfBoundsException when the local index is out of range
+     */
+    public int getAtom(int component, int localIndex) throws IndexOutOfBoundsException {
+        if (localIndex < 0 || localIndex >= getComponentSize(component)) {
+            throw new IndexOutOfBoundsException("Invalid local index " + localIndex + " for component " + component);
+        }
+        return this.members[this.offsets[component] + localIndex];
+    }
+
+    /**
+     * Convert local atom indices to atom indices of the structure.
+     *
+     * Use it on paths found by searches on {@link #getComponentGraph(int)}.
+     *
+     * @param component Component index
+     * @param atoms Local indices; converted in place
+     * @return The converted array
+     */
+    public int [] toAtoms(int component, int [] atoms) {
+        final int start = this.offsets[component];
+        for (int k = 0; k < atoms.length; k++) {
+            atoms[k] = this.members[start + atoms[k]];
+        }
+        return atoms;
+    }
+
+    /**
+     * Check if two atoms are connected.
+     *
+     * @param a1 Atom index
+     * @param a2 Atom index
+     * @return {@code true} when a path exists between the atoms
+     */
+    public boolean isConnected(int a1, int a2) {
+        return this.componentOf[a1] == this.componentOf[a2];
+    }
+
+    /**
+     * Component structure.
+     *
+     * @param component Component index
+     * @return Component in local atom numbering; the input structure itself when it has a single component
+     */
+    public CompactGraph getComponentGraph(int component) {
+        CompactGraph ret = this.componentGraphs[component];
+        if (ret == null) {
+            ret = this.graph.subgraph(this.members, this.offsets[component], this.offsets[component + 1],
+                    this.localIndex);
+            this.componentGraphs[component] = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Shortest paths from a central atom, confined to its component.
+     *
+     * The returned instance uses the local atom numbering of the component of {@code a1}: query it with
+     * {@link #getLocalIndex(int)} and convert returned paths by {@link #toAtoms(int, int[])}.
+     *
+     * @param a1 Central atom index
+     * @return Shortest paths within the component of the central atom
+     */
+    public FindShortestPaths getShortestPathsFrom(int a1) {
+        return new FindShortestPaths(getComponentGraph(this.componentOf[a1]), this.localIndex[a1]);
+    }
+
+    /**
+     * Shortest path length between two atoms.
+     *
+     * Atoms of different components are answered in constant time, otherwise a bidirectional search is made within
+     * the component, see {@link FindShortestPaths#pairQuery(CompactGraph, int, int)}. Check
+     * {@link #isConnected(int, int)} first when the atoms may be disconnected.
+     *
+     * @param a1 Atom index
+     * @param a2 Atom index
+     * @return Length of the shortest path
+     * @throws IllegalArgumentException when no path exists
+     */
+    public int getShortestPathLength(int a1, int a2) throws IllegalArgumentException {
+        if (!isConnected(a1, a2)) {
+            throw new IllegalArgumentException("No path found between atoms " + a1 + " and " + a2);
+        }
+        return FindShortestPaths.pairQuery(getComponentGraph(this.componentOf[a1]), this.localIndex[a1],
+                this.localIndex[a2]).getShortestPathLength();
+    }
+
+}
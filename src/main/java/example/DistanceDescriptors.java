@@ -0,0 +1,379 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Topological distance descriptors of a structure.
+ *
+ * Descriptors are calculated in a single pass running a breadth first search from every atom; distances of each
+ * search are folded into the accumulators as soon as it completes, so the all pairs distance matrix is never stored.
+ * Memory use is linear in the atom count per worker.
+ *
+ * Searches from different atoms are independent: for large structures they can be run in parallel (see
+ * {@link #of(CompactGraph, boolean)}), each worker holding its own search scratch and partial sums which are merged at
+ * the end. For libraries of small structures parallelize across structures instead, for example by using
+ * {@code m -> DistanceDescriptors.of(CompactGraph.of(m))} as the worker of a {@link ShortestPathsPipeline}.
+ *
+ * For multi fragment structures distances are considered within fragments only; disconnected atom pairs are skipped.
+ */
+public final class DistanceDescriptors {
+    /**
+     * Flag to mark unreached atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Atom count.
+     */
+    private final int atomCount;
+
+    /**
+     * Sum of distances of all connected atom pairs.
+     */
+    private final long wienerIndex;
+
+    /**
+     * Largest distance from each atom.
+     */
+    private final int [] eccentricities;
+
+    /**
+     * Sum of distances from each atom.
+     */
+    private final long [] distanceSums;
+
+    /**
+     * Number of atom pairs at each distance.
+     */
+    private final long [] distanceHistogram;
+
+    /**
+     * Number of fragments.
+     */
+    private final int fragmentCount;
+
+    /**
+     * Balaban J index.
+     */
+    private final double balabanJ;
+
+    /**
+     * Partial results of searches from a subset of atoms.
+     *
+     * Per atom results are written into arrays shared by all accumulators of a calculation; every atom is the source of
+     * exactly one search, so workers never write the same element.
+     */
+    private static final class Accumulator {
+        /**
+         * Input structure.
+         */
+        private final CompactGraph graph;
+
+        /**
+         * Shared eccentricities.
+         */
+        private final int [] eccentricities;
+
+        /**
+         * Shared distance sums.
+         */
+        private final long [] distanceSums;
+
+        /**
+         * Search scratch: distances from the current source.
+         */
+        private final int [] distances;
+
+        /**
+         * Search scratch: queue.
+         */
+        private final int [] queue;
+
+        /**
+         * Number of ordered atom pairs at each distance.
+         */
+        private long [] histogram = new long[8];
+
+        /**
+         * Number of sources which are the lowest indexed atoms of their fragment.
+         */
+        private int fragmentCount;
+
+        /**
+         * Construct.
+         *
+         * @param graph Input structure
+         * @param eccentricities Shared eccentricities
+         * @param distanceSums Shared distance sums
+         */
+        private Accumulator(CompactGraph graph, int [] eccentricities, long [] distanceSums) {
+            this.graph = graph;
+            this.eccentricities = eccentricities;
+            this.distanceSums = distanceSums;
+            this.distances = new int[graph.getAtomCount()];
+            this.queue = new int[graph.getAtomCount()];
+            Arrays.fill(this.distances, UNKNOWN);
+        }
+
+        /**
+         * Search from an atom and fold its distances.
+         *
+         * @param a1 Source atom
+         */
+        private void accept(int a1) {
+            final int reached = FindShortestPaths.bfs(this.graph, a1, this.distances, this.queue, null);
+
+            // queue is in BFS order: the last atom is the farthest one
+            final int eccentricity = this.distances[this.queue[reached - 1]];
+            if (eccentricity >= this.histogram.length) {
+                this.histogram = Arrays.copyOf(this.histogram, Math.max(eccentricity + 1, 2 * this.histogram.length));
+            }
+
+            long sum = 0;
+            int lowest = a1;
+            for (int q = 0; q < reached; q++) {
+                final int j = this.queue[q];
+                final int d = this.distances[j];
+                this.distances[j] = UNKNOWN;
+                sum += d;
+                this.histogram[d]++;
+                lowest = Math.min(lowest, j);
+            }
+
+            this.eccentricities[a1] = eccentricity;
+            this.distanceSums[a1] = sum;
+            if (lowest == a1) {
+                this.fragmentCount++;
+            }
+        }
+
+        /**
+         * Merge partial results of another accumulator.
+         *
+         * @param other Accumulator of the same calculation
+         */
+        private void combine(Accumulator other) {
+            if (other.histogram.length > this.histogram.length) {
+                this.histogram = Arrays.copyOf(this.histogram, other.histogram.length);
+            }
+            for (int d = 0; d < other.histogram.length; d++) {
+                this.histogram[d] += other.histogram[d];
+            }
+            this.fragmentCount += other.fragmentCount;
+        }
+    }
+
+    /**
+     * Construct from merged accumulators.
+     *
+     * @param graph Input structure
+     * @param eccentricities Eccentricities
+     * @param distanceSums Distance sums
+     * @param accumulator Merged accumulator
+     */
+    private DistanceDescriptors(CompactGraph graph, int [] eccentricities, long [] distanceSums,
+            Accumulator accumulator) {
+        this.atomCount = graph.getAtomCount();
+        this.eccentricities = eccentricities;
+        this.distanceSums = distanceSums;
+        this.fragmentCount = accumulator.fragmentCount;
+
+        // histogram counts ordered pairs; drop trailing zeros and the atoms paired with themselves
+        int length = accumulator.histogram.length;
+        while (length > 1 && accumulator.histogram[length - 1] == 0) {
+            length--;
+        }
+        this.distanceHistogram = new long[length];
+        long wiener = 0;
+        for (int d = 1; d < length; d++) {
+            this.distanceHistogram[d] = accumulator.histogram[d] / 2;
+            wiener += d * this.distanceHistogram[d];
+        }
+        this.wienerIndex = wiener;
+
+        this.balabanJ = balabanJ(graph, distanceSums, this.fragmentCount);
+    }
+
+    /**
+     * Calculate descriptors sequentially.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @return Descriptors
+     */
+    public static DistanceDescriptors of(int [][] ctab) {
+        return of(CompactGraph.of(ctab), false);
+    }
+
+    /**
+     * Calculate descriptors sequentially.
+     *
+     * @param graph Input structure
+     * @return Descriptors
+     */
+    public static DistanceDescriptors of(CompactGraph graph) {
+        return of(graph, false);
+    }
+
+    /**
+     * Calculate descriptors.
+     *
+     * @param graph Input structure
+     * @param parallel {@code true} to distribute searches from different atoms over the common fork join pool; worth
+     * it for structures of a few thousand atoms and above
+     * @return Descriptors; independent of the value of {@code parallel}
+     */
+    public static DistanceDescriptors of(CompactGraph graph, boolean parallel) {
+        final int atomCount = graph.getAtomCount();
+        final int [] eccentricities = new int[atomCount];
+        final long [] distanceSums = new long[atomCount];
+
+        final IntStream sources = IntStream.range(0, atomCount);
+        final Accumulator accumulator = (parallel ? sources.parallel() : sources).collect(
+                () -> new Accumulator(graph, eccentricities, distanceSums),
+                Accumulator::accept,
+                Accumulator::combine);
+        return new DistanceDescriptors(graph, eccentricities, distanceSums, accumulator);
+    }
+
+    /**
+     * Calculate Balaban J index.
+     *
+     * @param graph Input structure
+     * @param distanceSums Distance sums
+     * @param fragmentCount Number of fragments
+     * @return Balaban J index, {@code 0} when there are no bonds
+     */
+    private static double balabanJ(CompactGraph graph, long [] distanceSums, int fragmentCount) {
+        final int bondCount = graph.getBondCount();
+        if (bondCount == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < graph.getAtomCount(); i++) {
+            for (int j = graph.offsets[i]; j < graph.offsets[i + 1]; j++) {
+                final int n = graph.neighbors[j];
+                if (n > i) {
+                    sum += 1 / Math.sqrt((double) distanceSums[i] * distanceSums[n]);
+                }
+            }
+        }
+        final int cyclomaticNumber = bondCount - graph.getAtomCount() + fragmentCount;
+        return bondCount * sum / (cyclomaticNumber + 1);
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.atomCount;
+    }
+
+    /**
+     * Wiener index.
+     *
+     * @return Sum of shortest path lengths over all connected atom pairs
+     */
+    public long getWienerIndex() {
+        return this.wienerIndex;
+    }
+
+    /**
+     * Eccentricity of an atom.
+     *
+     * @param atom Atom index
+     * @return Largest shortest path length from the atom to any atom of its fragment
+     */
+    public int getEccentricity(int atom) {
+        return this.eccentricities[atom];
+    }
+
+    /**
+     * Eccentricities of all atoms.
+     *
+     * @return Eccentricity of each atom; a copy
+     */
+    public int [] getEccentricities() {
+        return this.eccentricities.clone();
+    }
+
+    /**
+     * Radius.
+     *
+     * @return Smallest eccentricity, {@code 0} for empty structures
+     */
+    public int getRadius() {
+        return Arrays.stream(this.eccentricities).min().orElse(0);
+    }
+
+    /**
+     * Diameter.
+     *
+     * @return Largest eccentricity, see {@link AllPairsShortestPaths#getDiameter()}
+     */
+    public int getDiameter() {
+        return this.distanceHistogram.length - 1;
+    }
+
+    /**
+     * Distance sum of an atom.
+     *
+     * @param atom Atom index
+     * @return Sum of shortest path lengths from the atom to the atoms of its fragment
+     */
+    public long getDistanceSum(int atom) {
+        return this.distanceSums[atom];
+    }
+
+    /**
+     * Distance histogram.
+     *
+     * @return Number of atom pairs at each distance, indexed by distance; element {@code 0} is {@code 0}, length is
+     * diameter + 1. A copy.
+     */
+    public long [] getDistanceHistogram() {
+        return this.distanceHistogram.clone();
+    }
+
+    /**
+     * Fragment count.
+     *
+     * @return Number of connected fragments
+     */
+    public int getFragmentCount() {
+        return this.fragmentCount;
+    }
+
+    /**
+     * Balaban J index.
+     *
+     * Calculated as {@code m / (mu + 1) * sum(1 / sqrt(s_i * s_j))} over bonds {@code (i, j)}, where {@code m} is the
+     * bond count, {@code mu} the cyclomatic number and {@code s_i} the distance sum of atom {@code i}.
+     *
+     * @return Balaban J index, {@code 0} when there are no bonds
+     */
+    public double getBalabanJ() {
+        return this.balabanJ;
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to precomputed shortest distances written by {@link DistanceStoreWriter}.
+ *
+ * The file is memory mapped in segments by {@link FileChannel#map}, so files larger than the heap (and larger than a
+ * single 2 GiB mapping) are supported; the operating system pages in only the records queried. Lookups use absolute
+ * gets on the mappings: no data is copied and no state changes, so a single instance can be queried by any number of
+ * threads concurrently. Multiple processes can map the same file as well.
+ *
+ * Mappings are released by the garbage collector after the instance becomes unreachable; {@link #close()} closes the
+ * file only.
+ */
+public class DistanceStoreReader implements AutoCloseable {
+
+    /**
+     * Index entries per index mapping: 1 GiB mappings.
+     */
+    private static final int INDEX_SEGMENT_SHIFT = 27;
+
+    /**
+     * Input file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Record segment size exponent.
+     */
+    private final int segmentShift;
+
+    /**
+     * Record mappings; segment {@code k} starts at file offset {@code k << segmentShift}.
+     */
+    private final ByteBuffer [] segments;
+
+    /**
+     * Index mappings; each holds {@code 2^INDEX_SEGMENT_SHIFT} record offsets.
+     */
+    private final ByteBuffer [] indexSegments;
+
+    /**
+     * Molecule count.
+     */
+    private final int moleculeCount;
+
+    /**
+     * Open a store.
+     *
+     * @param path File written by {@link DistanceStoreWriter}
+     * @throws IOException when the file cannot be read or is not a distance store
+     */
+    public DistanceStoreReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final long fileSize = this.channel.size();
+            if (fileSize < DistanceStoreWriter.HEADER_SIZE) {
+                throw new IOException("Not a distance store, too short: " + path);
+            }
+            final ByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    DistanceStoreWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != DistanceStoreWriter.MAGIC) {
+                throw new IOException("Not a distance store: " + path);
+            }
+            if (header.getInt(4) != DistanceStoreWriter.VERSION) {
+                throw new IOException("Unsupported distance store version " + header.getInt(4) + ": " + path);
+            }
+            this.segmentShift = header.getInt(8);
+            final long indexOffset = header.getLong(16);
+            final long count = header.getLong(24);
+            if (this.segmentShift < 6 || this.segmentShift > DistanceStoreWriter.DEFAULT_SEGMENT_SHIFT
+                    || indexOffset < DistanceStoreWriter.HEADER_SIZE || count < 0 || count > Integer.MAX_VALUE
+                    || indexOffset + 8 * count > fileSize) {
+                throw new IOException("Corrupt or incomplete distance store: " + path);
+            }
+            this.moleculeCount = (int) count;
+
+            final long segmentSize = 1L << this.segmentShift;
+            this.segments = new ByteBuffer[(int) ((indexOffset + segmentSize - 1) >>> this.segmentShift)];
+            for (int k = 0; k < this.segments.length; k++) {
+                final long start = (long) k << this.segmentShift;
+                this.segments[k] = map(start, Math.min(segmentSize, indexOffset - start));
+            }
+
+            final long indexSegmentEntries = 1L << INDEX_SEGMENT_SHIFT;
+            this.indexSegments = new ByteBuffer[(int) ((count + indexSegmentEntries - 1) >>> INDEX_SEGMENT_SHIFT)];
+            for (int k = 0; k < this.indexSegments.length; k++) {
+                final long first = (long) k << INDEX_SEGMENT_SHIFT;
+                this.indexSegments[k] = map(indexOffset + 8 * first, 8 * Math.min(indexSegmentEntries, count - first));
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map a region of the file read only.
+     *
+     * @param position Start of the region
+     * @param size Size of the region; at most {@link Integer#MAX_VALUE}
+     * @return Little endian mapping
+     * @throws IOException when mapping fails
+     */
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        final MappedByteBuffer ret = this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        ret.order(ByteOrder.LITTLE_ENDIAN);
+        return ret;
+    }
+
+    /**
+     * Molecule count.
+     *
+     * @return Number of molecules in the store
+     */
+    public int getMoleculeCount() {
+        return this.moleculeCount;
+    }
+
+    /**
+     * File offset of a record.
+     *
+     * @param molId Molecule id
+     * @return Offset
+     * @throws IndexOutOfBoundsException when the molecule id is invalid
+     */
+    private long recordOffset(int molId) throws IndexOutOfBoundsException {
+        if (molId < 0 || molId >= this.moleculeCount) {
+            throw new IndexOutOfBoundsException("Invalid molecule id " + molId + ", molecule count: "
+                    + this.moleculeCount);
+        }
+        final int mask = (1 << INDEX_SEGMENT_SHIFT) - 1;
+        return this.indexSegments[molId >>> INDEX_SEGMENT_SHIFT].getLong(8 * (molId & mask));
+    }
+
+    /**
+     * Atom count of a molecule.
+     *
+     * @param molId Molecule id
+     * @return Atom count
+     * @throws IndexOutOfBoundsException when the molecule id is invalid
+     */
+    public int getAtomCount(int molId) throws IndexOutOfBoundsException {
+        final long offset = recordOffset(molId);
+        return this.segments[(int) (offset >>> this.segmentShift)].getInt(segmentPosition(offset));
+    }
+
+    /**
+     * Position within a segment.
+     *
+     * @param offset File offset
+     * @return Position within the segment containing the offset
+     */
+    private int segmentPosition(long offset) {
+        return (int) (offset & ((1L << this.segmentShift) - 1));
+    }
+
+    /**
+     * Stored distance.
+     *
+     * @param molId Molecule id
+     * @param i Atom index
+     * @param j Atom index
+     * @return Stored value, {@link DistanceStoreWriter#NO_PATH} for disconnected pairs
+     * @throws IndexOutOfBoundsException when the molecule id or an atom index is invalid
+     */
+    private int get(int molId, int i, int j) throws IndexOutOfBoundsException {
+        final long offset = recordOffset(molId);
+        final ByteBuffer segment = this.segments[(int) (offset >>> this.segmentShift)];
+        final int position = segmentPosition(offset);
+        final int atomCount = segment.getInt(position);
+        if (i < 0 || i >= atomCount || j < 0 || j >= atomCount) {
+            throw new IndexOutOfBoundsException("Invalid atom pair " + i + ", " + j + " for molecule " + molId
+                    + ", atom count: " + atomCount);
+        }
+        if (i == j) {
+            return 0;
+        }
+        final int row = Math.max(i, j);
+        final int column = Math.min(i, j);
+        return segment.get(position + 4 + (int) ((long) row * (row - 1) / 2) + column) & 0xFF;
+    }
+
+    /**
+     * Check if a path exists between two atoms.
+     *
+     * @param molId Molecule id
+     * @param i Atom index
+     * @param j Atom index
+     * @return {@code true} when the specified atoms are connected
+     * @throws IndexOutOfBoundsException when the molecule id or an atom index is invalid
+     */
+    public boolean pathExists(int molId, int i, int j) throws IndexOutOfBoundsException {
+        return get(molId, i, j) != DistanceStoreWriter.NO_PATH;
+    }
+
+    /**
+     * Get shortest path length between two atoms.
+     *
+     * @param molId Molecule id
+     * @param i Atom index
+     * @param j Atom index
+     * @return Length of the shortest path
+     * @throws IndexOutOfBoundsException when the molecule id or an atom index is invalid
+     * @throws IllegalArgumentException when no path exists
+     */
+    public int distance(int molId, int i, int j) throws IndexOutOfBoundsException, IllegalArgumentException {
+        final int ret = get(molId, i, j);
+        if (ret == DistanceStoreWriter.NO_PATH) {
+            throw new IllegalArgumentException("No path found between atoms " + i + " and " + j + " of molecule "
+                    + molId);
+        }
+        return ret;
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException when closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes precomputed all pairs shortest distances of a structure library into a file.
+ *
+ * File layout, all values little endian:
+ * <ul>
+ *     <li>Header of {@link #HEADER_SIZE} bytes: magic {@link #MAGIC}, format version {@link #VERSION}, segment size
+ *     exponent, reserved int, index offset (long), molecule count (long).</li>
+ *     <li>Records, one per molecule in the order added: atom count (int) followed by the lower triangular distance
+ *     matrix as unsigned bytes, row by row; {@link #NO_PATH} marks disconnected atom pairs. No record crosses a
+ *     segment boundary, the writer pads with zeros where necessary.</li>
+ *     <li>Index at the index offset: file offset of each record (long).</li>
+ * </ul>
+ *
+ * Segments let readers map files of any size with multiple mappings, see {@link DistanceStoreReader}. Distances are
+ * calculated by breadth first search from every atom into a reused buffer; memory use is bounded by the largest
+ * record and the index of 8 bytes per molecule. Instances are not thread safe.
+ */
+public class DistanceStoreWriter implements AutoCloseable {
+
+    /**
+     * File magic, {@code "SPDS"} in file byte order.
+     */
+    static final int MAGIC = 0x53445053;
+
+    /**
+     * Format version.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Header size in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Stored distance marking disconnected atom pairs.
+     */
+    static final int NO_PATH = 0xFF;
+
+    /**
+     * Largest distance which can be stored.
+     */
+    public static final int MAX_DISTANCE = NO_PATH - 1;
+
+    /**
+     * Default segment size exponent: 1 GiB segments.
+     */
+    static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    /**
+     * Number of index entries written at once.
+     */
+    private static final int INDEX_CHUNK = 8192;
+
+    /**
+     * Flag to mark unreached atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Output file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Segment size exponent.
+     */
+    private final int segmentShift;
+
+    /**
+     * Record offsets written so far.
+     */
+    private long [] offsets = new long[1024];
+
+    /**
+     * Number of records written.
+     */
+    private int count;
+
+    /**
+     * Write position in the file.
+     */
+    private long position = HEADER_SIZE;
+
+    /**
+     * Record buffer, reused between records.
+     */
+    private ByteBuffer record = ByteBuffer.allocate(0);
+
+    /**
+     * Create a store, overwriting existing files.
+     *
+     * @param path File to write
+     * @throws IOException when the file cannot be opened
+     */
+    public DistanceStoreWriter(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Create a store.
+     *
+     * @param path File to write
+     * @param segmentShift Segment size exponent; segments of {@code 2^segmentShift} bytes
+     * @throws IOException when the file cannot be opened
+     */
+    DistanceStoreWriter(Path path, int segmentShift) throws IOException {
+        if (segmentShift < 6 || segmentShift > DEFAULT_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("Invalid segment shift " + segmentShift);
+        }
+        this.segmentShift = segmentShift;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Add a structure.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @return Molecule id: the zero based index of the structure in the store
+     * @throws IOException when writing fails
+     * @throws IllegalArgumentException when the structure is too large or a distance exceeds {@link #MAX_DISTANCE}
+     */
+    public int add(int [][] ctab) throws IOException, IllegalArgumentException {
+        return add(CompactGraph.of(ctab));
+    }
+
+    /**
+     * Add a structure.
+     *
+     * @param molecule Molecule
+     * @return Molecule id: the zero based index of the structure in the store
+     * @throws IOException when writing fails
+     * @throws IllegalArgumentException when the structure is too large or a distance exceeds {@link #MAX_DISTANCE}
+     */
+    public int add(Molecule molecule) throws IOException, IllegalArgumentException {
+        return add(CompactGraph.of(molecule));
+    }
+
+    /**
+     * Add a structure.
+     *
+     * @param graph Input structure
+     * @return Molecule id: the zero based index of the structure in the store
+     * @throws IOException when writing fails
+     * @throws IllegalArgumentException when the structure is too large or a distance exceeds {@link #MAX_DISTANCE}
+     */
+    public int add(CompactGraph graph) throws IOException, IllegalArgumentException {
+        final int atomCount = graph.getAtomCount();
+        final long size = recordSize(atomCount);
+        final long segmentSize = 1L << this.segmentShift;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Too many atoms for distance store: " + atomCount);
+        }
+        if (this.count == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many molecules for distance store");
+        }
+
+        fill(graph);
+
+        // pad to the next segment when the record would cross a segment boundary
+        final long segmentEnd = ((this.position >>> this.segmentShift) + 1) << this.segmentShift;
+        if (this.position + size > segmentEnd) {
+            this.position = segmentEnd;
+        }
+
+        writeFully(this.record, this.position);
+        if (this.count == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+        }
+        this.offsets[this.count] = this.position;
+        this.position += size;
+        return this.count++;
+    }
+
+    /**
+     * Number of structures added.
+     *
+     * @return Molecule count
+     */
+    public int getMoleculeCount() {
+        return this.count;
+    }
+
+    /**
+     * Record size.
+     *
+     * @param atomCount Atom count
+     * @return Size of the record in bytes
+     */
+    static long recordSize(int atomCount) {
+        return 4 + (long) atomCount * (atomCount - 1) / 2;
+    }
+
+    /**
+     * Fill the record buffer.
+     *
+     * @param graph Input structure
+     * @throws IllegalArgumentException when a distance exceeds {@link #MAX_DISTANCE}
+     */
+    private void fill(CompactGraph graph) throws IllegalArgumentException {
+        final int atomCount = graph.getAtomCount();
+        final int size = (int) recordSize(atomCount);
+        if (this.record.capacity() < size) {
+            this.record = ByteBuffer.allocate(Math.max(size, 2 * this.record.capacity()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.record.clear();
+        this.record.putInt(atomCount);
+
+        final byte [] triangle = this.record.array();
+        final int base = this.record.arrayOffset() + 4;
+        Arrays.fill(triangle, base, base + size - 4, (byte) NO_PATH);
+
+        final int [] distances = new int[atomCount];
+        final int [] queue = new int[atomCount];
+        Arrays.fill(distances, UNKNOWN);
+        for (int i = 1; i < atomCount; i++) {
+            final int reached = FindShortestPaths.bfs(graph, i, distances, queue, null);
+            final int rowStart = base + (int) ((long) i * (i - 1) / 2);
+            for (int q = 0; q < reached; q++) {
+                final int j = queue[q];
+                final int d = distances[j];
+                distances[j] = UNKNOWN;
+                if (j < i) {
+                    if (d > MAX_DISTANCE) {
+                        throw new IllegalArgumentException("Too large distance for distance store: " + d);
+                    }
+                    triangle[rowStart + j] = (byte) d;
+                }
+            }
+        }
+        this.record.limit(size);
+        this.record.position(0);
+    }
+
+    /**
+     * Write a buffer at a file position.
+     *
+     * @param buffer Buffer to write from its position to its limit
+     * @param at File position
+     * @throws IOException when writing fails
+     */
+    private void writeFully(ByteBuffer buffer, long at) throws IOException {
+        long p = at;
+        while (buffer.hasRemaining()) {
+            p += this.channel.write(buffer, p);
+        }
+    }
+
+    /**
+     * Write the index and the header, then close the file.
+     *
+     * @throws IOException when writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            final ByteBuffer index = ByteBuffer.allocate(8 * INDEX_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            for (int first = 0; first < this.count; first += INDEX_CHUNK) {
+                final int length = Math.min(INDEX_CHUNK, this.count - first);
+                index.clear();
+                index.asLongBuffer().put(this.offsets, first, length);
+                index.limit(8 * length);
+                writeFully(index, this.position + 8L * first);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(this.segmentShift).putInt(0);
+            header.putLong(this.position).putLong(this.count);
+            header.flip();
+            writeFully(header, 0);
+        } finally {
+            this.channel.close();
+        }
+    }
+
+}
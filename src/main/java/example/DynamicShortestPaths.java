@@ -0,0 +1,528 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+
+/**
+ * Shortest distances from a set of central atoms maintained under bond additions and removals.
+ *
+ * After each change only the atoms whose distance changes are re-labeled:
+ * <ul>
+ *   <li>Bond addition propagates distance decreases breadth first from the closer end of the new bond.</li>
+ *   <li>Bond removal first collects the affected atoms: those having no shortest path avoiding the removed bond.
+ *       Their distances are then recomputed from their unaffected neighbors in increasing distance order.</li>
+ * </ul>
+ * Cost of an update is proportional to the number of re-labeled atoms and their bonds (plus a sort of the affected
+ * atoms on removal) for each central atom, independent of the structure size. Use {@link #allPairs(CompactGraph)} to
+ * maintain all pairs distances.
+ *
+ * Instances are not thread safe.
+ */
+public class DynamicShortestPaths {
+    /**
+     * Flag to mark disconnected atoms and non central atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Neighbor lists; only the first {@link #degrees} elements of each row are used.
+     */
+    private final int [][] neighbors;
+
+    /**
+     * Number of neighbors of each atom.
+     */
+    private final int [] degrees;
+
+    /**
+     * Central atoms.
+     */
+    private final int [] sources;
+
+    /**
+     * Index of each atom in {@link #sources}; {@link #UNKNOWN} for non central atoms.
+     */
+    private final int [] sourceIndex;
+
+    /**
+     * Shortest distances from each central atom; {@link #UNKNOWN} for disconnected atoms.
+     */
+    private final int [][] distances;
+
+    /**
+     * Scratch queue.
+     */
+    private final int [] queue;
+
+    /**
+     * Affected atoms of the current removal; {@code (tentative distance << 32) | atom} when sorting.
+     */
+    private final long [] affected;
+
+    /**
+     * Marks of atoms visited in the current update; valid where equal to {@link #epoch}.
+     */
+    private final int [] marks;
+
+    /**
+     * Marks of affected atoms in the current update; valid where equal to {@link #epoch}.
+     */
+    private final int [] affectedMarks;
+
+    /**
+     * Current update epoch.
+     */
+    private int epoch;
+
+    /**
+     * Number of distances changed by the last update.
+     */
+    private long lastRelabeledCount;
+
+    /**
+     * Construct.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}; copied
+     * @param sources Central atoms
+     * @throws IllegalArgumentException when a central atom is invalid or duplicated
+     */
+    public DynamicShortestPaths(int [][] ctab, int... sources) throws IllegalArgumentException {
+        this(CompactGraph.of(ctab), sources);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure; copied
+     * @param sources Central atoms
+     * @throws IllegalArgumentException when a central atom is invalid or duplicated
+     */
+    public DynamicShortestPaths(CompactGraph graph, int... sources) throws IllegalArgumentException {
+        final int atomCount = graph.getAtomCount();
+
+        this.neighbors = graph.toCtab();
+        this.degrees = new int[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            this.degrees[i] = this.neighbors[i].length;
+        }
+
+        this.sources = sources.clone();
+        this.sourceIndex = new int[atomCount];
+        Arrays.fill(this.sourceIndex, UNKNOWN);
+        for (int k = 0; k < this.sources.length; k++) {
+            final int a1 = this.sources[k];
+            if (a1 < 0 || a1 >= atomCount || this.sourceIndex[a1] != UNKNOWN) {
+                throw new IllegalArgumentException("Invalid or duplicate central atom " + a1);
+            }
+            this.sourceIndex[a1] = k;
+        }
+
+        this.queue = new int[atomCount];
+        this.affected = new long[atomCount];
+        this.marks = new int[atomCount];
+        this.affectedMarks = new int[atomCount];
+
+        this.distances = new int[this.sources.length][atomCount];
+        for (int k = 0; k < this.sources.length; k++) {
+            Arrays.fill(this.distances[k], UNKNOWN);
+            FindShortestPaths.bfs(graph, this.sources[k], this.distances[k], this.queue, null);
+        }
+    }
+
+    /**
+     * Construct maintaining shortest distances between all atom pairs.
+     *
+     * Uses {@code 4 n^2} bytes for {@code n} atoms.
+     *
+     * @param graph Input structure; copied
+     * @return New instance with all atoms as central atoms
+     */
+    public static DynamicShortestPaths allPairs(CompactGraph graph) {
+        final int [] sources = new int[graph.getAtomCount()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = i;
+        }
+        return new DynamicShortestPaths(graph, sources);
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.degrees.length;
+    }
+
+    /**
+     * Central atoms.
+     *
+     * @return Indices of central atoms
+     */
+    public int [] getSources() {
+        return this.sources.clone();
+    }
+
+    /**
+     * Check if a bond exists.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @return {@code true} when the atoms are bonded
+     */
+    public boolean hasBond(int i, int j) {
+        return slotOf(i, j) != UNKNOWN;
+    }
+
+    /**
+     * Position of a neighbor in a neighbor list.
+     *
+     * @param i Atom index
+     * @param j Neighbor atom index
+     * @return Index of {@code j} in the neighbor list of {@code i}, {@link #UNKNOWN} when not bonded
+     */
+    private int slotOf(int i, int j) {
+        for (int s = 0; s < this.degrees[i]; s++) {
+            if (this.neighbors[i][s] == j) {
+                return s;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Check atom indices of a bond.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @throws IllegalArgumentException when an atom index is invalid or the two are the same
+     */
+    private void checkBondAtoms(int i, int j) throws IllegalArgumentException {
+        if (i < 0 || i >= getAtomCount() || j < 0 || j >= getAtomCount() || i == j) {
+            throw new IllegalArgumentException("Invalid bond " + i + " - " + j);
+        }
+    }
+
+    /**
+     * Start a new update.
+     */
+    private void nextEpoch() {
+        if (this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.marks, 0);
+            Arrays.fill(this.affectedMarks, 0);
+            this.epoch = 0;
+        }
+        this.epoch++;
+    }
+
+    /**
+     * Add a bond and update distances.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @throws IllegalArgumentException when an atom index is invalid or the atoms are already bonded
+     */
+    public void addBond(int i, int j) throws IllegalArgumentException {
+        checkBondAtoms(i, j);
+        if (hasBond(i, j)) {
+            throw new IllegalArgumentException("Bond already exists: " + i + " - " + j);
+        }
+        appendNeighbor(i, j);
+        appendNeighbor(j, i);
+
+        this.lastRelabeledCount = 0;
+        for (int [] d : this.distances) {
+            if (d[i] == UNKNOWN && d[j] == UNKNOWN) {
+                continue;
+            }
+            // near end is the one closer to the central atom
+            final int near = d[j] == UNKNOWN || (d[i] != UNKNOWN && d[i] < d[j]) ? i : j;
+            final int far = near == i ? j : i;
+            if (d[far] == UNKNOWN || d[far] > d[near] + 1) {
+                d[far] = d[near] + 1;
+                propagateDecrease(d, far);
+            }
+        }
+    }
+
+    /**
+     * Append to a neighbor list.
+     *
+     * @param i Atom index
+     * @param j Neighbor atom index
+     */
+    private void appendNeighbor(int i, int j) {
+        if (this.degrees[i] == this.neighbors[i].length) {
+            this.neighbors[i] = Arrays.copyOf(this.neighbors[i], Math.max(4, 2 * this.degrees[i]));
+        }
+        this.neighbors[i][this.degrees[i]++] = j;
+    }
+
+    /**
+     * Propagate a distance decrease breadth first.
+     *
+     * @param d Distances to update
+     * @param start Atom whose distance was decreased
+     */
+    private void propagateDecrease(int [] d, int start) {
+        int head = 0;
+        int tail = 0;
+        this.queue[tail++] = start;
+        while (head < tail) {
+            final int u = this.queue[head++];
+            final int nextDistance = d[u] + 1;
+            for (int s = 0; s < this.degrees[u]; s++) {
+                final int n = this.neighbors[u][s];
+                if (d[n] == UNKNOWN || d[n] > nextDistance) {
+                    d[n] = nextDistance;
+                    this.queue[tail++] = n;
+                }
+            }
+        }
+        this.lastRelabeledCount += tail;
+    }
+
+    /**
+     * Remove a bond and update distances.
+     *
+     * @param i Atom index
+     * @param j Atom index
+     * @throws IllegalArgumentException when an atom index is invalid or the atoms are not bonded
+     */
+    public void removeBond(int i, int j) throws IllegalArgumentException {
+        checkBondAtoms(i, j);
+        if (!hasBond(i, j)) {
+            throw new IllegalArgumentException("No such bond: " + i + " - " + j);
+        }
+        removeNeighbor(i, j);
+        removeNeighbor(j, i);
+
+        this.lastRelabeledCount = 0;
+        for (int [] d : this.distances) {
+            // only a bond between successive layers can be on a shortest path
+            if (d[i] != UNKNOWN && d[j] != UNKNOWN && Math.abs(d[i] - d[j]) == 1) {
+                repairAfterRemoval(d, d[i] < d[j] ? j : i);
+            }
+        }
+    }
+
+    /**
+     * Remove from a neighbor list; the last neighbor is moved to the freed position.
+     *
+     * @param i Atom index
+     * @param j Neighbor atom index
+     */
+    private void removeNeighbor(int i, int j) {
+        final int slot = slotOf(i, j);
+        this.neighbors[i][slot] = this.neighbors[i][--this.degrees[i]];
+    }
+
+    /**
+     * Check if an atom has a predecessor which is not affected by the current removal.
+     *
+     * @param d Distances
+     * @param u Atom index
+     * @return {@code true} when a shortest path to {@code u} avoids the affected atoms
+     */
+    private boolean hasUnaffectedPredecessor(int [] d, int u) {
+        final int prevDistance = d[u] - 1;
+        for (int s = 0; s < this.degrees[u]; s++) {
+            final int n = this.neighbors[u][s];
+            if (d[n] == prevDistance && this.affectedMarks[n] != this.epoch) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Re-label atoms after removing a bond between successive layers.
+     *
+     * @param d Distances to update
+     * @param far Farther end of the removed bond
+     */
+    private void repairAfterRemoval(int [] d, int far) {
+        nextEpoch();
+        final int epoch = this.epoch;
+
+        // collect affected atoms layer by layer: atoms having no predecessor outside the affected set
+        int head = 0;
+        int tail = 0;
+        int affectedCount = 0;
+        this.queue[tail++] = far;
+        this.marks[far] = epoch;
+        while (head < tail) {
+            final int u = this.queue[head++];
+            if (hasUnaffectedPredecessor(d, u)) {
+                continue;
+            }
+            this.affectedMarks[u] = epoch;
+            this.affected[affectedCount++] = u;
+            for (int s = 0; s < this.degrees[u]; s++) {
+                final int n = this.neighbors[u][s];
+                if (d[n] == d[u] + 1 && this.marks[n] != epoch) {
+                    this.marks[n] = epoch;
+                    this.queue[tail++] = n;
+                }
+            }
+        }
+        if (affectedCount == 0) {
+            return;
+        }
+
+        // tentative distances through unaffected neighbors
+        int seedCount = 0;
+        for (int a = 0; a < affectedCount; a++) {
+            final int u = (int) this.affected[a];
+            int best = UNKNOWN;
+            for (int s = 0; s < this.degrees[u]; s++) {
+                final int n = this.neighbors[u][s];
+                if (this.affectedMarks[n] != epoch && d[n] != UNKNOWN && (best == UNKNOWN || d[n] + 1 < best)) {
+                    best = d[n] + 1;
+                }
+            }
+            this.queue[a] = u;
+            if (best != UNKNOWN) {
+                this.affected[seedCount++] = ((long) best << 32) | u;
+            }
+        }
+        for (int a = 0; a < affectedCount; a++) {
+            d[this.queue[a]] = UNKNOWN;
+        }
+        for (int a = 0; a < seedCount; a++) {
+            d[(int) this.affected[a]] = (int) (this.affected[a] >>> 32);
+        }
+        this.lastRelabeledCount += affectedCount;
+        Arrays.sort(this.affected, 0, seedCount);
+
+        // settle affected atoms in non decreasing distance order, merging the sorted seeds with a FIFO of improved
+        // labels; settled atoms are marked by -epoch
+        head = 0;
+        tail = 0;
+        int seed = 0;
+        while (seed < seedCount || head < tail) {
+            final int u;
+            if (head < tail && (seed == seedCount || d[this.queue[head]] <= (int) (this.affected[seed] >>> 32))) {
+                u = this.queue[head++];
+            } else {
+                u = (int) this.affected[seed];
+                final int key = (int) (this.affected[seed++] >>> 32);
+                if (d[u] != key) {
+                    // label improved since; queued in the FIFO
+                    continue;
+                }
+            }
+            if (this.marks[u] == -epoch) {
+                continue;
+            }
+            this.marks[u] = -epoch;
+
+            final int nextDistance = d[u] + 1;
+            for (int s = 0; s < this.degrees[u]; s++) {
+                final int n = this.neighbors[u][s];
+                if (this.affectedMarks[n] == epoch && this.marks[n] != -epoch
+                        && (d[n] == UNKNOWN || d[n] > nextDistance)) {
+                    d[n] = nextDistance;
+                    this.queue[tail++] = n;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of distances changed by the last update.
+     *
+     * @return Sum of re-labeled atoms over all central atoms by the last {@link #addBond(int, int)} or
+     * {@link #removeBond(int, int)}
+     */
+    long getLastRelabeledCount() {
+        return this.lastRelabeledCount;
+    }
+
+    /**
+     * Distances from a central atom.
+     *
+     * @param a1 Central atom
+     * @return Distance row
+     * @throws IllegalArgumentException when not a central atom
+     */
+    private int [] row(int a1) throws IllegalArgumentException {
+        if (a1 < 0 || a1 >= getAtomCount() || this.sourceIndex[a1] == UNKNOWN) {
+            throw new IllegalArgumentException("Not a central atom: " + a1);
+        }
+        return this.distances[this.sourceIndex[a1]];
+    }
+
+    /**
+     * Check if a path exists.
+     *
+     * @param a1 Central atom
+     * @param a2 Other atom
+     * @return {@code true} when the atoms are connected
+     * @throws IllegalArgumentException when {@code a1} is not a central atom
+     */
+    public boolean isPathExists(int a1, int a2) throws IllegalArgumentException {
+        return row(a1)[a2] != UNKNOWN;
+    }
+
+    /**
+     * Get shortest path length.
+     *
+     * @param a1 Central atom
+     * @param a2 Other atom
+     * @return Length of the shortest path
+     * @throws IllegalArgumentException when {@code a1} is not a central atom or no path exists
+     */
+    public int getShortestPathLength(int a1, int a2) throws IllegalArgumentException {
+        final int d = row(a1)[a2];
+        if (d == UNKNOWN) {
+            throw new IllegalArgumentException("No path found between atoms " + a1 + " and " + a2);
+        }
+        return d;
+    }
+
+    /**
+     * Current structure.
+     *
+     * @return Compact representation of the current bonds
+     */
+    public CompactGraph toGraph() {
+        final int [][] ctab = new int[getAtomCount()][];
+        for (int i = 0; i < ctab.length; i++) {
+            ctab[i] = Arrays.copyOf(this.neighbors[i], this.degrees[i]);
+        }
+        return CompactGraph.of(ctab);
+    }
+
+    /**
+     * Shortest paths from a central atom in the current structure.
+     *
+     * The returned instance is a snapshot backed by the maintained distances; no shortest path search is made. It is
+     * not affected by subsequent updates.
+     *
+     * @param a1 Central atom
+     * @return Shortest paths from the specified atom
+     * @throws IllegalArgumentException when {@code a1} is not a central atom
+     */
+    public FindShortestPaths getShortestPathsFrom(int a1) throws IllegalArgumentException {
+        return new FindShortestPaths(toGraph(), a1, row(a1).clone());
+    }
+
+}
@@ -24,11 +24,18 @@ import com.google.common.collect.Iterators;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Find shortest paths from a central atom.
  *
- * Note that this is a naive implementation having O(n^2) scaling.
+ * Shortest distances are labeled by breadth first search by default, scaling as O(n + m). The original naive
+ * implementation having O(n^2) scaling is still available, see {@link Algorithm#SWEEP}.
  *
  * @author Gabor Imre
  */
@@ -49,46 +56,285 @@ public class FindShortestPaths {
     private final int [] shortestDistanceFromA1;
 
     /**
-     * CTAB of the input structure.
+     * Number of shortest paths from the central atom, saturated at {@link Long#MAX_VALUE}.
+     *
+     * Calculated during {@link Algorithm#BFS} labeling, otherwise lazily on first use.
      */
-    private final int [][] ctab;
+    private long [] shortestPathCounts;
 
     /**
-     * Construct.
+     * Shortest path predecessor DAG when built, see {@link #getShortestPathDag()}.
+     */
+    private ShortestPathDag shortestPathDag;
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Predecessor candidates of each atom.
+     *
+     * Refers to the neighbor lists of {@link #graph}, or to the predecessor lists of {@link #shortestPathDag} once
+     * built. In the former case candidates must be filtered by distance. Replaced as a whole when the DAG is built;
+     * enumerations keep the instance they started with, since their choice indices refer to it.
+     */
+    private Choices choices;
+
+    /**
+     * Predecessor candidate lists; immutable.
+     */
+    private static final class Choices {
+        /**
+         * Offsets of the candidates of each atom in {@link #atoms}.
+         */
+        private final int [] offsets;
+
+        /**
+         * Concatenated candidate lists.
+         */
+        private final int [] atoms;
+
+        /**
+         * Construct.
+         *
+         * @param offsets Offsets of the candidates of each atom
+         * @param atoms Concatenated candidate lists
+         */
+        private Choices(int [] offsets, int [] atoms) {
+            this.offsets = offsets;
+            this.atoms = atoms;
+        }
+
+        /**
+         * First choice index when looking for the predecessors of an atom.
+         *
+         * @param atom Atom index
+         * @return First choice index
+         */
+        private int first(int atom) {
+            return this.offsets[atom];
+        }
+
+        /**
+         * End (exclusive) choice index when looking for the predecessors of an atom.
+         *
+         * @param atom Atom index
+         * @return End choice index
+         */
+        private int end(int atom) {
+            return this.offsets[atom + 1];
+        }
+
+        /**
+         * Predecessor candidate.
+         *
+         * @param choice Choice index, see {@link #first(int)}
+         * @return Candidate atom index
+         */
+        private int atom(int choice) {
+            return this.atoms[choice];
+        }
+    }
+
+    /**
+     * Algorithms available for labeling shortest distances from the central atom.
+     */
+    public enum Algorithm {
+        /**
+         * Naive implementation: sweep through all atoms repeatedly until no update found. Scales as O(n^2) in the worst
+         * case (long chains).
+         */
+        SWEEP,
+
+        /**
+         * Queue based breadth first search visiting each atom and bond once. Scales as O(n + m).
+         */
+        BFS
+    }
+
+    /**
+     * Construct using {@link Algorithm#BFS}.
+     *
+     * The connection table is copied into a new {@link CompactGraph} on each call: an O(n + m) conversion on top of the
+     * O(n + m) search. When searching from multiple central atoms convert it once and use
+     * {@link #FindShortestPaths(CompactGraph, int)}.
      *
-     * @param ctab Connection table, see {@link Molecule#getCtab()}. No defensive copy is made, <b>DO NOT MODIFY</b>
-     * after construction
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
      * @param a1 Atom index 1
      */
     public FindShortestPaths(int [][] ctab, int a1) {
+        this(CompactGraph.of(ctab), a1, Algorithm.BFS);
+    }
+
+    /**
+     * Construct.
+     *
+     * The connection table is copied into a new {@link CompactGraph}, see {@link #FindShortestPaths(int[][], int)}.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @param a1 Atom index 1
+     * @param algorithm Algorithm used to label shortest distances
+     */
+    public FindShortestPaths(int [][] ctab, int a1, Algorithm algorithm) {
+        this(CompactGraph.of(ctab), a1, algorithm);
+    }
+
+    /**
+     * Construct using {@link Algorithm#BFS}.
+     *
+     * @param graph Input structure
+     * @param a1 Atom index 1
+     */
+    public FindShortestPaths(CompactGraph graph, int a1) {
+        this(graph, a1, Algorithm.BFS);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     * @param a1 Atom index 1
+     * @param algorithm Algorithm used to label shortest distances
+     */
+    public FindShortestPaths(CompactGraph graph, int a1, Algorithm algorithm) {
         this.a1 = a1;
-        this.ctab = ctab;
+        this.graph = graph;
+        this.choices = new Choices(graph.offsets, graph.neighbors);
+
+        final int atomCount = graph.getAtomCount();
 
-        final int atomCount = ctab.length;
+        final ShortestPathsMetrics metrics = ShortestPathsMetrics.getEnabled();
+        final long start = metrics != null ? System.nanoTime() : 0;
 
         this.shortestDistanceFromA1 = new int[atomCount];
         Arrays.fill(this.shortestDistanceFromA1, UNKNOWN);
 
-        this.shortestDistanceFromA1[a1] = 0;
+        switch (algorithm) {
+            case SWEEP:
+                sweep(graph, a1, this.shortestDistanceFromA1, metrics);
+                break;
+            case BFS:
+                this.shortestPathCounts = new long[atomCount];
+                final int [] queue = new int[atomCount];
+                final int reached = bfs(graph, a1, this.shortestDistanceFromA1, queue, this.shortestPathCounts);
+                if (metrics != null) {
+                    // the search examines the neighbor list of every reached atom once
+                    long visits = 0;
+                    for (int q = 0; q < reached; q++) {
+                        visits += graph.getDegree(queue[q]);
+                    }
+                    metrics.add(ShortestPathsMetrics.Counter.NEIGHBOR_VISITS, visits);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm " + algorithm);
+        }
+
+        if (metrics != null) {
+            metrics.add(ShortestPathsMetrics.Counter.SEARCHES, 1);
+            metrics.record(ShortestPathsMetrics.Operation.SEARCH, atomCount, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Construct from precomputed shortest distances.
+     *
+     * @param graph Input structure
+     * @param a1 Atom index 1
+     * @param shortestDistanceFromA1 Shortest distances from {@code a1}, {@link #UNKNOWN} for disconnected atoms. No
+     * defensive copy is made, <b>DO NOT MODIFY</b> after construction
+     */
+    FindShortestPaths(CompactGraph graph, int a1, int [] shortestDistanceFromA1) {
+        this.a1 = a1;
+        this.graph = graph;
+        this.choices = new Choices(graph.offsets, graph.neighbors);
+        this.shortestDistanceFromA1 = shortestDistanceFromA1;
+    }
+
+    /**
+     * Find shortest paths between a single pair of atoms.
+     *
+     * Bidirectional search is used which stops when the frontiers from the two atoms meet. Use this when only a few
+     * atom pairs are queried: the cost depends on the neighborhoods of the two atoms and not on the whole structure.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}. Converted to {@link CompactGraph}; when querying
+     * multiple pairs convert it once and use {@link #pairQuery(CompactGraph, int, int)}
+     * @param a1 Atom index 1
+     * @param a2 Atom index 2
+     * @return Shortest path length and paths between the two atoms
+     */
+    public static PairShortestPaths pairQuery(int [][] ctab, int a1, int a2) {
+        return pairQuery(CompactGraph.of(ctab), a1, a2);
+    }
+
+    /**
+     * Find shortest paths between a single pair of atoms.
+     *
+     * See {@link #pairQuery(int[][], int, int)}.
+     *
+     * @param graph Input structure
+     * @param a1 Atom index 1
+     * @param a2 Atom index 2
+     * @return Shortest path length and paths between the two atoms
+     */
+    public static PairShortestPaths pairQuery(CompactGraph graph, int a1, int a2) {
+        return new PairShortestPaths(graph, a1, a2, null);
+    }
+
+    /**
+     * Find shortest paths between a single pair of atoms using caller held search state.
+     *
+     * The default per thread scratch is retained only for structures up to {@link PairShortestPaths#MAX_RETAINED_ATOMS}
+     * atoms; use this to query larger structures without allocating per query.
+     *
+     * @param graph Input structure
+     * @param a1 Atom index 1
+     * @param a2 Atom index 2
+     * @param scratch Search state; reusable once this returns
+     * @return Shortest path length and paths between the two atoms
+     */
+    public static PairShortestPaths pairQuery(CompactGraph graph, int a1, int a2, PairShortestPaths.Scratch scratch) {
+        return new PairShortestPaths(graph, a1, a2, scratch);
+    }
+
+    /**
+     * Label shortest distances by repeated sweeps.
+     *
+     * @param graph Input structure
+     * @param a1 Central atom
+     * @param distances Distances to fill; expected to be filled with {@link #UNKNOWN}
+     * @param metrics Metrics to add sweep and neighbor visit counts to, or {@code null}
+     */
+    private static void sweep(CompactGraph graph, int a1, int [] distances, ShortestPathsMetrics metrics) {
+        final int atomCount = graph.getAtomCount();
+        final int [] offsets = graph.offsets;
+        final int [] neighbors = graph.neighbors;
+
+        distances[a1] = 0;
 
+        long sweeps = 0;
+        long visits = 0;
         while (true) {
             boolean updateFound = false;
+            sweeps++;
 
             // run through all atoms for wich we have a shortest path length and update its neighbors
             for (int ai = 0; ai < atomCount; ai++) {
-                if (this.shortestDistanceFromA1[ai] == UNKNOWN) {
+                if (distances[ai] == UNKNOWN) {
                     continue;
                 }
 
-                for (int j = 0; j < ctab[ai].length; j++) {
-                    final int n = ctab[ai][j];
-                    if (this.shortestDistanceFromA1[n] == UNKNOWN) {
+                visits += offsets[ai + 1] - offsets[ai];
+                for (int j = offsets[ai]; j < offsets[ai + 1]; j++) {
+                    final int n = neighbors[j];
+                    if (distances[n] == UNKNOWN) {
                         // we can update neighbor unconditionally
-                        this.shortestDistanceFromA1[n] = this.shortestDistanceFromA1[ai] + 1;
+                        distances[n] = distances[ai] + 1;
                         updateFound = true;
-                    } else if (this.shortestDistanceFromA1[ai] + 1 < this.shortestDistanceFromA1[n]) {
+                    } else if (distances[ai] + 1 < distances[n]) {
                         // a better path found
-                        this.shortestDistanceFromA1[n] = this.shortestDistanceFromA1[ai] + 1;
+                        distances[n] = distances[ai] + 1;
                         updateFound = true;
                     }
                  }
@@ -98,6 +344,73 @@ public class FindShortestPaths {
                 break;
             }
         }
+
+        if (metrics != null) {
+            metrics.add(ShortestPathsMetrics.Counter.SWEEPS, sweeps);
+            metrics.add(ShortestPathsMetrics.Counter.NEIGHBOR_VISITS, visits);
+        }
+    }
+
+    /**
+     * Label shortest distances by breadth first search.
+     *
+     * Every atom is enqueued at most once, so a plain array of atom count length is used as the queue without
+     * wrapping around.
+     *
+     * @param graph Input structure
+     * @param a1 Central atom
+     * @param distances Distances to fill; expected to be filled with {@link #UNKNOWN}
+     * @param queue Scratch array with at least atom count length; contents overwritten
+     * @param counts Shortest path counts to fill, or {@code null} when not needed; contents of unreached atoms are not
+     * touched
+     * @return Number of atoms reached (including the central atom); these are stored in {@code queue} in BFS order
+     */
+    static int bfs(CompactGraph graph, int a1, int [] distances, int [] queue, long [] counts) {
+        final int [] offsets = graph.offsets;
+        final int [] neighbors = graph.neighbors;
+
+        int head = 0;
+        int tail = 0;
+
+        distances[a1] = 0;
+        queue[tail++] = a1;
+        if (counts != null) {
+            counts[a1] = 1;
+        }
+
+        while (head < tail) {
+            final int ai = queue[head++];
+            final int nextDistance = distances[ai] + 1;
+            final int end = offsets[ai + 1];
+
+            for (int j = offsets[ai]; j < end; j++) {
+                final int n = neighbors[j];
+                if (distances[n] == UNKNOWN) {
+                    distances[n] = nextDistance;
+                    queue[tail++] = n;
+                    if (counts != null) {
+                        counts[n] = counts[ai];
+                    }
+                } else if (counts != null && distances[n] == nextDistance) {
+                    // all atoms one step closer are dequeued before n, so counts[ai] is final here
+                    counts[n] = saturatedAdd(counts[n], counts[ai]);
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    /**
+     * Add non negative path counts.
+     *
+     * @param a Path count
+     * @param b Path count
+     * @return Sum saturated at {@link Long#MAX_VALUE}
+     */
+    private static long saturatedAdd(long a, long b) {
+        final long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
     }
 
     /**
@@ -146,14 +459,16 @@ public class FindShortestPaths {
         }
 
         // fill path backwards
+        final Choices choices = this.choices;
         for (int i = ret.length - 2; i >= 0; i--) {
             // fill position i with atom which
             //  - is a neighbor of the next (filled) atom
             //  - and is one step closer to the centrum
             final int lastAtom = ret[i + 1];
             final int nextPathLength = i; // getShortestPathLengthTo(lastAtom) - 1;
-            for (int ni = 0; ni < this.ctab[lastAtom].length; ni++) {
-                final int candidateAtom = this.ctab[lastAtom][ni];
+            final int end = choices.end(lastAtom);
+            for (int ni = choices.first(lastAtom); ni < end; ni++) {
+                final int candidateAtom = choices.atom(ni);
 
                 if (this.shortestDistanceFromA1[candidateAtom] == nextPathLength) {
                     ret[i] = candidateAtom;
@@ -171,33 +486,64 @@ public class FindShortestPaths {
     }
 
     /**
-     * Complete path.
+     * Get the shortest path predecessor DAG.
      *
-     * @param pathAtoms Atoms in the path
-     * @param neighborChoices Neighbor choices made: element {@code [i]} contains which {@code ctab} member is chosen
-     * for the next atom in the path to arrive
-     * @param startFillFrom Last index in the arrays to complete; larger indices represent a valid path
+     * The DAG is built on first invocation. Once built, path reconstruction, enumeration and union walk only the
+     * predecessors stored in it instead of scanning all neighbors of the path atoms.
+     *
+     * @return Predecessor DAG of the shortest paths from the central atom
      */
-    private void completePath(int [] pathAtoms, int [] neighborChoices, int startFillFrom) {
-        // fill path backwards
-        for (int i = startFillFrom; i >= 0; i--) {
-            if (i < startFillFrom) { neighborChoices[i] = 0; }
+    public ShortestPathDag getShortestPathDag() {
+        if (this.shortestPathDag == null) {
+            final int atomCount = getAtomCount();
+            final int [] neighborOffsets = this.graph.offsets;
+            final int [] neighbors = this.graph.neighbors;
+            final int [] offsets = new int[atomCount + 1];
 
-            // fill position i with atom which
-            //  - is a neighbor of the next (filled) atom
-            //  - and is one step closer to the centrum
-            final int lastAtom = pathAtoms[i + 1];
-            final int nextPathLength = i;
-            for (int ni = neighborChoices[i]; ni < this.ctab[lastAtom].length; ni++) {
-                final int candidateAtom = this.ctab[lastAtom][ni];
+            for (int ai = 0; ai < atomCount; ai++) {
+                int count = 0;
+                if (this.shortestDistanceFromA1[ai] > 0) {
+                    final int prevDistance = this.shortestDistanceFromA1[ai] - 1;
+                    for (int j = neighborOffsets[ai]; j < neighborOffsets[ai + 1]; j++) {
+                        if (this.shortestDistanceFromA1[neighbors[j]] == prevDistance) {
+                            count++;
+                        }
+                    }
+                }
+                offsets[ai + 1] = offsets[ai] + count;
+            }
 
-                if (this.shortestDistanceFromA1[candidateAtom] == nextPathLength) {
-                    pathAtoms[i] = candidateAtom;
-                    neighborChoices[i] = ni;
-                    break;
+            final int [] predecessors = new int[offsets[atomCount]];
+            for (int ai = 0; ai < atomCount; ai++) {
+                int index = offsets[ai];
+                if (this.shortestDistanceFromA1[ai] > 0) {
+                    final int prevDistance = this.shortestDistanceFromA1[ai] - 1;
+                    for (int j = neighborOffsets[ai]; j < neighborOffsets[ai + 1]; j++) {
+                        if (this.shortestDistanceFromA1[neighbors[j]] == prevDistance) {
+                            predecessors[index++] = neighbors[j];
+                        }
+                    }
                 }
             }
+
+            this.shortestPathDag = new ShortestPathDag(this.a1, offsets, predecessors);
+            this.choices = new Choices(offsets, predecessors);
         }
+        return this.shortestPathDag;
+    }
+
+    /**
+     * Complete path, see {@link ShortestPathEnumeration}.
+     *
+     * @param choices Predecessor candidates the neighbor choices refer to
+     * @param pathAtoms Atoms in the path
+     * @param neighborChoices Neighbor choices made: element {@code [i]} contains which choice (see
+     * {@link Choices#first(int)}) is made for the next atom in the path to arrive
+     * @param startFillFrom Last index in the arrays to complete; larger indices represent a valid path
+     */
+    private void completePath(Choices choices, int [] pathAtoms, int [] neighborChoices, int startFillFrom) {
+        ShortestPathEnumeration.completePath(choices.offsets, choices.atoms, this.shortestDistanceFromA1, pathAtoms,
+                neighborChoices, startFillFrom);
     }
 
 
@@ -221,46 +567,391 @@ public class FindShortestPaths {
         pathAtoms[pathAtoms.length - 1] = a2;
 
         if (a1 == a2) {
+            final ShortestPathsMetrics metrics = ShortestPathsMetrics.getEnabled();
+            if (metrics != null) {
+                metrics.add(ShortestPathsMetrics.Counter.PATHS, 1);
+            }
             return Iterators.singletonIterator(pathAtoms);
         }
 
 
+        // the DAG may be built while iterating; choice indices keep referring to the candidates used here
+        final Choices choices = this.choices;
         final int startFillFrom = pathAtoms.length - 2;
-        completePath(pathAtoms, neighborChoices, startFillFrom);
+        neighborChoices[startFillFrom] = choices.first(a2);
+        completePath(choices, pathAtoms, neighborChoices, startFillFrom);
 
+        final ShortestPathsMetrics metrics = ShortestPathsMetrics.getEnabled();
 
         return new AbstractIterator<int[]>() {
             boolean pathAtomsValid = true;
 
             @Override
             protected int[] computeNext() {
-                if (pathAtomsValid) {
+                if (pathAtomsValid || nextPath(choices, pathAtoms, neighborChoices)) {
                     pathAtomsValid = false;
+                    if (metrics != null) {
+                        metrics.add(ShortestPathsMetrics.Counter.PATHS, 1);
+                    }
                     return U.clone(pathAtoms);
                 }
 
-                // try to bump neighbor choices
-                boolean found = false;
-                for (int i = 0; !found && i < pathAtoms.length - 1; i++) {
-                    final int nextAtomInPath = pathAtoms[i + 1];
+                return endOfData();
+            }
+        };
+    }
 
-                    while (neighborChoices[i] < ctab[nextAtomInPath].length - 1) {
-                        neighborChoices[i]++;
-                        if (getShortestPathLengthTo(ctab[nextAtomInPath][neighborChoices[i]]) == i) {
-                            found = true;
-                            break;
-                        }
-                    }
+    /**
+     * Stream all shortest paths to an other atom.
+     *
+     * Paths are the same and in the same order as returned by {@link #enumerateShortestPathsTo(int)}. The stream is
+     * sized and splits evenly for {@link Stream#parallel()} processing: each split covers a range of path ranks (see
+     * {@link #getShortestPathTo(int, long)}), that is a block of the predecessor choices made at the top layers of the
+     * path, and is enumerated independently. The predecessor DAG (see {@link #getShortestPathDag()}) and path counts
+     * are calculated before returning, so parallel enumeration only reads shared state. When the paths are too many to
+     * be ranked the stream is not sized and splits by batches of the sequential enumeration.
+     *
+     * @param a2 Other atom
+     * @return Stream of shortest paths; each path is a new array
+     * @throws IllegalArgumentException when no path exists
+     */
+    public Stream<int []> streamShortestPathsTo(int a2) throws IllegalArgumentException {
+        return StreamSupport.stream(shortestPathSpliterator(a2), false);
+    }
+
+    /**
+     * Spliterator of all shortest paths to an other atom.
+     *
+     * See {@link #streamShortestPathsTo(int)}.
+     *
+     * @param a2 Other atom
+     * @return Spliterator of shortest paths; each path is a new array
+     * @throws IllegalArgumentException when no path exists
+     */
+    public Spliterator<int []> shortestPathSpliterator(int a2) throws IllegalArgumentException {
+        final long count = countShortestPathsTo(a2);
+        if (count == Long.MAX_VALUE) {
+            return Spliterators.spliteratorUnknownSize(enumerateShortestPathsTo(a2),
+                    Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+        getShortestPathDag();
+        return new PathSpliterator(this.choices, a2, 0, count, ShortestPathsMetrics.getEnabled());
+    }
+
+    /**
+     * Spliterator over a range of shortest path ranks.
+     */
+    private final class PathSpliterator implements Spliterator<int []> {
+        /**
+         * Predecessor candidates the neighbor choices refer to.
+         */
+        private final Choices choices;
+
+        /**
+         * Other atom.
+         */
+        private final int a2;
+
+        /**
+         * Rank of the next path.
+         */
+        private long index;
+
+        /**
+         * End rank, exclusive.
+         */
+        private final long fence;
+
+        /**
+         * Metrics to count paths into, or {@code null}.
+         */
+        private final ShortestPathsMetrics metrics;
+
+        /**
+         * Atoms of the path of rank {@code index - 1}; {@code null} when not yet positioned.
+         */
+        private int [] pathAtoms;
+
+        /**
+         * Neighbor choices of {@link #pathAtoms}.
+         */
+        private int [] neighborChoices;
+
+        /**
+         * Construct.
+         *
+         * @param choices Predecessor candidates
+         * @param a2 Other atom
+         * @param index First rank
+         * @param fence End rank, exclusive
+         * @param metrics Metrics to count paths into, or {@code null}
+         */
+        private PathSpliterator(Choices choices, int a2, long index, long fence, ShortestPathsMetrics metrics) {
+            this.choices = choices;
+            this.a2 = a2;
+            this.index = index;
+            this.fence = fence;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int []> action) {
+            if (this.index >= this.fence) {
+                return false;
+            }
+            if (this.pathAtoms == null) {
+                // position by rank at the start of the range, then advance as the sequential enumeration does
+                this.pathAtoms = new int[getShortestPathLengthTo(this.a2) + 1];
+                this.neighborChoices = new int[this.pathAtoms.length];
+                unrank(this.choices, this.a2, this.index, this.pathAtoms, this.neighborChoices);
+            } else {
+                nextPath(this.choices, this.pathAtoms, this.neighborChoices);
+            }
+            this.index++;
+            if (this.metrics != null) {
+                this.metrics.add(ShortestPathsMetrics.Counter.PATHS, 1);
+            }
+            action.accept(U.clone(this.pathAtoms));
+            return true;
+        }
+
+        @Override
+        public Spliterator<int []> trySplit() {
+            final long remaining = this.fence - this.index;
+            if (remaining < 2) {
+                return null;
+            }
+            final long mid = this.index + remaining / 2;
+
+            // the prefix continues from the current position
+            final PathSpliterator prefix = new PathSpliterator(this.choices, this.a2, this.index, mid,
+                    this.metrics);
+            prefix.pathAtoms = this.pathAtoms;
+            prefix.neighborChoices = this.neighborChoices;
+            this.pathAtoms = null;
+            this.neighborChoices = null;
+            this.index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.fence - this.index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Visit all shortest paths to an other atom.
+     *
+     * No allocation is made per visited path: the same buffer is passed to each invocation of the visitor.
+     *
+     * @param a2 Other atom
+     * @param visitor Visitor to invoke for each path
+     * @return {@code true} when all paths were visited, {@code false} when the visitor stopped the enumeration
+     * @throws IllegalArgumentException when no path exists
+     */
+    public boolean forEachShortestPathTo(int a2, PathVisitor visitor) throws IllegalArgumentException {
+        if (!isPathExistsTo(a2)) {
+            throw new IllegalArgumentException("No path found between central atom " + a1 + " and " + a2);
+        }
+
+        final ShortestPathsMetrics metrics = ShortestPathsMetrics.getEnabled();
+        final long start = metrics != null ? System.nanoTime() : 0;
+
+        final int[] pathAtoms = new int[ getShortestPathLengthTo(a2) + 1 ];
+        final int[] neighborChoices = new int[ getShortestPathLengthTo(a2) + 1];
+
+        pathAtoms[pathAtoms.length - 1] = a2;
+
+        final Choices choices = this.choices;
+        if (a1 != a2) {
+            final int startFillFrom = pathAtoms.length - 2;
+            neighborChoices[startFillFrom] = choices.first(a2);
+            completePath(choices, pathAtoms, neighborChoices, startFillFrom);
+        }
+
+        long paths = 0;
+        boolean completed = true;
+        do {
+            paths++;
+            if (!visitor.visit(pathAtoms)) {
+                completed = false;
+                break;
+            }
+        } while (nextPath(choices, pathAtoms, neighborChoices));
+
+        if (metrics != null) {
+            metrics.add(ShortestPathsMetrics.Counter.PATHS, paths);
+            metrics.record(ShortestPathsMetrics.Operation.ENUMERATION, getAtomCount(), System.nanoTime() - start);
+        }
+        return completed;
+    }
+
+    /**
+     * Advance to the next path, see {@link ShortestPathEnumeration}.
+     *
+     * @param choices Predecessor candidates the neighbor choices refer to
+     * @param pathAtoms Atoms in a valid path; overwritten with the next path when found
+     * @param neighborChoices Neighbor choices made for the current path, see
+     * {@link #completePath(Choices, int[], int[], int)}
+     * @return {@code true} when next path found, {@code false} when all paths were enumerated
+     */
+    private boolean nextPath(Choices choices, int [] pathAtoms, int [] neighborChoices) {
+        return ShortestPathEnumeration.nextPath(choices.offsets, choices.atoms, this.shortestDistanceFromA1, pathAtoms,
+                neighborChoices);
+    }
+
+    /**
+     * Shortest path counts from the central atom.
+     *
+     * @return Path counts for all atoms, calculated on first invocation when not available
+     */
+    private long [] pathCounts() {
+        if (this.shortestPathCounts == null) {
+            final int atomCount = getAtomCount();
+            final long [] counts = new long[atomCount];
 
-                    if (found) {
-                        completePath(pathAtoms, neighborChoices, i);
-                        return U.clone(pathAtoms);
+            // visit atoms in the order of their distances: predecessors are final when an atom is visited
+            int maxDistance = 0;
+            for (int ai = 0; ai < atomCount; ai++) {
+                maxDistance = Math.max(maxDistance, this.shortestDistanceFromA1[ai]);
+            }
+            final int [] layerStart = new int[maxDistance + 2];
+            for (int ai = 0; ai < atomCount; ai++) {
+                if (this.shortestDistanceFromA1[ai] != UNKNOWN) {
+                    layerStart[this.shortestDistanceFromA1[ai] + 1]++;
+                }
+            }
+            for (int d = 1; d < layerStart.length; d++) {
+                layerStart[d] += layerStart[d - 1];
+            }
+            final int [] order = new int[layerStart[maxDistance + 1]];
+            for (int ai = 0; ai < atomCount; ai++) {
+                if (this.shortestDistanceFromA1[ai] != UNKNOWN) {
+                    order[layerStart[this.shortestDistanceFromA1[ai]]++] = ai;
+                }
+            }
+
+            counts[this.a1] = 1;
+            for (int ai : order) {
+                final int prevDistance = this.shortestDistanceFromA1[ai] - 1;
+                for (int j = this.graph.offsets[ai]; j < this.graph.offsets[ai + 1]; j++) {
+                    final int n = this.graph.neighbors[j];
+                    if (this.shortestDistanceFromA1[n] == prevDistance) {
+                        counts[ai] = saturatedAdd(counts[ai], counts[n]);
                     }
                 }
+            }
 
-                return endOfData();
+            this.shortestPathCounts = counts;
+        }
+        return this.shortestPathCounts;
+    }
+
+    /**
+     * Count shortest paths to an other atom.
+     *
+     * @param a2 Other atom
+     * @return Number of shortest paths from the central atom; {@link Long#MAX_VALUE} when there are at least that many
+     * @throws IllegalArgumentException when no path exists
+     */
+    public long countShortestPathsTo(int a2) throws IllegalArgumentException {
+        if (!isPathExistsTo(a2)) {
+            throw new IllegalArgumentException("No path found between central atom " + a1 + " and " + a2);
+        }
+        return pathCounts()[a2];
+    }
+
+    /**
+     * Get a shortest path to an other atom by its rank.
+     *
+     * Ranks follow the order of {@link #enumerateShortestPathsTo(int)}. Cost is proportional to path length and the
+     * degrees of the atoms along the path.
+     *
+     * @param a2 Other atom
+     * @param rank Rank of the path, in range {@code [0, countShortestPathsTo(a2))}
+     * @return Atom indices along the path
+     * @throws IllegalArgumentException when no path exists or rank is out of range
+     * @throws IllegalStateException when the number of shortest paths is too large to be ranked
+     */
+    public int [] getShortestPathTo(int a2, long rank) throws IllegalArgumentException, IllegalStateException {
+        final long count = countShortestPathsTo(a2);
+        if (count == Long.MAX_VALUE) {
+            throw new IllegalStateException("Too many shortest paths between central atom " + a1 + " and " + a2);
+        }
+        if (rank < 0 || rank >= count) {
+            throw new IllegalArgumentException("Invalid rank " + rank + ", path count: " + count);
+        }
+
+        final int [] ret = new int[getShortestPathLengthTo(a2) + 1];
+        unrank(this.choices, a2, rank, ret, new int[ret.length]);
+        return ret;
+    }
+
+    /**
+     * Construct a shortest path by its rank.
+     *
+     * @param choices Predecessor candidates the neighbor choices refer to
+     * @param a2 Other atom
+     * @param rank Rank of the path, valid for {@link #countShortestPathsTo(int)}
+     * @param pathAtoms Atoms of the path to fill; shortest path length + 1 long
+     * @param neighborChoices Neighbor choices to fill, see {@link #completePath(Choices, int[], int[], int)}; same
+     * length as {@code pathAtoms}
+     */
+    private void unrank(Choices choices, int a2, long rank, int [] pathAtoms, int [] neighborChoices) {
+        final long [] counts = pathCounts();
+        pathAtoms[pathAtoms.length - 1] = a2;
+
+        // fill path backwards; paths through earlier neighbor choices have smaller ranks
+        long remaining = rank;
+        for (int i = pathAtoms.length - 2; i >= 0; i--) {
+            final int lastAtom = pathAtoms[i + 1];
+            final int end = choices.end(lastAtom);
+            for (int ni = choices.first(lastAtom); ni < end; ni++) {
+                final int candidateAtom = choices.atom(ni);
+
+                if (this.shortestDistanceFromA1[candidateAtom] == i) {
+                    if (remaining < counts[candidateAtom]) {
+                        pathAtoms[i] = candidateAtom;
+                        neighborChoices[i] = ni;
+                        break;
+                    }
+                    remaining -= counts[candidateAtom];
+                }
             }
-        };
+        }
+    }
+
+    /**
+     * Get a uniformly sampled shortest path to an other atom.
+     *
+     * @param a2 Other atom
+     * @param random Random source
+     * @return Atom indices along the path
+     * @throws IllegalArgumentException when no path exists
+     * @throws IllegalStateException when the number of shortest paths is too large to be ranked
+     */
+    public int [] getRandomShortestPathTo(int a2, Random random)
+            throws IllegalArgumentException, IllegalStateException {
+        final long count = countShortestPathsTo(a2);
+        if (count == Long.MAX_VALUE) {
+            throw new IllegalStateException("Too many shortest paths between central atom " + a1 + " and " + a2);
+        }
+
+        // uniform in [0, count) without modulo bias
+        long bits;
+        long rank;
+        do {
+            bits = random.nextLong() >>> 1;
+            rank = bits % count;
+        } while (bits - rank + (count - 1) < 0);
+
+        return getShortestPathTo(a2, rank);
     }
 
     /**
@@ -269,7 +960,7 @@ public class FindShortestPaths {
      * @return Atom count
      */
     public int getAtomCount() {
-        return ctab.length;
+        return this.graph.getAtomCount();
     }
 
     /**
@@ -288,49 +979,55 @@ public class FindShortestPaths {
     /**
      * Union of shortest paths from multiple atoms.
      *
+     * Walks back towards the central atom expanding each atom once, in O(n + m) time. For shortest paths between two
+     * arbitrary atom sets see {@link ShortestPathsBetweenSets}.
      *
      * @param startAtoms Start atom indices. An arbitrary set of atoms.
      * @return Atom indices from the union of all of the shortest paths starting from the specified atoms
+     * @throws IllegalArgumentException when no path exists from a start atom
      */
-    public BitSet unionOfShortestPaths(BitSet startAtoms) {
-        BitSet ret = new BitSet(getAtomCount());
+    public BitSet unionOfShortestPaths(BitSet startAtoms) throws IllegalArgumentException {
+        final ShortestPathsMetrics metrics = ShortestPathsMetrics.getEnabled();
+        final long start = metrics != null ? System.nanoTime() : 0;
 
-        ret.or(startAtoms);
+        final BitSet ret = new BitSet(getAtomCount());
+        final int [] work = new int[getAtomCount()];
+        int count = 0;
 
-        BitSet currentSet = startAtoms;
-        while (true) {
-            boolean stepMade = false;
-            BitSet nextSet = new BitSet(getAtomCount());
-
-            for (int i = currentSet.nextSetBit(0); i >= 0; i = currentSet.nextSetBit(i+1)) {
-                // operate on index i here
-                final int distanceI = getShortestPathLengthTo(i);
-                if (distanceI == 0) {
-                    break;
-                }
-                final int prevDistance = distanceI - 1;
-
-                for (int neighborIndex = 0; neighborIndex < ctab[i].length; neighborIndex++) {
-                    final int neighborAtom = this.ctab[i][neighborIndex];
-                    final int neghborDistance = getShortestPathLengthTo(neighborAtom);
-                    if (neghborDistance == prevDistance) {
-                        stepMade = true;
-                        nextSet.set(neighborAtom);
-                    }
-                }
+        for (int i = startAtoms.nextSetBit(0); i >= 0; i = startAtoms.nextSetBit(i + 1)) {
+            getShortestPathLengthTo(i);
+            ret.set(i);
+            work[count++] = i;
 
-                if (i == Integer.MAX_VALUE) {
-                    break; // or (i+1) would overflow
-                }
+            if (i == Integer.MAX_VALUE) {
+                break; // or (i+1) would overflow
             }
+        }
 
-            ret.or(nextSet);
-            currentSet = nextSet;
+        final Choices choices = this.choices;
+        long expansions = 0;
+        while (count > 0) {
+            final int ai = work[--count];
+            expansions++;
+            final int prevDistance = this.shortestDistanceFromA1[ai] - 1;
+            if (prevDistance < 0) {
+                continue;
+            }
 
-            if (!stepMade) {
-                break;
+            final int end = choices.end(ai);
+            for (int neighborIndex = choices.first(ai); neighborIndex < end; neighborIndex++) {
+                final int neighborAtom = choices.atom(neighborIndex);
+                if (this.shortestDistanceFromA1[neighborAtom] == prevDistance && !ret.get(neighborAtom)) {
+                    ret.set(neighborAtom);
+                    work[count++] = neighborAtom;
+                }
             }
         }
+
+        if (metrics != null) {
+            metrics.add(ShortestPathsMetrics.Counter.UNION_EXPANSIONS, expansions);
+            metrics.record(ShortestPathsMetrics.Operation.UNION, getAtomCount(), System.nanoTime() - start);
+        }
         return ret;
     }
 
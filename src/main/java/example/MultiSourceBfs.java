@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+
+/**
+ * Bit parallel breadth first search from up to 64 central atoms at once.
+ *
+ * Each atom holds a {@code long} frontier and visited mask; bit {@code k} represents the {@code k}-th central atom of
+ * the batch. One level expansion advances all central atoms of the batch, so the connection table is walked once for
+ * 64 searches.
+ *
+ * Instances hold scratch state, they are not thread safe.
+ */
+public class MultiSourceBfs {
+    /**
+     * Maximal number of central atoms processed in one batch.
+     */
+    public static final int BATCH_SIZE = Long.SIZE;
+
+    /**
+     * Flag to mark disconnected atoms in distance rows.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Central atoms reached so far for each atom.
+     */
+    private final long [] visited;
+
+    /**
+     * Central atoms reaching each atom in the current level.
+     */
+    private final long [] frontier;
+
+    /**
+     * Central atoms reaching each atom in the next level.
+     */
+    private final long [] next;
+
+    /**
+     * Atoms having non empty frontier.
+     */
+    private int [] active;
+
+    /**
+     * Atoms having non empty next level frontier.
+     */
+    private int [] nextActive;
+
+    /**
+     * Construct.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     */
+    public MultiSourceBfs(int [][] ctab) {
+        this(CompactGraph.of(ctab));
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     */
+    public MultiSourceBfs(CompactGraph graph) {
+        this.graph = graph;
+
+        final int atomCount = graph.getAtomCount();
+        this.visited = new long[atomCount];
+        this.frontier = new long[atomCount];
+        this.next = new long[atomCount];
+        this.active = new int[atomCount];
+        this.nextActive = new int[atomCount];
+    }
+
+    /**
+     * Calculate shortest distances from a batch of central atoms.
+     *
+     * @param sources Central atom indices
+     * @param offset Index of the first central atom of the batch in {@code sources}
+     * @param count Number of central atoms in the batch, at most {@link #BATCH_SIZE}
+     * @param rows Distance rows to fill; row {@code k} receives the shortest distances from {@code sources[offset + k]}
+     * as {@link FindShortestPaths} would calculate, {@code -1} for disconnected atoms. Rows must have atom count
+     * length.
+     * @throws IllegalArgumentException when batch size is invalid
+     */
+    public void run(int [] sources, int offset, int count, int [][] rows) throws IllegalArgumentException {
+        if (count < 0 || count > BATCH_SIZE) {
+            throw new IllegalArgumentException("Invalid batch size " + count);
+        }
+
+        int activeCount = 0;
+        for (int k = 0; k < count; k++) {
+            final int source = sources[offset + k];
+            Arrays.fill(rows[k], UNKNOWN);
+            rows[k][source] = 0;
+
+            if (this.frontier[source] == 0) {
+                this.active[activeCount++] = source;
+            }
+            this.frontier[source] |= 1L << k;
+            this.visited[source] |= 1L << k;
+        }
+
+        final int [] offsets = this.graph.offsets;
+        final int [] neighbors = this.graph.neighbors;
+
+        int level = 0;
+        while (activeCount > 0) {
+            level++;
+
+            // push frontiers to the neighbors which were not yet reached by the same central atoms
+            int nextCount = 0;
+            for (int a = 0; a < activeCount; a++) {
+                final int u = this.active[a];
+                final long f = this.frontier[u];
+                this.frontier[u] = 0;
+
+                final int end = offsets[u + 1];
+                for (int j = offsets[u]; j < end; j++) {
+                    final int v = neighbors[j];
+                    final long reached = f & ~this.visited[v];
+                    if (reached != 0) {
+                        if (this.next[v] == 0) {
+                            this.nextActive[nextCount++] = v;
+                        }
+                        this.next[v] |= reached;
+                    }
+                }
+            }
+
+            // record distances and make the next level current
+            for (int a = 0; a < nextCount; a++) {
+                final int v = this.nextActive[a];
+                final long reached = this.next[v];
+                this.next[v] = 0;
+                this.visited[v] |= reached;
+                this.frontier[v] = reached;
+
+                for (long bits = reached; bits != 0; bits &= bits - 1) {
+                    rows[Long.numberOfTrailingZeros(bits)][v] = level;
+                }
+            }
+
+            final int [] swap = this.active;
+            this.active = this.nextActive;
+            this.nextActive = swap;
+            activeCount = nextCount;
+        }
+
+        Arrays.fill(this.visited, 0);
+    }
+
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+
+/**
+ * Shortest paths between a single pair of atoms.
+ *
+ * Bidirectional breadth first search is run from both atoms, always expanding the smaller frontier by one level. The
+ * search stops when the two frontiers meet, so only atoms near the two endpoints are labeled. Atoms on the shortest
+ * paths are then collected by walking back from the meeting atoms; paths are reconstructed from them on request.
+ *
+ * The search runs in scratch arrays sized to the largest structure seen, invalidated by an epoch stamp instead of
+ * clearing, so a query costs time and memory proportional to the explored region only. Scratch is kept per thread for
+ * structures up to {@link #MAX_RETAINED_ATOMS} atoms; for larger ones pass a {@link Scratch} held by the caller, see
+ * {@link FindShortestPaths#pairQuery(CompactGraph, int, int, Scratch)}, otherwise each query allocates its own. Path
+ * queries additionally allocate a distance array of the structure's atom count on first use.
+ *
+ * See {@link FindShortestPaths#pairQuery(int[][], int, int)}.
+ */
+public class PairShortestPaths {
+    /**
+     * Flag to mark disconnected atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Largest atom count for which the per thread scratch is used and retained.
+     *
+     * Scratch takes 32 bytes per atom, so this bounds the memory a pool thread keeps after touching a huge structure
+     * to 2 MB.
+     */
+    static final int MAX_RETAINED_ATOMS = 1 << 16;
+
+    /**
+     * Search scratch of each thread.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * First atom index.
+     */
+    private final int a1;
+
+    /**
+     * Second atom index.
+     */
+    private final int a2;
+
+    /**
+     * Shortest path length or {@link #UNKNOWN} when no path exists.
+     */
+    private final int distance;
+
+    /**
+     * Atoms lying on shortest paths; empty when no path exists.
+     */
+    private final int [] onPathAtoms;
+
+    /**
+     * Shortest distance from {@link #a1} of each atom in {@link #onPathAtoms}.
+     */
+    private final int [] onPathDistances;
+
+    /**
+     * Shortest distances from {@link #a1} restricted to atoms on shortest paths to {@link #a2}; built on request.
+     */
+    private FindShortestPaths onShortestPaths;
+
+    /**
+     * Reusable search state.
+     *
+     * Hold one per thread to query large structures without allocation, see
+     * {@link FindShortestPaths#pairQuery(CompactGraph, int, int, Scratch)}. Arrays grow to the largest structure
+     * searched with it. Instances are not thread safe.
+     */
+    public static final class Scratch {
+        /**
+         * Distances from the first atom.
+         */
+        private int [] distanceFromA1 = new int[0];
+
+        /**
+         * Epoch when the corresponding element of {@link #distanceFromA1} was written.
+         */
+        private int [] stampFromA1 = new int[0];
+
+        /**
+         * Distances from the second atom.
+         */
+        private int [] distanceFromA2 = new int[0];
+
+        /**
+         * Epoch when the corresponding element of {@link #distanceFromA2} was written.
+         */
+        private int [] stampFromA2 = new int[0];
+
+        /**
+         * Epoch when the atom was found to lie on a shortest path.
+         */
+        private int [] stampOnPath = new int[0];
+
+        /**
+         * Atoms reached from the first atom in breadth first order.
+         */
+        private int [] reachedFromA1 = new int[0];
+
+        /**
+         * Atoms reached from the second atom in breadth first order.
+         */
+        private int [] reachedFromA2 = new int[0];
+
+        /**
+         * Atoms on shortest paths, see {@link PairShortestPaths#collectOnPath(Scratch, int, int, int)}.
+         */
+        private int [] onPath = new int[0];
+
+        /**
+         * Current epoch; distances and on path marks are valid only where the corresponding stamp equals it.
+         */
+        private int epoch;
+
+        /**
+         * Construct empty scratch.
+         */
+        public Scratch() {
+        }
+
+        /**
+         * Start a search.
+         *
+         * @param atomCount Atom count of the structure to search
+         */
+        private void reset(int atomCount) {
+            if (this.distanceFromA1.length < atomCount) {
+                this.distanceFromA1 = new int[atomCount];
+                this.stampFromA1 = new int[atomCount];
+                this.distanceFromA2 = new int[atomCount];
+                this.stampFromA2 = new int[atomCount];
+                this.stampOnPath = new int[atomCount];
+                this.reachedFromA1 = new int[atomCount];
+                this.reachedFromA2 = new int[atomCount];
+                this.onPath = new int[atomCount];
+                this.epoch = 0;
+            }
+            if (this.epoch == Integer.MAX_VALUE) {
+                // stamps would wrap around; clear them once
+                Arrays.fill(this.stampFromA1, 0);
+                Arrays.fill(this.stampFromA2, 0);
+                Arrays.fill(this.stampOnPath, 0);
+                this.epoch = 0;
+            }
+            this.epoch++;
+        }
+    }
+
+    /**
+     * Construct and run search.
+     *
+     * @param graph Input structure
+     * @param a1 First atom index
+     * @param a2 Second atom index
+     * @param scratch Search state to use; {@code null} for the per thread scratch, or a new one for structures
+     * larger than {@link #MAX_RETAINED_ATOMS}. Not referenced after returning
+     */
+    PairShortestPaths(CompactGraph graph, int a1, int a2, Scratch scratch) {
+        this.graph = graph;
+        this.a1 = a1;
+        this.a2 = a2;
+
+        if (a1 == a2) {
+            this.distance = 0;
+            this.onPathAtoms = new int [] {a1};
+            this.onPathDistances = new int [] {0};
+            return;
+        }
+
+        if (scratch == null) {
+            scratch = graph.getAtomCount() <= MAX_RETAINED_ATOMS ? SCRATCH.get() : new Scratch();
+        }
+        scratch.reset(graph.getAtomCount());
+        final int epoch = scratch.epoch;
+        final int [] offsets = graph.offsets;
+        final int [] neighbors = graph.neighbors;
+
+        scratch.distanceFromA1[a1] = 0;
+        scratch.stampFromA1[a1] = epoch;
+        scratch.distanceFromA2[a2] = 0;
+        scratch.stampFromA2[a2] = epoch;
+        scratch.reachedFromA1[0] = a1;
+        scratch.reachedFromA2[0] = a2;
+
+        // frontiers are ranges [levelStart, count) in the reached atom lists
+        int levelStartFromA1 = 0;
+        int levelStartFromA2 = 0;
+        int reachedFromA1Count = 1;
+        int reachedFromA2Count = 1;
+        int depthFromA1 = 0;
+        int depthFromA2 = 0;
+
+        int foundDistance = UNKNOWN;
+        while (levelStartFromA1 < reachedFromA1Count && levelStartFromA2 < reachedFromA2Count) {
+            final boolean expandA1 = reachedFromA1Count - levelStartFromA1 <= reachedFromA2Count - levelStartFromA2;
+
+            final int [] distances = expandA1 ? scratch.distanceFromA1 : scratch.distanceFromA2;
+            final int [] stamps = expandA1 ? scratch.stampFromA1 : scratch.stampFromA2;
+            final int [] otherStamps = expandA1 ? scratch.stampFromA2 : scratch.stampFromA1;
+            final int [] reached = expandA1 ? scratch.reachedFromA1 : scratch.reachedFromA2;
+            final int levelStart = expandA1 ? levelStartFromA1 : levelStartFromA2;
+            final int levelEnd = expandA1 ? reachedFromA1Count : reachedFromA2Count;
+
+            // expand a whole level; any meeting within it gives the shortest distance
+            boolean met = false;
+            int count = levelEnd;
+            for (int q = levelStart; q < levelEnd; q++) {
+                final int ai = reached[q];
+                final int nextDistance = distances[ai] + 1;
+                for (int j = offsets[ai]; j < offsets[ai + 1]; j++) {
+                    final int n = neighbors[j];
+                    if (stamps[n] != epoch) {
+                        stamps[n] = epoch;
+                        distances[n] = nextDistance;
+                        reached[count++] = n;
+                        met |= otherStamps[n] == epoch;
+                    }
+                }
+            }
+
+            if (expandA1) {
+                levelStartFromA1 = levelEnd;
+                reachedFromA1Count = count;
+                depthFromA1++;
+            } else {
+                levelStartFromA2 = levelEnd;
+                reachedFromA2Count = count;
+                depthFromA2++;
+            }
+
+            if (met) {
+                foundDistance = depthFromA1 + depthFromA2;
+                break;
+            }
+        }
+        this.distance = foundDistance;
+
+        if (foundDistance == UNKNOWN) {
+            this.onPathAtoms = new int[0];
+            this.onPathDistances = new int[0];
+            return;
+        }
+
+        final int onPathCount = collectOnPath(scratch, reachedFromA1Count, depthFromA1, foundDistance);
+        this.onPathAtoms = Arrays.copyOf(scratch.onPath, onPathCount);
+        this.onPathDistances = new int[onPathCount];
+        for (int k = 0; k < onPathCount; k++) {
+            final int ai = this.onPathAtoms[k];
+            // atoms reached from the first atom are within its search depth, the others are closer to the second
+            this.onPathDistances[k] = scratch.stampFromA1[ai] == epoch ? scratch.distanceFromA1[ai]
+                    : foundDistance - scratch.distanceFromA2[ai];
+        }
+    }
+
+    /**
+     * Collect atoms lying on shortest paths into {@link Scratch#onPath}.
+     *
+     * Atoms where the frontiers met are on shortest paths; the others are found by walking back from them towards
+     * both ends.
+     *
+     * @param scratch Search state
+     * @param reachedFromA1Count Number of atoms reached from the first atom
+     * @param depthFromA1 Depth of the search from the first atom when the frontiers met
+     * @param distance Shortest path length
+     * @return Number of atoms collected
+     */
+    private int collectOnPath(Scratch scratch, int reachedFromA1Count, int depthFromA1, int distance) {
+        final int epoch = scratch.epoch;
+        final int [] onPath = scratch.onPath;
+
+        // atoms reached from both sides are on shortest paths
+        int meetCount = 0;
+        for (int q = 0; q < reachedFromA1Count; q++) {
+            final int ai = scratch.reachedFromA1[q];
+            if (scratch.stampFromA2[ai] == epoch) {
+                scratch.stampOnPath[ai] = epoch;
+                onPath[meetCount++] = ai;
+            }
+        }
+
+        int count = walkBack(scratch, scratch.distanceFromA1, scratch.stampFromA1, meetCount, meetCount);
+        count = walkBack(scratch, scratch.distanceFromA2, scratch.stampFromA2, meetCount, count);
+        return count;
+    }
+
+    /**
+     * Walk back from the meeting atoms towards one of the ends and collect atoms found.
+     *
+     * @param scratch Search state
+     * @param distances Distances from the end to walk towards
+     * @param stamps Stamps of {@code distances}
+     * @param meetCount Number of meeting atoms, at the start of {@link Scratch#onPath}
+     * @param count Number of atoms collected so far
+     * @return Number of atoms collected
+     */
+    private int walkBack(Scratch scratch, int [] distances, int [] stamps, int meetCount, int count) {
+        final int epoch = scratch.epoch;
+        final int [] onPath = scratch.onPath;
+        final int [] offsets = this.graph.offsets;
+        final int [] neighbors = this.graph.neighbors;
+
+        // process the meeting atoms, then the atoms appended by this walk
+        final int appendedFrom = count;
+        int end = count;
+        int q = 0;
+        while (q < end) {
+            final int ai = onPath[q];
+            final int prevDistance = distances[ai] - 1;
+            if (prevDistance >= 0) {
+                for (int j = offsets[ai]; j < offsets[ai + 1]; j++) {
+                    final int n = neighbors[j];
+                    if (stamps[n] == epoch && distances[n] == prevDistance && scratch.stampOnPath[n] != epoch) {
+                        scratch.stampOnPath[n] = epoch;
+                        onPath[end++] = n;
+                    }
+                }
+            }
+            q = q + 1 == meetCount ? appendedFrom : q + 1;
+        }
+        return end;
+    }
+
+    /**
+     * First atom.
+     *
+     * @return First atom index
+     */
+    public int getA1() {
+        return this.a1;
+    }
+
+    /**
+     * Second atom.
+     *
+     * @return Second atom index
+     */
+    public int getA2() {
+        return this.a2;
+    }
+
+    /**
+     * Check if a path exists.
+     *
+     * @return {@code true} when the two atoms are connected
+     */
+    public boolean isPathExists() {
+        return this.distance != UNKNOWN;
+    }
+
+    /**
+     * Get shortest path length.
+     *
+     * @return length of the shortest path
+     * @throws IllegalArgumentException when no path exists
+     */
+    public int getShortestPathLength() throws IllegalArgumentException {
+        if (!isPathExists()) {
+            throw new IllegalArgumentException("No path found between atoms " + a1 + " and " + a2);
+        }
+        return this.distance;
+    }
+
+    /**
+     * Shortest distances from {@link #a1} restricted to atoms lying on shortest paths to {@link #a2}.
+     *
+     * @return Shortest paths from {@link #a1} restricted to atoms on shortest paths to {@link #a2}
+     * @throws IllegalArgumentException when no path exists
+     */
+    private FindShortestPaths onShortestPaths() throws IllegalArgumentException {
+        if (!isPathExists()) {
+            throw new IllegalArgumentException("No path found between atoms " + a1 + " and " + a2);
+        }
+        if (this.onShortestPaths == null) {
+            final int [] restricted = new int[this.graph.getAtomCount()];
+            Arrays.fill(restricted, UNKNOWN);
+            for (int k = 0; k < this.onPathAtoms.length; k++) {
+                restricted[this.onPathAtoms[k]] = this.onPathDistances[k];
+            }
+            this.onShortestPaths = new FindShortestPaths(this.graph, this.a1, restricted);
+        }
+        return this.onShortestPaths;
+    }
+
+    /**
+     * Get a shortest path.
+     *
+     * @return Atom indices along the path from {@link #getA1()} to {@link #getA2()}
+     * @throws IllegalArgumentException when no path exists
+     */
+    public int [] getSingleShortestPath() throws IllegalArgumentException {
+        return onShortestPaths().getSingleShortestPathTo(this.a2);
+    }
+
+    /**
+     * Enumerate all shortest paths.
+     *
+     * @return Iterator of shortest paths from {@link #getA1()} to {@link #getA2()}
+     * @throws IllegalArgumentException when no path exists
+     */
+    public Iterator<int []> enumerateShortestPaths() throws IllegalArgumentException {
+        return onShortestPaths().enumerateShortestPathsTo(this.a2);
+    }
+
+    /**
+     * Visit all shortest paths.
+     *
+     * @param visitor Visitor to invoke for each path from {@link #getA1()} to {@link #getA2()}
+     * @return {@code true} when all paths were visited, {@code false} when the visitor stopped the enumeration
+     * @throws IllegalArgumentException when no path exists
+     */
+    public boolean forEachShortestPath(PathVisitor visitor) throws IllegalArgumentException {
+        return onShortestPaths().forEachShortestPathTo(this.a2, visitor);
+    }
+
+    /**
+     * Count shortest paths.
+     *
+     * @return Number of shortest paths; {@link Long#MAX_VALUE} when there are at least that many
+     * @throws IllegalArgumentException when no path exists
+     */
+    public long countShortestPaths() throws IllegalArgumentException {
+        return onShortestPaths().countShortestPathsTo(this.a2);
+    }
+
+    /**
+     * Union of all shortest paths.
+     *
+     * @return Atom indices from the union of all of the shortest paths
+     * @throws IllegalArgumentException when no path exists
+     */
+    public BitSet unionOfShortestPaths() throws IllegalArgumentException {
+        return onShortestPaths().unionOfShortestPaths(this.a2);
+    }
+
+    @Override
+    public String toString() {
+        return "a1: " + this.a1 + ", a2: " + this.a2 + ", shortest distance: " + this.distance;
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+/**
+ * Callback receiving enumerated paths.
+ *
+ * See {@link FindShortestPaths#forEachShortestPathTo(int, PathVisitor)}.
+ */
+@FunctionalInterface
+public interface PathVisitor {
+
+    /**
+     * Visit a path.
+     *
+     * @param path Atom indices along the path. The array is reused between invocations: <b>DO NOT MODIFY</b>, and
+     * make a copy when it is needed after returning
+     * @return {@code true} to continue enumeration, {@code false} to stop
+     */
+    boolean visit(int [] path);
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+/**
+ * Predecessor DAG of the shortest paths from a central atom.
+ *
+ * Predecessors of an atom are its neighbors one step closer to the central atom, listed in {@code ctab} order. They are
+ * stored in compressed sparse row form: predecessors of atom {@code i} are {@code predecessors[offsets[i]]} to
+ * {@code predecessors[offsets[i + 1] - 1]}.
+ *
+ * See {@link FindShortestPaths#getShortestPathDag()}.
+ */
+public class ShortestPathDag {
+    /**
+     * Central atom index.
+     */
+    private final int a1;
+
+    /**
+     * Start index of the predecessors of each atom in {@link #predecessors}; atom count + 1 length.
+     */
+    final int [] offsets;
+
+    /**
+     * Concatenated predecessor lists.
+     */
+    final int [] predecessors;
+
+    /**
+     * Construct.
+     *
+     * @param a1 Central atom index
+     * @param offsets Predecessor list offsets; no defensive copy is made
+     * @param predecessors Concatenated predecessor lists; no defensive copy is made
+     */
+    ShortestPathDag(int a1, int [] offsets, int [] predecessors) {
+        this.a1 = a1;
+        this.offsets = offsets;
+        this.predecessors = predecessors;
+    }
+
+    /**
+     * Central atom.
+     *
+     * @return Index of the central atom, the only source of the DAG
+     */
+    public int getCentralAtom() {
+        return this.a1;
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Predecessor count of an atom.
+     *
+     * @param atom Atom index
+     * @return Number of neighbors one step closer to the central atom; 0 for the central atom and disconnected atoms
+     */
+    public int getPredecessorCount(int atom) {
+        return this.offsets[atom + 1] - this.offsets[atom];
+    }
+
+    /**
+     * Predecessor of an atom.
+     *
+     * @param atom Atom index
+     * @param index Predecessor index, in range {@code [0, getPredecessorCount(atom))}
+     * @return Atom index of the predecessor
+     * @throws IndexOutOfBoundsException when index is out of range
+     */
+    public int getPredecessor(int atom, int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= getPredecessorCount(atom)) {
+            throw new IndexOutOfBoundsException("Invalid predecessor index " + index + " for atom " + atom);
+        }
+        return this.predecessors[this.offsets[atom] + index];
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+/**
+ * Backtracking enumeration of shortest paths, shared by {@link FindShortestPaths} and {@link ShortestPathsWorkspace}.
+ *
+ * Paths are filled backwards from the other atom: position {@code i} holds an atom at distance {@code i} from the
+ * central atom, chosen from the predecessor candidates of the atom at position {@code i + 1}. Candidates are given in
+ * compressed sparse row form: either the neighbor lists of the structure, filtered by distance, or the predecessor
+ * lists of a {@link ShortestPathDag}. The choice made at each position is kept, so the next path is found by bumping
+ * the choice at the lowest position having a further candidate and completing the path below it.
+ */
+final class ShortestPathEnumeration {
+
+    private ShortestPathEnumeration() {}
+
+    /**
+     * Complete path.
+     *
+     * @param offsets Offsets of the candidates of each atom in {@code candidates}
+     * @param candidates Concatenated predecessor candidate lists
+     * @param distances Shortest distances from the central atom; must be valid for all candidates of path atoms
+     * @param pathAtoms Atoms in the path
+     * @param choices Choices made: element {@code [i]} contains which {@code candidates} slot is chosen for the next
+     * atom in the path to arrive
+     * @param startFillFrom Last index in the arrays to complete; larger indices represent a valid path. The choice at
+     * this index is the first one tried
+     */
+    static void completePath(int [] offsets, int [] candidates, int [] distances, int [] pathAtoms, int [] choices,
+            int startFillFrom) {
+        // fill path backwards
+        for (int i = startFillFrom; i >= 0; i--) {
+            // fill position i with atom which
+            //  - is a candidate of the next (filled) atom
+            //  - and is one step closer to the centrum
+            final int lastAtom = pathAtoms[i + 1];
+            if (i < startFillFrom) { choices[i] = offsets[lastAtom]; }
+
+            final int end = offsets[lastAtom + 1];
+            for (int ni = choices[i]; ni < end; ni++) {
+                final int candidateAtom = candidates[ni];
+
+                if (distances[candidateAtom] == i) {
+                    pathAtoms[i] = candidateAtom;
+                    choices[i] = ni;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Advance to the next path.
+     *
+     * @param offsets Offsets of the candidates of each atom in {@code candidates}
+     * @param candidates Concatenated predecessor candidate lists
+     * @param distances Shortest distances from the central atom; must be valid for all candidates of path atoms
+     * @param pathAtoms Atoms in a valid path, exactly path length + 1 long; overwritten with the next path when found
+     * @param choices Choices made for the current path, see
+     * {@link #completePath(int[], int[], int[], int[], int[], int)}
+     * @return {@code true} when next path found, {@code false} when all paths were enumerated
+     */
+    static boolean nextPath(int [] offsets, int [] candidates, int [] distances, int [] pathAtoms, int [] choices) {
+        // try to bump choices
+        for (int i = 0; i < pathAtoms.length - 1; i++) {
+            final int end = offsets[pathAtoms[i + 1] + 1];
+
+            while (choices[i] < end - 1) {
+                choices[i]++;
+                if (distances[candidates[choices[i]]] == i) {
+                    completePath(offsets, candidates, distances, pathAtoms, choices, i);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
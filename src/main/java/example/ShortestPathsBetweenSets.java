@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Atoms on shortest paths between two atom sets, for example linker or bridge atoms between ring systems.
+ *
+ * The shortest distance {@code D} between sets {@code A} and {@code B} is the smallest distance of any atom pair from
+ * {@code A} x {@code B}. An atom {@code v} is on a shortest path when {@code dist(A, v) + dist(v, B) == D}. Both
+ * distances are labeled by a multi source breadth first search: the search from {@code A} stops at the first layer
+ * reaching {@code B}, the search from {@code B} is limited to depth {@code D}. A query takes O(n + m) time in the worst
+ * case and only touches atoms within distance {@code D} of the sets.
+ *
+ * Scratch arrays are reused between queries and are reset only where touched. Instances are not thread safe.
+ */
+public class ShortestPathsBetweenSets {
+    /**
+     * Flag to mark unreached atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Input structure.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Distances from the source set; {@link #UNKNOWN} when not reached.
+     */
+    private final int [] distanceFromSources;
+
+    /**
+     * Distances from the target set; {@link #UNKNOWN} when not reached.
+     */
+    private final int [] distanceFromTargets;
+
+    /**
+     * Atoms reached from the source set in breadth first order.
+     */
+    private final int [] reachedFromSources;
+
+    /**
+     * Atoms reached from the target set in breadth first order.
+     */
+    private final int [] reachedFromTargets;
+
+    /**
+     * Number of atoms in {@link #reachedFromSources}.
+     */
+    private int reachedFromSourcesCount;
+
+    /**
+     * Number of atoms in {@link #reachedFromTargets}.
+     */
+    private int reachedFromTargetsCount;
+
+    /**
+     * Construct.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     */
+    public ShortestPathsBetweenSets(int [][] ctab) {
+        this(CompactGraph.of(ctab));
+    }
+
+    /**
+     * Construct.
+     *
+     * @param graph Input structure
+     */
+    public ShortestPathsBetweenSets(CompactGraph graph) {
+        final int atomCount = graph.getAtomCount();
+        this.graph = graph;
+        this.distanceFromSources = new int[atomCount];
+        this.distanceFromTargets = new int[atomCount];
+        this.reachedFromSources = new int[atomCount];
+        this.reachedFromTargets = new int[atomCount];
+        Arrays.fill(this.distanceFromSources, UNKNOWN);
+        Arrays.fill(this.distanceFromTargets, UNKNOWN);
+    }
+
+    /**
+     * Union of all shortest paths between two atom sets.
+     *
+     * @param sources Source atom set
+     * @param targets Target atom set
+     * @param union Set to fill; cleared first. Contains the atoms of all shortest paths, including their end atoms,
+     * or nothing when no path exists. When the sets intersect the union is their intersection.
+     * @return Shortest distance between the sets, {@code -1} when no path exists
+     * @throws IllegalArgumentException when a set refers an invalid atom index
+     */
+    public int unionOfShortestPaths(BitSet sources, BitSet targets, BitSet union) throws IllegalArgumentException {
+        final int atomCount = this.graph.getAtomCount();
+        if (sources.length() > atomCount || targets.length() > atomCount) {
+            throw new IllegalArgumentException("Atom set refers invalid atom index; atom count: " + atomCount);
+        }
+        reset();
+        union.clear();
+
+        final int distance = search(sources, targets, Integer.MAX_VALUE, this.distanceFromSources,
+                this.reachedFromSources, true);
+        if (distance == UNKNOWN) {
+            return UNKNOWN;
+        }
+        search(targets, null, distance, this.distanceFromTargets, this.reachedFromTargets, false);
+
+        for (int q = 0; q < this.reachedFromSourcesCount; q++) {
+            final int ai = this.reachedFromSources[q];
+            final int fromTargets = this.distanceFromTargets[ai];
+            if (fromTargets != UNKNOWN && this.distanceFromSources[ai] + fromTargets == distance) {
+                union.set(ai);
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Union of all shortest paths between two atom sets.
+     *
+     * @param sources Source atom set
+     * @param targets Target atom set
+     * @return Atoms of all shortest paths, see {@link #unionOfShortestPaths(BitSet, BitSet, BitSet)}
+     * @throws IllegalArgumentException when a set refers an invalid atom index
+     */
+    public BitSet unionOfShortestPaths(BitSet sources, BitSet targets) throws IllegalArgumentException {
+        final BitSet ret = new BitSet(this.graph.getAtomCount());
+        unionOfShortestPaths(sources, targets, ret);
+        return ret;
+    }
+
+    /**
+     * Shortest distance between two atom sets.
+     *
+     * @param sources Source atom set
+     * @param targets Target atom set
+     * @return Shortest distance, {@code -1} when no path exists
+     * @throws IllegalArgumentException when a set refers an invalid atom index
+     */
+    public int getShortestDistance(BitSet sources, BitSet targets) throws IllegalArgumentException {
+        final int atomCount = this.graph.getAtomCount();
+        if (sources.length() > atomCount || targets.length() > atomCount) {
+            throw new IllegalArgumentException("Atom set refers invalid atom index; atom count: " + atomCount);
+        }
+        reset();
+        return search(sources, targets, Integer.MAX_VALUE, this.distanceFromSources, this.reachedFromSources, true);
+    }
+
+    /**
+     * Reset distances touched by the previous query.
+     */
+    private void reset() {
+        for (int q = 0; q < this.reachedFromSourcesCount; q++) {
+            this.distanceFromSources[this.reachedFromSources[q]] = UNKNOWN;
+        }
+        for (int q = 0; q < this.reachedFromTargetsCount; q++) {
+            this.distanceFromTargets[this.reachedFromTargets[q]] = UNKNOWN;
+        }
+        this.reachedFromSourcesCount = 0;
+        this.reachedFromTargetsCount = 0;
+    }
+
+    /**
+     * Multi source breadth first search.
+     *
+     * @param starts Start atoms
+     * @param stopAt Atoms to stop at: the search completes the first layer containing any of them; {@code null} to
+     * search until {@code maxDepth}
+     * @param maxDepth Largest distance to label
+     * @param distances Distances to fill; expected to be {@link #UNKNOWN}
+     * @param reached Reached atoms in breadth first order
+     * @param fromSources {@code true} when searching from the source set
+     * @return Distance of the first layer containing a {@code stopAt} atom, {@link #UNKNOWN} when none reached; the
+     * depth reached when {@code stopAt} is {@code null}
+     */
+    private int search(BitSet starts, BitSet stopAt, int maxDepth, int [] distances, int [] reached,
+            boolean fromSources) {
+        final int [] offsets = this.graph.offsets;
+        final int [] neighbors = this.graph.neighbors;
+
+        int count = 0;
+        boolean found = false;
+        for (int i = starts.nextSetBit(0); i >= 0; i = starts.nextSetBit(i + 1)) {
+            distances[i] = 0;
+            reached[count++] = i;
+            found |= stopAt != null && stopAt.get(i);
+        }
+
+        int depth = 0;
+        int levelStart = 0;
+        while (!found && depth < maxDepth && levelStart < count) {
+            final int levelEnd = count;
+            for (int q = levelStart; q < levelEnd; q++) {
+                final int ai = reached[q];
+                for (int j = offsets[ai]; j < offsets[ai + 1]; j++) {
+                    final int n = neighbors[j];
+                    if (distances[n] == UNKNOWN) {
+                        distances[n] = depth + 1;
+                        reached[count++] = n;
+                        found |= stopAt != null && stopAt.get(n);
+                    }
+                }
+            }
+            levelStart = levelEnd;
+            if (count > levelEnd) {
+                depth++;
+            }
+        }
+
+        if (fromSources) {
+            this.reachedFromSourcesCount = count;
+        } else {
+            this.reachedFromTargetsCount = count;
+        }
+
+        if (stopAt == null) {
+            return depth;
+        }
+        return found ? depth : UNKNOWN;
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Thread safe, memory bounded cache of all pairs shortest distances.
+ *
+ * Entries are keyed by the canonical form of the structure graph (see {@link CanonicalGraph}), so structures
+ * differing only in atom numbering share an entry. Lookups return a {@link Entry} translating between the caller's
+ * atom numbering and the canonical one.
+ *
+ * Entries are evicted when the estimated memory of keys and distance matrices exceeds the configured budget.
+ * A hit costs the canonicalization of the structure: a partition refinement in O(m log n) per tie broken, measured by
+ * {@code ShortestPathsCacheBenchmark} to be a fraction of recomputing the distances.
+ */
+public class ShortestPathsCache {
+
+    /**
+     * Cached distances.
+     */
+    private final Cache<CanonicalGraph, AllPairsShortestPaths> cache;
+
+    /**
+     * Algorithm used on misses.
+     */
+    private final AllPairsShortestPaths.Algorithm algorithm;
+
+    /**
+     * Shortest distances of a structure in the caller's atom numbering.
+     */
+    public static final class Entry {
+        /**
+         * Structure in the caller's numbering.
+         */
+        private final CompactGraph graph;
+
+        /**
+         * Canonical index of each atom.
+         */
+        private final int [] canonicalIndex;
+
+        /**
+         * Distances in canonical numbering.
+         */
+        private final AllPairsShortestPaths canonical;
+
+        /**
+         * Construct.
+         *
+         * @param graph Structure in the caller's numbering
+         * @param canonicalIndex Canonical index of each atom
+         * @param canonical Distances in canonical numbering
+         */
+        private Entry(CompactGraph graph, int [] canonicalIndex, AllPairsShortestPaths canonical) {
+            this.graph = graph;
+            this.canonicalIndex = canonicalIndex;
+            this.canonical = canonical;
+        }
+
+        /**
+         * Atom count.
+         *
+         * @return Atom count
+         */
+        public int getAtomCount() {
+            return this.graph.getAtomCount();
+        }
+
+        /**
+         * Check if a path exists.
+         *
+         * @param a1 Atom index
+         * @param a2 Atom index
+         * @return {@code true} when the two atoms are connected
+         */
+        public boolean pathExists(int a1, int a2) {
+            return this.canonical.pathExists(this.canonicalIndex[a1], this.canonicalIndex[a2]);
+        }
+
+        /**
+         * Shortest path length.
+         *
+         * @param a1 Atom index
+         * @param a2 Atom index
+         * @return Length of the shortest path
+         * @throws IllegalArgumentException when no path exists
+         */
+        public int distance(int a1, int a2) throws IllegalArgumentException {
+            return this.canonical.distance(this.canonicalIndex[a1], this.canonicalIndex[a2]);
+        }
+
+        /**
+         * Shortest paths from a central atom.
+         *
+         * The returned instance uses the caller's atom numbering and is backed by the cached distances; no shortest
+         * path search is made.
+         *
+         * @param a1 Central atom index
+         * @return Shortest paths from the specified atom
+         */
+        public FindShortestPaths getShortestPathsFrom(int a1) {
+            final int c1 = this.canonicalIndex[a1];
+            final int [] distances = new int[getAtomCount()];
+            for (int j = 0; j < distances.length; j++) {
+                final int c2 = this.canonicalIndex[j];
+                distances[j] = this.canonical.pathExists(c1, c2) ? this.canonical.distance(c1, c2) : -1;
+            }
+            return new FindShortestPaths(this.graph, a1, distances);
+        }
+    }
+
+    /**
+     * Construct using {@link AllPairsShortestPaths.Algorithm#BFS}.
+     *
+     * @param maxBytes Memory budget in bytes
+     */
+    public ShortestPathsCache(long maxBytes) {
+        this(maxBytes, AllPairsShortestPaths.Algorithm.BFS);
+    }
+
+    /**
+     * Construct.
+     *
+     * @param maxBytes Memory budget in bytes
+     * @param algorithm Algorithm used to calculate distances on misses
+     */
+    public ShortestPathsCache(long maxBytes, AllPairsShortestPaths.Algorithm algorithm) {
+        this.algorithm = algorithm;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                // the cached distances hold the key's graph, see CanonicalGraph.toGraph()
+                .<CanonicalGraph, AllPairsShortestPaths>weigher((key, value) ->
+                        (int) Math.min(Integer.MAX_VALUE, key.getMemorySize() + value.getMemorySize()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Look up distances, calculating them on miss.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @return Distances in the numbering of the connection table
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public Entry get(int [][] ctab) throws IllegalArgumentException {
+        return get(CompactGraph.of(ctab));
+    }
+
+    /**
+     * Look up distances, calculating them on miss.
+     *
+     * @param molecule Molecule
+     * @return Distances in the atom numbering of the molecule
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public Entry get(Molecule molecule) throws IllegalArgumentException {
+        return get(CompactGraph.of(molecule));
+    }
+
+    /**
+     * Look up distances, calculating them on miss.
+     *
+     * @param graph Input structure
+     * @return Distances in the atom numbering of the graph
+     * @throws IllegalArgumentException when the structure is too large for the matrix representation
+     */
+    public Entry get(CompactGraph graph) throws IllegalArgumentException {
+        final int [] canonicalIndex = CanonicalGraph.canonicalOrder(graph);
+        final CanonicalGraph key = new CanonicalGraph(graph, canonicalIndex);
+        try {
+            final AllPairsShortestPaths canonical = this.cache.get(key,
+                    () -> new AllPairsShortestPaths(key.toGraph(), this.algorithm));
+            return new Entry(graph, canonicalIndex, canonical);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Distance calculation failed", e.getCause());
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cache statistics.
+     *
+     * @return Snapshot of hit, miss, load and eviction counts
+     */
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    /**
+     * Number of cached structures.
+     *
+     * @return Approximate entry count
+     */
+    public long size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Discard all entries.
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+}
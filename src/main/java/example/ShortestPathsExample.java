@@ -45,10 +45,11 @@ public class ShortestPathsExample {
         System.out.println();
 
         final Molecule m = ofSmiles(smi);
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(CompactGraph.of(m));
 
         for (int i = 0; i < m.getAtomCount(); i++) {
             System.out.println("Using central atom # " + i);
-            final FindShortestPaths fsp = new FindShortestPaths(m.getCtab(), i);
+            final FindShortestPaths fsp = allPairs.getShortestPathsFrom(i);
 
             System.out.println("    FindShortestPaths instance: " + fsp.toString());
 
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Bulk export of shortest distances, paths and unions.
+ *
+ * Records are encoded into a reused direct buffer which is drained into a {@link FileChannel} when full; text
+ * records are formatted digit by digit into a reused line buffer first, so no {@link String} is created per value.
+ *
+ * Every record refers a molecule id chosen by the caller, a central atom {@code a1} and an other atom {@code a2},
+ * followed by its values:
+ * <ul>
+ *     <li>{@link Kind#DISTANCE}: the shortest path length.</li>
+ *     <li>{@link Kind#PATH}: atom indices of a shortest path from {@code a1} to {@code a2}.</li>
+ *     <li>{@link Kind#UNION}: atom indices of the union of all shortest paths, in increasing order.</li>
+ * </ul>
+ *
+ * Text formats start with the header line {@code kind,molecule,a1,a2,values} (tab separated for {@link Format#TSV}),
+ * followed by a line per record; values are separated by spaces. The binary format, all values little endian, starts
+ * with magic {@link #MAGIC} and format version {@link #VERSION}; each record is the kind ordinal (byte), molecule id,
+ * {@code a1}, {@code a2}, value count and the values, all ints. Instances are not thread safe.
+ */
+public class ShortestPathsExporter implements AutoCloseable {
+
+    /**
+     * Output formats.
+     */
+    public enum Format {
+        /**
+         * Comma separated values.
+         */
+        CSV,
+
+        /**
+         * Tab separated values.
+         */
+        TSV,
+
+        /**
+         * Length prefixed little endian records.
+         */
+        BINARY
+    }
+
+    /**
+     * Record kinds.
+     */
+    public enum Kind {
+        /**
+         * Shortest path length.
+         */
+        DISTANCE,
+
+        /**
+         * Atoms of a single shortest path.
+         */
+        PATH,
+
+        /**
+         * Atoms of the union of shortest paths.
+         */
+        UNION;
+
+        /**
+         * Name in text formats.
+         */
+        private final byte [] text = name().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * File magic of the binary format, {@code "SPEX"} in file byte order.
+     */
+    static final int MAGIC = 0x58455053;
+
+    /**
+     * Binary format version.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Default buffer size in bytes.
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Smallest buffer size; a binary record header always fits.
+     */
+    static final int MIN_BUFFER_SIZE = 64;
+
+    /**
+     * Longest formatted int: sign and ten digits, followed by a separator.
+     */
+    private static final int MAX_DECIMAL_SIZE = 12;
+
+    /**
+     * Powers of ten up to {@code 10^9}.
+     */
+    private static final int [] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000,
+        1000000000};
+
+    /**
+     * Output file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Output format.
+     */
+    private final Format format;
+
+    /**
+     * Field separator of text formats.
+     */
+    private final byte separator;
+
+    /**
+     * Output buffer, drained when full.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Text record being formatted; copied to {@link #buffer} in bulk, since single byte puts are slow on direct
+     * buffers.
+     */
+    private byte [] line = new byte[256];
+
+    /**
+     * Number of bytes in {@link #line}.
+     */
+    private int lineLength;
+
+    /**
+     * Create an exporter, overwriting existing files.
+     *
+     * @param path File to write
+     * @param format Output format
+     * @throws IOException when the file cannot be opened
+     */
+    public ShortestPathsExporter(Path path, Format format) throws IOException {
+        this(path, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create an exporter, overwriting existing files.
+     *
+     * @param path File to write
+     * @param format Output format
+     * @param bufferSize Buffer size in bytes, at least {@link #MIN_BUFFER_SIZE}
+     * @throws IOException when the file cannot be opened
+     * @throws IllegalArgumentException when the buffer size is too small
+     */
+    public ShortestPathsExporter(Path path, Format format, int bufferSize) throws IOException,
+            IllegalArgumentException {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+        }
+        this.format = format;
+        this.separator = (byte) (format == Format.TSV ? '\t' : ',');
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        if (format == Format.BINARY) {
+            this.buffer.putInt(MAGIC).putInt(VERSION);
+        } else {
+            final char sep = (char) this.separator;
+            putAscii("kind" + sep + "molecule" + sep + "a1" + sep + "a2" + sep + "values\n");
+            putLine();
+        }
+    }
+
+    /**
+     * Write a shortest distance.
+     *
+     * @param molecule Molecule id
+     * @param a1 Central atom index
+     * @param a2 Other atom index
+     * @param distance Shortest path length
+     * @throws IOException when writing fails
+     */
+    public void writeDistance(int molecule, int a1, int a2, int distance) throws IOException {
+        startRecord(Kind.DISTANCE, molecule, a1, a2, 1);
+        putValue(distance, true);
+        endRecord();
+    }
+
+    /**
+     * Write all shortest distances of a structure.
+     *
+     * A record is written for each connected atom pair {@code a1 < a2}.
+     *
+     * @param molecule Molecule id
+     * @param allPairs Distances of the structure
+     * @return Number of records written
+     * @throws IOException when writing fails
+     */
+    public long writeDistances(int molecule, AllPairsShortestPaths allPairs) throws IOException {
+        final int atomCount = allPairs.getAtomCount();
+        long ret = 0;
+        for (int a1 = 0; a1 < atomCount; a1++) {
+            for (int a2 = a1 + 1; a2 < atomCount; a2++) {
+                if (allPairs.pathExists(a1, a2)) {
+                    writeDistance(molecule, a1, a2, allPairs.distance(a1, a2));
+                    ret++;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Write a shortest path.
+     *
+     * @param molecule Molecule id
+     * @param path Atom indices along the path; its first and last atoms are written as {@code a1} and {@code a2}
+     * @throws IOException when writing fails
+     * @throws IllegalArgumentException when the path is empty
+     */
+    public void writePath(int molecule, int [] path) throws IOException, IllegalArgumentException {
+        if (path.length == 0) {
+            throw new IllegalArgumentException("Empty path");
+        }
+        startRecord(Kind.PATH, molecule, path[0], path[path.length - 1], path.length);
+        for (int k = 0; k < path.length; k++) {
+            putValue(path[k], k == 0);
+        }
+        endRecord();
+    }
+
+    /**
+     * Write all shortest paths to an other atom, each as a {@link Kind#PATH} record.
+     *
+     * @param molecule Molecule id
+     * @param paths Shortest paths from the central atom
+     * @param a2 Other atom
+     * @return Number of paths written
+     * @throws IOException when writing fails
+     * @throws IllegalArgumentException when no path exists
+     */
+    public long writeShortestPaths(int molecule, FindShortestPaths paths, int a2) throws IOException,
+            IllegalArgumentException {
+        final long [] count = new long[1];
+        final IOException [] failure = new IOException[1];
+        paths.forEachShortestPathTo(a2, path -> {
+            try {
+                writePath(molecule, path);
+                count[0]++;
+                return true;
+            } catch (IOException e) {
+                failure[0] = e;
+                return false;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return count[0];
+    }
+
+    /**
+     * Write the union of shortest paths.
+     *
+     * @param molecule Molecule id
+     * @param a1 Central atom index
+     * @param a2 Other atom index
+     * @param union Atom indices of the union, see {@link FindShortestPaths#unionOfShortestPaths(int)}
+     * @throws IOException when writing fails
+     */
+    public void writeUnion(int molecule, int a1, int a2, BitSet union) throws IOException {
+        startRecord(Kind.UNION, molecule, a1, a2, union.cardinality());
+        boolean first = true;
+        for (int i = union.nextSetBit(0); i >= 0; i = union.nextSetBit(i + 1)) {
+            putValue(i, first);
+            first = false;
+
+            if (i == Integer.MAX_VALUE) {
+                break; // or (i+1) would overflow
+            }
+        }
+        endRecord();
+    }
+
+    /**
+     * Start a record.
+     *
+     * @param kind Record kind
+     * @param molecule Molecule id
+     * @param a1 Central atom index
+     * @param a2 Other atom index
+     * @param valueCount Number of values to follow
+     * @throws IOException when writing fails
+     */
+    private void startRecord(Kind kind, int molecule, int a1, int a2, int valueCount) throws IOException {
+        if (this.format == Format.BINARY) {
+            ensure(MIN_BUFFER_SIZE);
+            this.buffer.put((byte) kind.ordinal()).putInt(molecule).putInt(a1).putInt(a2).putInt(valueCount);
+        } else {
+            this.lineLength = 0;
+            ensureLine(kind.text.length + 3 * MAX_DECIMAL_SIZE + (long) valueCount * MAX_DECIMAL_SIZE + 1);
+            System.arraycopy(kind.text, 0, this.line, 0, kind.text.length);
+            this.lineLength = kind.text.length;
+            this.line[this.lineLength++] = this.separator;
+            putDecimal(molecule);
+            this.line[this.lineLength++] = this.separator;
+            putDecimal(a1);
+            this.line[this.lineLength++] = this.separator;
+            putDecimal(a2);
+            this.line[this.lineLength++] = this.separator;
+        }
+    }
+
+    /**
+     * Append a value to the current record.
+     *
+     * @param value Value
+     * @param first {@code true} for the first value of the record
+     * @throws IOException when writing fails
+     */
+    private void putValue(int value, boolean first) throws IOException {
+        if (this.format == Format.BINARY) {
+            ensure(Integer.BYTES);
+            this.buffer.putInt(value);
+        } else {
+            if (!first) {
+                this.line[this.lineLength++] = ' ';
+            }
+            putDecimal(value);
+        }
+    }
+
+    /**
+     * End the current record.
+     *
+     * Text records are copied from the line buffer with a single bulk put, or in chunks when longer than the output
+     * buffer.
+     *
+     * @throws IOException when writing fails
+     */
+    private void endRecord() throws IOException {
+        if (this.format != Format.BINARY) {
+            this.line[this.lineLength++] = '\n';
+            putLine();
+        }
+    }
+
+    /**
+     * Copy the line buffer into the output buffer, draining it when full.
+     *
+     * @throws IOException when writing fails
+     */
+    private void putLine() throws IOException {
+        int offset = 0;
+        while (offset < this.lineLength) {
+            if (!this.buffer.hasRemaining()) {
+                drain();
+            }
+            final int length = Math.min(this.buffer.remaining(), this.lineLength - offset);
+            this.buffer.put(this.line, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Grow the line buffer.
+     *
+     * @param size Number of bytes needed for the current line
+     * @throws IllegalArgumentException when a line would exceed the largest array size
+     */
+    private void ensureLine(long size) throws IllegalArgumentException {
+        if (size > this.line.length) {
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Record too long: " + size + " bytes");
+            }
+            this.line = Arrays.copyOf(this.line, (int) Math.max(size, 2L * this.line.length));
+        }
+    }
+
+    /**
+     * Format an int in decimal into the line buffer; room is expected for {@link #MAX_DECIMAL_SIZE} bytes.
+     *
+     * @param value Value
+     */
+    private void putDecimal(int value) {
+        if (value == Integer.MIN_VALUE) {
+            putAscii("-2147483648");
+            return;
+        }
+        int v = value;
+        if (v < 0) {
+            this.line[this.lineLength++] = '-';
+            v = -v;
+        }
+        int length = 1;
+        while (length < 10 && v >= POWERS_OF_TEN[length]) {
+            length++;
+        }
+        final int start = this.lineLength;
+        for (int p = start + length - 1; p >= start; p--) {
+            final int q = v / 10;
+            this.line[p] = (byte) ('0' + v - 10 * q);
+            v = q;
+        }
+        this.lineLength = start + length;
+    }
+
+    /**
+     * Append ASCII text to the line buffer; room is expected for it.
+     *
+     * @param text Text
+     */
+    private void putAscii(String text) {
+        for (int k = 0; k < text.length(); k++) {
+            this.line[this.lineLength++] = (byte) text.charAt(k);
+        }
+    }
+
+    /**
+     * Make room in the buffer, draining it when necessary.
+     *
+     * @param size Number of bytes needed
+     * @throws IOException when writing fails
+     */
+    private void ensure(int size) throws IOException {
+        if (this.buffer.remaining() < size) {
+            drain();
+        }
+    }
+
+    /**
+     * Write the buffer contents to the file.
+     *
+     * @throws IOException when writing fails
+     */
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Write buffered records to the file.
+     *
+     * @throws IOException when writing fails
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Write buffered records, then close the file.
+     *
+     * @throws IOException when writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in instrumentation of {@link FindShortestPaths}.
+ *
+ * Metrics are collected only while an instance is enabled by {@link #enable(ShortestPathsMetrics)}. Instrumented
+ * operations read the enabled instance once and skip all recording when there is none, so the disabled path costs a
+ * volatile read per operation and allocates nothing. Inner loops count into local variables which are published once
+ * per operation.
+ *
+ * Counters are {@link LongAdder}s, so concurrent searches do not contend on a single memory location. Latencies are
+ * collected into power of two histograms per {@link Operation} and molecule size bucket. Metrics can be read directly,
+ * through JMX (see {@link #registerMBean()}) or pushed to {@link Sink}s as operations complete.
+ */
+public final class ShortestPathsMetrics implements ShortestPathsMetricsMXBean {
+
+    /**
+     * Default JMX object name.
+     */
+    public static final String OBJECT_NAME = "example:type=ShortestPathsMetrics";
+
+    /**
+     * Upper atom count limits of the size buckets; larger molecules fall into a last, open bucket.
+     */
+    private static final int [] SIZE_LIMITS = {16, 64, 256, 1024, 4096};
+
+    /**
+     * Enabled instance; {@code null} when disabled.
+     */
+    private static volatile ShortestPathsMetrics enabled;
+
+    /**
+     * Event counters.
+     */
+    public enum Counter {
+        /**
+         * Shortest distance labelings, see {@link FindShortestPaths} constructors.
+         */
+        SEARCHES,
+
+        /**
+         * Relaxation sweeps of {@link FindShortestPaths.Algorithm#SWEEP}.
+         */
+        SWEEPS,
+
+        /**
+         * Neighbor list entries examined during labelings.
+         */
+        NEIGHBOR_VISITS,
+
+        /**
+         * Paths produced by shortest path enumerations.
+         */
+        PATHS,
+
+        /**
+         * Atoms expanded while collecting unions of shortest paths.
+         */
+        UNION_EXPANSIONS
+    }
+
+    /**
+     * Timed operations.
+     */
+    public enum Operation {
+        /**
+         * Shortest distance labeling from a central atom.
+         */
+        SEARCH,
+
+        /**
+         * Visiting all shortest paths, see {@link FindShortestPaths#forEachShortestPathTo(int, PathVisitor)}. Lazy
+         * enumerations by iterator are counted but not timed.
+         */
+        ENUMERATION,
+
+        /**
+         * Union of shortest paths, see {@link FindShortestPaths#unionOfShortestPaths(java.util.BitSet)}.
+         */
+        UNION
+    }
+
+    /**
+     * Receiver of operation timings.
+     *
+     * Invoked synchronously on the thread completing the operation, possibly concurrently; implementations must be
+     * thread safe and fast.
+     */
+    public interface Sink {
+        /**
+         * Receive an operation timing.
+         *
+         * @param operation Operation completed
+         * @param atomCount Atom count of the structure
+         * @param nanos Elapsed time in nanoseconds
+         */
+        void record(Operation operation, int atomCount, long nanos);
+    }
+
+    /**
+     * Latency histogram with power of two buckets.
+     *
+     * Bucket {@code k > 0} counts latencies in {@code [2^(k-1), 2^k)} nanoseconds, bucket {@code 0} counts zero
+     * latencies.
+     */
+    public static final class LatencyHistogram {
+        /**
+         * Bucket counts.
+         */
+        private final LongAdder [] buckets = new LongAdder[Long.SIZE];
+
+        /**
+         * Sum of latencies.
+         */
+        private final LongAdder totalNanos = new LongAdder();
+
+        /**
+         * Construct.
+         */
+        private LatencyHistogram() {
+            for (int k = 0; k < this.buckets.length; k++) {
+                this.buckets[k] = new LongAdder();
+            }
+        }
+
+        /**
+         * Record a latency.
+         *
+         * @param nanos Latency in nanoseconds; negative values are recorded as zero
+         */
+        private void record(long nanos) {
+            final long value = Math.max(0, nanos);
+            this.buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+            this.totalNanos.add(value);
+        }
+
+        /**
+         * Reset.
+         */
+        private void reset() {
+            for (LongAdder bucket : this.buckets) {
+                bucket.reset();
+            }
+            this.totalNanos.reset();
+        }
+
+        /**
+         * Number of recorded latencies.
+         *
+         * @return Count
+         */
+        public long getCount() {
+            long ret = 0;
+            for (LongAdder bucket : this.buckets) {
+                ret += bucket.sum();
+            }
+            return ret;
+        }
+
+        /**
+         * Sum of recorded latencies.
+         *
+         * @return Sum in nanoseconds
+         */
+        public long getTotalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        /**
+         * Bucket counts.
+         *
+         * @return Count of each bucket
+         */
+        public long [] getBucketCounts() {
+            final long [] ret = new long[this.buckets.length];
+            for (int k = 0; k < ret.length; k++) {
+                ret[k] = this.buckets[k].sum();
+            }
+            return ret;
+        }
+
+        /**
+         * Latency percentile.
+         *
+         * @param percentile Percentile in range {@code (0, 100]}
+         * @return Upper bound of the bucket containing the percentile in nanoseconds, {@code 0} when empty
+         * @throws IllegalArgumentException when percentile is out of range
+         */
+        public long getPercentile(double percentile) throws IllegalArgumentException {
+            if (!(percentile > 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Invalid percentile " + percentile);
+            }
+            final long [] counts = getBucketCounts();
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            final long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int k = 0; k < counts.length; k++) {
+                seen += counts[k];
+                if (seen >= rank && seen > 0) {
+                    return k == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << k) - 1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Event counters, indexed by {@link Counter#ordinal()}.
+     */
+    private final LongAdder [] counters = new LongAdder[Counter.values().length];
+
+    /**
+     * Latency histograms, indexed by {@link Operation#ordinal()} and size bucket.
+     */
+    private final LatencyHistogram [][] histograms = new LatencyHistogram[Operation.values().length]
+            [SIZE_LIMITS.length + 1];
+
+    /**
+     * Registered sinks.
+     */
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Object name when registered to JMX.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Construct.
+     */
+    public ShortestPathsMetrics() {
+        for (int c = 0; c < this.counters.length; c++) {
+            this.counters[c] = new LongAdder();
+        }
+        for (LatencyHistogram [] row : this.histograms) {
+            for (int b = 0; b < row.length; b++) {
+                row[b] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Enable collecting metrics.
+     *
+     * @param metrics Instance to collect into; replaces the previously enabled one
+     */
+    public static void enable(ShortestPathsMetrics metrics) {
+        enabled = metrics;
+    }
+
+    /**
+     * Disable collecting metrics.
+     */
+    public static void disable() {
+        enabled = null;
+    }
+
+    /**
+     * Enabled instance.
+     *
+     * @return Instance collecting metrics, {@code null} when disabled
+     */
+    public static ShortestPathsMetrics getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Size bucket of a structure.
+     *
+     * @param atomCount Atom count
+     * @return Bucket index
+     */
+    private static int sizeBucket(int atomCount) {
+        int ret = 0;
+        while (ret < SIZE_LIMITS.length && atomCount > SIZE_LIMITS[ret]) {
+            ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * Label of a size bucket.
+     *
+     * @param bucket Bucket index
+     * @return Label like {@code <=64} or {@code >4096}
+     */
+    private static String sizeLabel(int bucket) {
+        return bucket < SIZE_LIMITS.length ? "<=" + SIZE_LIMITS[bucket] : ">" + SIZE_LIMITS[SIZE_LIMITS.length - 1];
+    }
+
+    /**
+     * Add to a counter.
+     *
+     * @param counter Counter
+     * @param value Value to add
+     */
+    void add(Counter counter, long value) {
+        this.counters[counter.ordinal()].add(value);
+    }
+
+    /**
+     * Record an operation timing.
+     *
+     * @param operation Operation completed
+     * @param atomCount Atom count of the structure
+     * @param nanos Elapsed time in nanoseconds
+     */
+    void record(Operation operation, int atomCount, long nanos) {
+        this.histograms[operation.ordinal()][sizeBucket(atomCount)].record(nanos);
+        for (Sink sink : this.sinks) {
+            sink.record(operation, atomCount, nanos);
+        }
+    }
+
+    /**
+     * Register a sink.
+     *
+     * @param sink Sink to receive subsequent operation timings
+     */
+    public void addSink(Sink sink) {
+        this.sinks.add(sink);
+    }
+
+    /**
+     * Unregister a sink.
+     *
+     * @param sink Sink to remove
+     */
+    public void removeSink(Sink sink) {
+        this.sinks.remove(sink);
+    }
+
+    /**
+     * Counter value.
+     *
+     * @param counter Counter
+     * @return Current value
+     */
+    public long get(Counter counter) {
+        return this.counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Latency histogram.
+     *
+     * @param operation Operation
+     * @param atomCount Atom count selecting the size bucket
+     * @return Histogram of the operation for molecules of the size bucket containing {@code atomCount}
+     */
+    public LatencyHistogram getHistogram(Operation operation, int atomCount) {
+        return this.histograms[operation.ordinal()][sizeBucket(atomCount)];
+    }
+
+    /**
+     * Register to the platform MBean server as {@link #OBJECT_NAME}.
+     *
+     * @return Object name registered
+     * @throws JMException when registration fails, for example when the name is already registered
+     */
+    public synchronized ObjectName registerMBean() throws JMException {
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        this.objectName = name;
+        return name;
+    }
+
+    /**
+     * Unregister from the platform MBean server; no operation when not registered.
+     *
+     * @throws JMException when unregistration fails
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (this.objectName != null) {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(this.objectName);
+            this.objectName = null;
+        }
+    }
+
+    @Override
+    public long getSearchCount() {
+        return get(Counter.SEARCHES);
+    }
+
+    @Override
+    public long getSweepCount() {
+        return get(Counter.SWEEPS);
+    }
+
+    @Override
+    public long getNeighborVisitCount() {
+        return get(Counter.NEIGHBOR_VISITS);
+    }
+
+    @Override
+    public long getPathCount() {
+        return get(Counter.PATHS);
+    }
+
+    @Override
+    public long getUnionExpansionCount() {
+        return get(Counter.UNION_EXPANSIONS);
+    }
+
+    /**
+     * Summarize non empty histograms.
+     *
+     * @param summary Value to report of each histogram
+     * @return Values by operation key
+     */
+    private Map<String, Long> summarize(ToLongFunction<LatencyHistogram> summary) {
+        final Map<String, Long> ret = new TreeMap<>();
+        for (Operation operation : Operation.values()) {
+            for (int b = 0; b <= SIZE_LIMITS.length; b++) {
+                final LatencyHistogram histogram = this.histograms[operation.ordinal()][b];
+                if (histogram.getCount() > 0) {
+                    ret.put(operation + "/" + sizeLabel(b), summary.applyAsLong(histogram));
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return summarize(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getMedianLatencyNanos() {
+        return summarize(h -> h.getPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getP99LatencyNanos() {
+        return summarize(h -> h.getPercentile(99));
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : this.counters) {
+            counter.reset();
+        }
+        for (LatencyHistogram [] row : this.histograms) {
+            for (LatencyHistogram histogram : row) {
+                histogram.reset();
+            }
+        }
+    }
+
+}
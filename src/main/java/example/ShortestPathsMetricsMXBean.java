@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link ShortestPathsMetrics}.
+ *
+ * Operation keys are of the form {@code OPERATION/size bucket}, for example {@code SEARCH/<=64}.
+ */
+public interface ShortestPathsMetricsMXBean {
+
+    /**
+     * Number of shortest distance labelings.
+     *
+     * @return Count of {@link FindShortestPaths} constructions
+     */
+    long getSearchCount();
+
+    /**
+     * Number of relaxation sweeps.
+     *
+     * @return Sweeps made by {@link FindShortestPaths.Algorithm#SWEEP} labelings
+     */
+    long getSweepCount();
+
+    /**
+     * Number of neighbor visits.
+     *
+     * @return Neighbor list entries examined during labelings
+     */
+    long getNeighborVisitCount();
+
+    /**
+     * Number of paths produced.
+     *
+     * @return Paths returned or visited by shortest path enumerations
+     */
+    long getPathCount();
+
+    /**
+     * Number of atoms expanded by unions.
+     *
+     * @return Atoms expanded while collecting unions of shortest paths
+     */
+    long getUnionExpansionCount();
+
+    /**
+     * Operation counts.
+     *
+     * @return Number of timed operations per operation key
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Median latencies.
+     *
+     * @return Upper bound of the median latency in nanoseconds per operation key
+     */
+    Map<String, Long> getMedianLatencyNanos();
+
+    /**
+     * 99th percentile latencies.
+     *
+     * @return Upper bound of the 99th percentile latency in nanoseconds per operation key
+     */
+    Map<String, Long> getP99LatencyNanos();
+
+    /**
+     * Reset all counters and histograms.
+     */
+    void reset();
+
+}
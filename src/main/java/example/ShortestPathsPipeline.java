@@ -0,0 +1,467 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.formats.MolImporter;
+import chemaxon.struc.Molecule;
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.collect.AbstractIterator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parallel batch processing of structure libraries.
+ *
+ * Records are read on the calling thread; parsing and the worker function (typically shortest path calculations) run
+ * on a work stealing pool. At most {@code capacity} records are in flight: reading blocks until results are consumed,
+ * so memory use does not depend on input size. Results are passed to the sink on the calling thread, either in input
+ * order or in completion order.
+ *
+ * Worker functions are invoked concurrently. Per thread reusable state (like {@link ShortestPathsWorkspace}) can be
+ * kept in a {@link ThreadLocal}. Typical usage:
+ * <pre><code>
+ *     try (ShortestPathsPipeline&lt;Integer&gt; pipeline = new ShortestPathsPipeline&lt;&gt;(
+ *             Format.SMILES, m -&gt; new AllPairsShortestPaths(CompactGraph.of(m)).getDiameter(), Ordering.ORDERED)) {
+ *         pipeline.run(reader, result -&gt; ...);
+ *     }
+ * </code></pre>
+ *
+ * @param <R> Type of the worker results
+ */
+public class ShortestPathsPipeline<R> implements AutoCloseable {
+
+    /**
+     * Input record formats.
+     */
+    public enum Format {
+        /**
+         * One SMILES per line, optionally followed by whitespace and a name; blank lines are skipped.
+         */
+        SMILES,
+
+        /**
+         * SD file; records are terminated by {@code $$$$} lines.
+         */
+        SDF
+    }
+
+    /**
+     * Order of results passed to the sink.
+     */
+    public enum Ordering {
+        /**
+         * Input order. A slow record delays passing subsequent results, but not their calculation.
+         */
+        ORDERED,
+
+        /**
+         * Completion order.
+         */
+        UNORDERED
+    }
+
+    /**
+     * Outcome of processing a single record.
+     *
+     * @param <R> Type of the worker result
+     */
+    public static final class Result<R> {
+        /**
+         * Zero based index of the record in the input.
+         */
+        private final long index;
+
+        /**
+         * Input record.
+         */
+        private final String record;
+
+        /**
+         * Worker result; {@code null} on failure.
+         */
+        private final R value;
+
+        /**
+         * Failure cause; {@code null} on success.
+         */
+        private final Exception error;
+
+        /**
+         * Construct.
+         *
+         * @param index Record index
+         * @param record Input record
+         * @param value Worker result
+         * @param error Failure cause
+         */
+        private Result(long index, String record, R value, Exception error) {
+            this.index = index;
+            this.record = record;
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * Record index.
+         *
+         * @return Zero based index of the record in the input
+         */
+        public long getIndex() {
+            return this.index;
+        }
+
+        /**
+         * Input record.
+         *
+         * @return Record text as read
+         */
+        public String getRecord() {
+            return this.record;
+        }
+
+        /**
+         * Check success.
+         *
+         * @return {@code true} when the record was parsed and processed, {@code false} on failure
+         */
+        public boolean isSuccess() {
+            return this.error == null;
+        }
+
+        /**
+         * Worker result.
+         *
+         * @return Result of the worker function
+         * @throws IllegalStateException when processing failed
+         */
+        public R getValue() throws IllegalStateException {
+            if (this.error != null) {
+                throw new IllegalStateException("Record #" + this.index + " failed", this.error);
+            }
+            return this.value;
+        }
+
+        /**
+         * Failure cause.
+         *
+         * @return Exception thrown by parsing or by the worker; {@code null} on success
+         */
+        public Exception getError() {
+            return this.error;
+        }
+    }
+
+    /**
+     * Input format.
+     */
+    private final Format format;
+
+    /**
+     * Worker function.
+     */
+    private final Function<Molecule, R> worker;
+
+    /**
+     * Result ordering.
+     */
+    private final Ordering ordering;
+
+    /**
+     * Maximal number of records in flight.
+     */
+    private final int capacity;
+
+    /**
+     * Worker pool.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Construct using all available processors.
+     *
+     * @param format Input format
+     * @param worker Worker function; invoked concurrently
+     * @param ordering Result ordering
+     */
+    public ShortestPathsPipeline(Format format, Function<Molecule, R> worker, Ordering ordering) {
+        this(format, worker, ordering, Runtime.getRuntime().availableProcessors(),
+                16 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct.
+     *
+     * @param format Input format
+     * @param worker Worker function; invoked concurrently
+     * @param ordering Result ordering
+     * @param parallelism Number of worker threads
+     * @param capacity Maximal number of records read but not yet passed to the sink
+     * @throws IllegalArgumentException when parallelism or capacity is not positive
+     */
+    public ShortestPathsPipeline(Format format, Function<Molecule, R> worker, Ordering ordering, int parallelism,
+            int capacity) throws IllegalArgumentException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        this.format = format;
+        this.worker = worker;
+        this.ordering = ordering;
+        this.capacity = capacity;
+        this.executor = Executors.newWorkStealingPool(parallelism);
+    }
+
+    /**
+     * Split input into records.
+     *
+     * @param reader Input; not closed
+     * @param format Input format
+     * @return Records; reading failures are thrown as {@link UncheckedIOException}
+     */
+    public static Iterator<String> records(BufferedReader reader, Format format) {
+        return new AbstractIterator<String>() {
+            @Override
+            protected String computeNext() {
+                try {
+                    switch (format) {
+                        case SMILES:
+                            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                                if (!line.trim().isEmpty()) {
+                                    return line;
+                                }
+                            }
+                            return endOfData();
+                        case SDF:
+                            final StringBuilder record = new StringBuilder();
+                            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                                if (line.startsWith("$$$$")) {
+                                    return record.append(line).append('\n').toString();
+                                }
+                                record.append(line).append('\n');
+                            }
+                            // tolerate missing terminator after the last record
+                            return record.toString().trim().isEmpty() ? endOfData() : record.toString();
+                        default:
+                            throw new IllegalArgumentException("Unknown format " + format);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Parse a record.
+     *
+     * @param record Record text
+     * @return Parsed molecule
+     * @throws Exception on parse failure
+     */
+    private Molecule parse(String record) throws Exception {
+        switch (this.format) {
+            case SMILES:
+                return ofSmiles(record);
+            case SDF:
+                return MolImporter.importMol(record, "sdf");
+            default:
+                throw new IllegalArgumentException("Unknown format " + this.format);
+        }
+    }
+
+    /**
+     * Process a single record; invoked on a worker thread.
+     *
+     * @param index Record index
+     * @param record Record text
+     * @return Outcome
+     */
+    private Result<R> process(long index, String record) {
+        try {
+            return new Result<>(index, record, this.worker.apply(parse(record)), null);
+        } catch (Exception e) {
+            return new Result<>(index, record, null, e);
+        }
+    }
+
+    /**
+     * Wait for a result.
+     *
+     * @param future Task future
+     * @return Outcome
+     * @throws InterruptedException when interrupted while waiting
+     */
+    private static <R> Result<R> await(Future<Result<R>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // process() catches exceptions; only errors can get here
+            throw new IllegalStateException("Worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Process all records of an input.
+     *
+     * @param reader Input; not closed
+     * @param sink Result consumer; invoked on the calling thread
+     * @return Number of records processed
+     * @throws IOException when reading fails
+     * @throws InterruptedException when interrupted while waiting for results
+     */
+    public long run(BufferedReader reader, Consumer<Result<R>> sink) throws IOException, InterruptedException {
+        try {
+            return run(records(reader, this.format), sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Process records.
+     *
+     * @param records Records in the input format
+     * @param sink Result consumer; invoked on the calling thread
+     * @return Number of records processed
+     * @throws InterruptedException when interrupted while waiting for results
+     */
+    public long run(Iterator<String> records, Consumer<Result<R>> sink) throws InterruptedException {
+        switch (this.ordering) {
+            case ORDERED:
+                return runOrdered(records, sink);
+            case UNORDERED:
+                return runUnordered(records, sink);
+            default:
+                throw new IllegalArgumentException("Unknown ordering " + this.ordering);
+        }
+    }
+
+    /**
+     * Process records, passing results in input order.
+     *
+     * @param records Records
+     * @param sink Result consumer
+     * @return Number of records processed
+     * @throws InterruptedException when interrupted while waiting for results
+     */
+    private long runOrdered(Iterator<String> records, Consumer<Result<R>> sink) throws InterruptedException {
+        final Deque<Future<Result<R>>> inFlight = new ArrayDeque<>(this.capacity);
+        long count = 0;
+        try {
+            while (records.hasNext()) {
+                if (inFlight.size() == this.capacity) {
+                    sink.accept(await(inFlight.removeFirst()));
+                }
+                final long index = count++;
+                final String record = records.next();
+                // a plain FutureTask: tasks adapted by the pool itself ignore interrupts on cancel
+                final FutureTask<Result<R>> task = new FutureTask<>(() -> process(index, record));
+                this.executor.execute(task);
+                inFlight.addLast(task);
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(await(inFlight.removeFirst()));
+            }
+            return count;
+        } finally {
+            inFlight.forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * Process records, passing results in completion order.
+     *
+     * @param records Records
+     * @param sink Result consumer
+     * @return Number of records processed
+     * @throws InterruptedException when interrupted while waiting for results
+     */
+    private long runUnordered(Iterator<String> records, Consumer<Result<R>> sink) throws InterruptedException {
+        final BlockingQueue<Future<Result<R>>> completed = new LinkedBlockingQueue<>();
+        final Set<Future<Result<R>>> inFlight = new HashSet<>(2 * this.capacity);
+        long count = 0;
+        try {
+            while (records.hasNext()) {
+                if (inFlight.size() == this.capacity) {
+                    sink.accept(await(take(completed, inFlight)));
+                }
+                final long index = count++;
+                final String record = records.next();
+
+                // a plain FutureTask: tasks adapted by the pool itself ignore interrupts on cancel
+                final FutureTask<Result<R>> task = new FutureTask<Result<R>>(() -> process(index, record)) {
+                    @Override
+                    protected void done() {
+                        completed.add(this);
+                    }
+                };
+                inFlight.add(task);
+                this.executor.execute(task);
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(await(take(completed, inFlight)));
+            }
+            return count;
+        } finally {
+            inFlight.forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * Wait for the next completed task.
+     *
+     * @param completed Tasks in completion order
+     * @param inFlight Tasks not yet taken; the completed task is removed
+     * @return Completed task
+     * @throws InterruptedException when interrupted while waiting
+     */
+    private static <R> Future<Result<R>> take(BlockingQueue<Future<Result<R>>> completed,
+            Set<Future<Result<R>>> inFlight) throws InterruptedException {
+        final Future<Result<R>> ret = completed.take();
+        inFlight.remove(ret);
+        return ret;
+    }
+
+    /**
+     * Shut down the worker pool.
+     *
+     * Tasks left running by a failed or interrupted {@code run} are cancelled; no further records can be processed.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+}
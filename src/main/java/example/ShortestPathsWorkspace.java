@@ -0,0 +1,431 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+
+/**
+ * Reusable state for finding shortest paths from changing central atoms.
+ *
+ * Provides the shortest path queries of {@link FindShortestPaths} without allocating per central atom. Arrays are sized
+ * to the largest structure seen so far and are reused. Path buffers are kept for each path length up to
+ * {@link #CACHED_PATH_LENGTHS}. Distances are invalidated by incrementing an epoch stamp instead of clearing them, so
+ * re-centering costs only the breadth first search itself.
+ *
+ * Instances are not thread safe; hold one per thread. Typical usage:
+ * <pre><code>
+ *     workspace.reset(molecule.getCtab());
+ *     for (int a1 = 0; a1 &lt; molecule.getAtomCount(); a1++) {
+ *         workspace.recenter(a1);
+ *         ...
+ *     }
+ * </code></pre>
+ */
+public class ShortestPathsWorkspace {
+    /**
+     * Flag to mark missing central atom and disconnected atoms.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Longest path, in atoms, for which an enumeration buffer is retained.
+     *
+     * Buffers are kept per path length, so the retained memory grows quadratically with the longest path; this cap
+     * bounds it to about 8 kB. Longer paths allocate their buffer per enumeration, which is proportional to the work
+     * of completing the first path anyway.
+     */
+    static final int CACHED_PATH_LENGTHS = 64;
+
+    /**
+     * Atom count of the current structure.
+     */
+    private int atomCount;
+
+    /**
+     * Offsets of the neighbor lists of the current structure in {@link #neighbors}, see {@link CompactGraph}.
+     */
+    private int [] offsets;
+
+    /**
+     * Concatenated neighbor lists of the current structure.
+     */
+    private int [] neighbors;
+
+    /**
+     * Reusable offsets buffer when the current structure was given as a connection table.
+     */
+    private int [] ownOffsets;
+
+    /**
+     * Reusable neighbors buffer when the current structure was given as a connection table.
+     */
+    private int [] ownNeighbors;
+
+    /**
+     * Shortest distances from the central atom; valid only where {@link #stamps} equals {@link #epoch}.
+     */
+    private int [] distances;
+
+    /**
+     * Epoch when the corresponding element of {@link #distances} was written.
+     */
+    private int [] stamps;
+
+    /**
+     * Current epoch.
+     */
+    private int epoch;
+
+    /**
+     * BFS queue.
+     */
+    private int [] queue;
+
+    /**
+     * Path buffers used by enumeration, indexed by path atom count up to {@link #CACHED_PATH_LENGTHS}; allocated on
+     * first use.
+     */
+    private int [][] pathBuffers;
+
+    /**
+     * Neighbor choice buffer used by enumeration.
+     */
+    private int [] neighborChoices;
+
+    /**
+     * Central atom index; {@link #UNKNOWN} when not centered.
+     */
+    private int a1;
+
+    /**
+     * Construct empty workspace.
+     */
+    public ShortestPathsWorkspace() {
+        this.ownOffsets = new int[1];
+        this.ownNeighbors = new int[0];
+        this.offsets = this.ownOffsets;
+        this.neighbors = this.ownNeighbors;
+        this.distances = new int[0];
+        this.stamps = new int[0];
+        this.queue = new int[0];
+        this.pathBuffers = new int[CACHED_PATH_LENGTHS + 1][];
+        this.neighborChoices = new int[0];
+        this.a1 = UNKNOWN;
+    }
+
+    /**
+     * Switch to a new structure.
+     *
+     * Arrays are reallocated only when the structure is larger than any structure seen before. The connection table
+     * is copied into reusable compact neighbor lists.
+     *
+     * @param ctab Connection table, see {@link Molecule#getCtab()}
+     * @return This instance
+     */
+    public ShortestPathsWorkspace reset(int [][] ctab) {
+        final int atomCount = ctab.length;
+        if (this.ownOffsets.length < atomCount + 1) {
+            this.ownOffsets = new int[atomCount + 1];
+        }
+        int size = 0;
+        for (int i = 0; i < atomCount; i++) {
+            size += ctab[i].length;
+        }
+        if (this.ownNeighbors.length < size) {
+            this.ownNeighbors = new int[size];
+        }
+
+        int index = 0;
+        for (int i = 0; i < atomCount; i++) {
+            this.ownOffsets[i] = index;
+            System.arraycopy(ctab[i], 0, this.ownNeighbors, index, ctab[i].length);
+            index += ctab[i].length;
+        }
+        this.ownOffsets[atomCount] = index;
+
+        return reset(atomCount, this.ownOffsets, this.ownNeighbors);
+    }
+
+    /**
+     * Switch to a new structure.
+     *
+     * Arrays are reallocated only when the structure is larger than any structure seen before. No copy of the graph
+     * is made.
+     *
+     * @param graph Input structure
+     * @return This instance
+     */
+    public ShortestPathsWorkspace reset(CompactGraph graph) {
+        return reset(graph.getAtomCount(), graph.offsets, graph.neighbors);
+    }
+
+    /**
+     * Switch to a new structure.
+     *
+     * @param atomCount Atom count
+     * @param offsets Neighbor list offsets
+     * @param neighbors Concatenated neighbor lists
+     * @return This instance
+     */
+    private ShortestPathsWorkspace reset(int atomCount, int [] offsets, int [] neighbors) {
+        if (this.distances.length < atomCount) {
+            this.distances = new int[atomCount];
+            this.stamps = new int[atomCount];
+            this.epoch = 0;
+            this.queue = new int[atomCount];
+            this.neighborChoices = new int[atomCount];
+        }
+        this.atomCount = atomCount;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.a1 = UNKNOWN;
+        nextEpoch();
+        return this;
+    }
+
+    /**
+     * Invalidate all distances.
+     */
+    private void nextEpoch() {
+        if (this.epoch == Integer.MAX_VALUE) {
+            // stamps would wrap around; clear them once
+            Arrays.fill(this.stamps, 0);
+            this.epoch = 0;
+        }
+        this.epoch++;
+    }
+
+    /**
+     * Find shortest paths from a new central atom.
+     *
+     * @param a1 Central atom index
+     * @return This instance
+     * @throws IllegalArgumentException when the atom index is invalid for the current structure
+     */
+    public ShortestPathsWorkspace recenter(int a1) throws IllegalArgumentException {
+        if (a1 < 0 || a1 >= getAtomCount()) {
+            throw new IllegalArgumentException("Invalid central atom " + a1 + ", atom count: " + getAtomCount());
+        }
+        nextEpoch();
+        this.a1 = a1;
+
+        final int epoch = this.epoch;
+        final int [] distances = this.distances;
+        final int [] stamps = this.stamps;
+        final int [] queue = this.queue;
+        final int [] offsets = this.offsets;
+        final int [] neighbors = this.neighbors;
+
+        int head = 0;
+        int tail = 0;
+
+        distances[a1] = 0;
+        stamps[a1] = epoch;
+        queue[tail++] = a1;
+
+        while (head < tail) {
+            final int ai = queue[head++];
+            final int nextDistance = distances[ai] + 1;
+            final int end = offsets[ai + 1];
+
+            for (int j = offsets[ai]; j < end; j++) {
+                final int n = neighbors[j];
+                if (stamps[n] != epoch) {
+                    stamps[n] = epoch;
+                    distances[n] = nextDistance;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Distance of an atom.
+     *
+     * @param atom Atom index
+     * @return Shortest distance from the central atom or {@link #UNKNOWN} when disconnected
+     */
+    private int distance(int atom) {
+        return this.stamps[atom] == this.epoch ? this.distances[atom] : UNKNOWN;
+    }
+
+    /**
+     * Ensure that a path exists from the central atom.
+     *
+     * @param a2 Other atom
+     * @throws IllegalStateException when not centered
+     * @throws IllegalArgumentException when no path exists
+     */
+    private void ensurePathExistsTo(int a2) throws IllegalStateException, IllegalArgumentException {
+        if (!isPathExistsTo(a2)) {
+            throw new IllegalArgumentException("No path found between central atom " + a1 + " and " + a2);
+        }
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count of the current structure
+     */
+    public int getAtomCount() {
+        return this.atomCount;
+    }
+
+    /**
+     * Central atom.
+     *
+     * @return Central atom index
+     * @throws IllegalStateException when not centered since the last reset
+     */
+    public int getCentralAtom() throws IllegalStateException {
+        if (this.a1 == UNKNOWN) {
+            throw new IllegalStateException("Workspace not centered");
+        }
+        return this.a1;
+    }
+
+    /**
+     * Check if a path exists to an other atom.
+     *
+     * @param a2 Other atom
+     * @return {@code true} when the central atom and the specified atom are connected
+     * @throws IllegalStateException when not centered since the last reset
+     * @throws IndexOutOfBoundsException when the atom index is invalid for the current structure
+     */
+    public boolean isPathExistsTo(int a2) throws IllegalStateException, IndexOutOfBoundsException {
+        getCentralAtom();
+        if (a2 < 0 || a2 >= this.atomCount) {
+            throw new IndexOutOfBoundsException("Invalid atom index " + a2 + ", atom count: " + this.atomCount);
+        }
+        return distance(a2) != UNKNOWN;
+    }
+
+    /**
+     * Get shortest path length to an other atom.
+     *
+     * @param a2 Other atom
+     * @return length of the shortest path from the central atom
+     * @throws IllegalStateException when not centered since the last reset
+     * @throws IllegalArgumentException when no path exists
+     * @throws IndexOutOfBoundsException when the atom index is invalid for the current structure
+     */
+    public int getShortestPathLengthTo(int a2) throws IllegalStateException, IllegalArgumentException {
+        ensurePathExistsTo(a2);
+        return this.distances[a2];
+    }
+
+    /**
+     * Get shortest path an other atom.
+     *
+     * @param a2 Other atom
+     * @return Atom indices along the path
+     * @throws IllegalStateException when not centered since the last reset
+     * @throws IllegalArgumentException when no path exists
+     * @throws IndexOutOfBoundsException when the atom index is invalid for the current structure
+     */
+    public int [] getSingleShortestPathTo(int a2) throws IllegalStateException, IllegalArgumentException {
+        final int [] ret = new int[getShortestPathLengthTo(a2) + 1];
+        getSingleShortestPathTo(a2, ret);
+        return ret;
+    }
+
+    /**
+     * Get shortest path an other atom into a buffer.
+     *
+     * @param a2 Other atom
+     * @param path Buffer to fill with the atom indices along the path, must have at least path length + 1 length
+     * @return Number of atoms in the path
+     * @throws IllegalStateException when not centered since the last reset
+     * @throws IllegalArgumentException when no path exists
+     * @throws IndexOutOfBoundsException when the atom index is invalid for the current structure
+     */
+    public int getSingleShortestPathTo(int a2, int [] path) throws IllegalStateException, IllegalArgumentException {
+        final int length = getShortestPathLengthTo(a2) + 1;
+
+        path[length - 1] = a2;
+
+        // fill path backwards
+        for (int i = length - 2; i >= 0; i--) {
+            final int ai = path[i + 1];
+            for (int ni = this.offsets[ai]; ni < this.offsets[ai + 1]; ni++) {
+                if (distance(this.neighbors[ni]) == i) {
+                    path[i] = this.neighbors[ni];
+                    break;
+                }
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Visit all shortest paths to an other atom.
+     *
+     * No allocation is made: the path buffer of the workspace is passed to each invocation of the visitor. The visitor
+     * must not use this workspace.
+     *
+     * @param a2 Other atom
+     * @param visitor Visitor to invoke for each path
+     * @return {@code true} when all paths were visited, {@code false} when the visitor stopped the enumeration
+     * @throws IllegalStateException when not centered since the last reset
+     * @throws IllegalArgumentException when no path exists
+     * @throws IndexOutOfBoundsException when the atom index is invalid for the current structure
+     */
+    public boolean forEachShortestPathTo(int a2, PathVisitor visitor)
+            throws IllegalStateException, IllegalArgumentException {
+        final int length = getShortestPathLengthTo(a2) + 1;
+
+        final int [] pathAtoms = pathBuffer(length);
+        final int [] neighborChoices = this.neighborChoices;
+
+        // neighbors of path atoms are in the component of the central atom, so their distances are all current
+        pathAtoms[length - 1] = a2;
+        if (length > 1) {
+            neighborChoices[length - 2] = this.offsets[a2];
+        }
+        ShortestPathEnumeration.completePath(this.offsets, this.neighbors, this.distances, pathAtoms, neighborChoices,
+                length - 2);
+
+        do {
+            if (!visitor.visit(pathAtoms)) {
+                return false;
+            }
+        } while (ShortestPathEnumeration.nextPath(this.offsets, this.neighbors, this.distances, pathAtoms,
+                neighborChoices));
+        return true;
+    }
+
+    /**
+     * Get buffer for enumerating paths.
+     *
+     * @param length Path atom count
+     * @return Buffer of the given length; retained for lengths up to {@link #CACHED_PATH_LENGTHS}
+     */
+    private int [] pathBuffer(int length) {
+        if (length > CACHED_PATH_LENGTHS) {
+            return new int[length];
+        }
+        if (this.pathBuffers[length] == null) {
+            this.pathBuffers[length] = new int[length];
+        }
+        return this.pathBuffers[length];
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.MolBond;
+import chemaxon.struc.Molecule;
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Structure with bond weights, for example bond lengths or bond order based costs.
+ *
+ * Topology is held by a {@link CompactGraph} built by {@link CompactGraph#ofBonds(int, int[], int[])}; weights are
+ * stored in the same neighbor list layout, so the weight of the bond to the {@code k}-th neighbor of an atom is at the
+ * same index as the neighbor itself. Weights must be finite and non negative.
+ */
+public final class WeightedGraph {
+    /**
+     * Topology.
+     */
+    private final CompactGraph graph;
+
+    /**
+     * Bond weight of each neighbor list entry.
+     */
+    final double [] weights;
+
+    /**
+     * Largest weight when all weights are integers; {@code -1} otherwise.
+     */
+    private final long maxIntegerWeight;
+
+    /**
+     * Construct.
+     *
+     * @param graph Topology
+     * @param weights Weights in neighbor list layout; no defensive copy is made
+     */
+    private WeightedGraph(CompactGraph graph, double [] weights) {
+        this.graph = graph;
+        this.weights = weights;
+
+        long max = 0;
+        for (double w : weights) {
+            if (w != Math.rint(w) || w > Integer.MAX_VALUE) {
+                max = -1;
+                break;
+            }
+            max = Math.max(max, (long) w);
+        }
+        this.maxIntegerWeight = max;
+    }
+
+    /**
+     * Build from bond list.
+     *
+     * @param atomCount Atom count
+     * @param bondAtoms1 First atom index of each bond
+     * @param bondAtoms2 Second atom index of each bond
+     * @param bondWeights Weight of each bond
+     * @return Weighted structure
+     * @throws IllegalArgumentException when the arrays have different lengths, refer invalid atoms or a weight is
+     * negative or not finite
+     */
+    public static WeightedGraph ofBonds(int atomCount, int [] bondAtoms1, int [] bondAtoms2, double [] bondWeights)
+            throws IllegalArgumentException {
+        if (bondWeights.length != bondAtoms1.length) {
+            throw new IllegalArgumentException("Bond weight array length differs: " + bondWeights.length + ", "
+                    + bondAtoms1.length);
+        }
+        for (int b = 0; b < bondWeights.length; b++) {
+            if (!(bondWeights[b] >= 0) || Double.isInfinite(bondWeights[b])) {
+                throw new IllegalArgumentException("Invalid weight of bond #" + b + ": " + bondWeights[b]);
+            }
+        }
+        final CompactGraph graph = CompactGraph.ofBonds(atomCount, bondAtoms1, bondAtoms2);
+
+        // neighbors are listed in bond order, see CompactGraph.ofBonds()
+        final int [] fill = new int[atomCount];
+        System.arraycopy(graph.offsets, 0, fill, 0, atomCount);
+        final double [] weights = new double[graph.neighbors.length];
+        for (int b = 0; b < bondAtoms1.length; b++) {
+            weights[fill[bondAtoms1[b]]++] = bondWeights[b];
+            weights[fill[bondAtoms2[b]]++] = bondWeights[b];
+        }
+        return new WeightedGraph(graph, weights);
+    }
+
+    /**
+     * Build from a molecule.
+     *
+     * @param molecule Molecule
+     * @param weight Weight of a bond, for example {@code b -> b.getType()}
+     * @return Weighted structure in the atom numbering of the molecule
+     * @throws IllegalArgumentException when a weight is negative or not finite
+     */
+    public static WeightedGraph of(Molecule molecule, ToDoubleFunction<MolBond> weight)
+            throws IllegalArgumentException {
+        final MolBond [] bonds = molecule.getBondArray();
+        final int [] bondAtoms1 = new int[bonds.length];
+        final int [] bondAtoms2 = new int[bonds.length];
+        final double [] bondWeights = new double[bonds.length];
+        for (int b = 0; b < bonds.length; b++) {
+            bondAtoms1[b] = molecule.indexOf(bonds[b].getAtom1());
+            bondAtoms2[b] = molecule.indexOf(bonds[b].getAtom2());
+            bondWeights[b] = weight.applyAsDouble(bonds[b]);
+        }
+        return ofBonds(molecule.getAtomCount(), bondAtoms1, bondAtoms2, bondWeights);
+    }
+
+    /**
+     * Build with unit weights.
+     *
+     * @param graph Topology
+     * @return Weighted structure where every bond has weight {@code 1}
+     */
+    public static WeightedGraph unweighted(CompactGraph graph) {
+        final double [] weights = new double[graph.neighbors.length];
+        Arrays.fill(weights, 1);
+        return new WeightedGraph(graph, weights);
+    }
+
+    /**
+     * Topology.
+     *
+     * @return Structure without weights
+     */
+    public CompactGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.graph.getAtomCount();
+    }
+
+    /**
+     * Weight of a bond.
+     *
+     * @param atom Atom index
+     * @param index Neighbor index, in range {@code [0, getGraph().getDegree(atom))}
+     * @return Weight of the bond to the neighbor
+     * @throws IndexOutOfBoundsException when index is out of range
+     */
+    public double getWeight(int atom, int index) throws IndexOutOfBoundsException {
+        this.graph.getNeighbor(atom, index);
+        return this.weights[this.graph.offsets[atom] + index];
+    }
+
+    /**
+     * Largest integer weight.
+     *
+     * @return Largest weight when all weights are integers, {@code -1} otherwise
+     */
+    long getMaxIntegerWeight() {
+        return this.maxIntegerWeight;
+    }
+
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import com.google.common.collect.AbstractIterator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+
+/**
+ * Find weighted shortest paths from a central atom.
+ *
+ * The counterpart of {@link FindShortestPaths} for structures with bond weights (see {@link WeightedGraph}). The
+ * search is selected by the weights, see {@link Algorithm}; all of them work on primitive arrays and allocate no
+ * per atom objects.
+ *
+ * Paths are considered equally short when their lengths differ by at most {@link #TOLERANCE} relative to the
+ * distance; integer weights are compared exactly. Paths enumerated are simple: with zero weight bonds an atom can be
+ * reached by equally short walks revisiting atoms, these are not enumerated.
+ */
+public class WeightedShortestPaths {
+    /**
+     * Relative tolerance of path length comparisons.
+     */
+    public static final double TOLERANCE = 1e-9;
+
+    /**
+     * Largest integer weight handled by {@link Algorithm#DIAL}.
+     */
+    static final int DIAL_MAX_WEIGHT = 64;
+
+    /**
+     * Distance of unreached atoms.
+     */
+    private static final double UNREACHED = Double.POSITIVE_INFINITY;
+
+    /**
+     * Parent of unreached atoms and of the central atom.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Algorithms available for labeling weighted shortest distances.
+     */
+    public enum Algorithm {
+        /**
+         * Double ended queue: zero weight bonds push to the front, unit weight bonds to the back. Weights must be
+         * {@code 0} or {@code 1}. Scales as O(n + m).
+         */
+        ZERO_ONE_BFS,
+
+        /**
+         * Dial's algorithm: circular array of distance buckets, each an intrusive doubly linked list of atoms. Weights
+         * must be integers up to {@link WeightedShortestPaths#DIAL_MAX_WEIGHT}. Scales as O(n + m + d) for largest
+         * distance {@code d}.
+         */
+        DIAL,
+
+        /**
+         * Dijkstra's algorithm on an indexed binary heap of atom indices with decrease key. Any non negative weights.
+         * Scales as O((n + m) log n).
+         */
+        HEAP
+    }
+
+    /**
+     * Input structure.
+     */
+    private final WeightedGraph weighted;
+
+    /**
+     * Central atom index.
+     */
+    private final int a1;
+
+    /**
+     * Shortest distances; {@link #UNREACHED} for disconnected atoms.
+     */
+    private final double [] distances;
+
+    /**
+     * Predecessor of each atom in a shortest path tree.
+     */
+    private final int [] parents;
+
+    /**
+     * Construct, selecting the algorithm by the weights.
+     *
+     * @param weighted Input structure
+     * @param a1 Central atom index
+     */
+    public WeightedShortestPaths(WeightedGraph weighted, int a1) {
+        this(weighted, a1, select(weighted));
+    }
+
+    /**
+     * Construct.
+     *
+     * @param weighted Input structure
+     * @param a1 Central atom index
+     * @param algorithm Algorithm used to label shortest distances
+     * @throws IllegalArgumentException when the algorithm does not support the weights
+     */
+    public WeightedShortestPaths(WeightedGraph weighted, int a1, Algorithm algorithm) throws IllegalArgumentException {
+        this.weighted = weighted;
+        this.a1 = a1;
+
+        final int atomCount = weighted.getAtomCount();
+        this.distances = new double[atomCount];
+        this.parents = new int[atomCount];
+        Arrays.fill(this.distances, UNREACHED);
+        Arrays.fill(this.parents, NONE);
+
+        final long maxWeight = weighted.getMaxIntegerWeight();
+        switch (algorithm) {
+            case ZERO_ONE_BFS:
+                if (maxWeight < 0 || maxWeight > 1) {
+                    throw new IllegalArgumentException("0-1 BFS needs weights 0 or 1");
+                }
+                zeroOneBfs();
+                break;
+            case DIAL:
+                if (maxWeight < 0 || maxWeight > DIAL_MAX_WEIGHT) {
+                    throw new IllegalArgumentException("Dial's algorithm needs integer weights up to "
+                            + DIAL_MAX_WEIGHT);
+                }
+                dial((int) maxWeight);
+                break;
+            case HEAP:
+                dijkstra();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * Select the fastest applicable algorithm.
+     *
+     * @param weighted Input structure
+     * @return Algorithm
+     */
+    static Algorithm select(WeightedGraph weighted) {
+        final long maxWeight = weighted.getMaxIntegerWeight();
+        if (maxWeight >= 0 && maxWeight <= 1) {
+            return Algorithm.ZERO_ONE_BFS;
+        }
+        if (maxWeight >= 0 && maxWeight <= DIAL_MAX_WEIGHT) {
+            return Algorithm.DIAL;
+        }
+        return Algorithm.HEAP;
+    }
+
+    /**
+     * Label distances by 0-1 BFS.
+     *
+     * An atom is pushed again whenever its distance decreases; stale entries are skipped when popped.
+     */
+    private void zeroOneBfs() {
+        final CompactGraph graph = this.weighted.getGraph();
+        final double [] weights = this.weighted.weights;
+
+        // every push follows a distance decrease: at most one per neighbor list entry, plus the central atom
+        final int [] deque = new int[graph.neighbors.length + 1];
+        final boolean [] settled = new boolean[graph.getAtomCount()];
+        int head = 0;
+        int size = 0;
+
+        this.distances[this.a1] = 0;
+        deque[0] = this.a1;
+        size = 1;
+
+        while (size > 0) {
+            final int ai = deque[head];
+            head = head + 1 == deque.length ? 0 : head + 1;
+            size--;
+            if (settled[ai]) {
+                continue;
+            }
+            settled[ai] = true;
+
+            for (int j = graph.offsets[ai]; j < graph.offsets[ai + 1]; j++) {
+                final int n = graph.neighbors[j];
+                final double d = this.distances[ai] + weights[j];
+                if (d < this.distances[n]) {
+                    this.distances[n] = d;
+                    this.parents[n] = ai;
+                    if (weights[j] == 0) {
+                        head = head == 0 ? deque.length - 1 : head - 1;
+                        deque[head] = n;
+                    } else {
+                        deque[(head + size) % deque.length] = n;
+                    }
+                    size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Label distances by Dial's algorithm.
+     *
+     * @param maxWeight Largest bond weight
+     */
+    private void dial(int maxWeight) {
+        final CompactGraph graph = this.weighted.getGraph();
+        final double [] weights = this.weighted.weights;
+        final int atomCount = graph.getAtomCount();
+
+        // atoms in the queue differ at most by the largest weight in distance, so maxWeight + 1 buckets suffice
+        final int bucketCount = maxWeight + 1;
+        final int [] bucketHead = new int[bucketCount];
+        final int [] next = new int[atomCount];
+        final int [] prev = new int[atomCount];
+        Arrays.fill(bucketHead, NONE);
+
+        this.distances[this.a1] = 0;
+        bucketHead[0] = this.a1;
+        next[this.a1] = NONE;
+        prev[this.a1] = NONE;
+        int queued = 1;
+
+        long current = 0;
+        while (queued > 0) {
+            int bucket = (int) (current % bucketCount);
+            while (bucketHead[bucket] == NONE) {
+                current++;
+                bucket = (int) (current % bucketCount);
+            }
+
+            // pop the head of the current bucket
+            final int ai = bucketHead[bucket];
+            bucketHead[bucket] = next[ai];
+            if (next[ai] != NONE) {
+                prev[next[ai]] = NONE;
+            }
+            queued--;
+
+            for (int j = graph.offsets[ai]; j < graph.offsets[ai + 1]; j++) {
+                final int n = graph.neighbors[j];
+                final double d = this.distances[ai] + weights[j];
+                if (d < this.distances[n]) {
+                    if (this.distances[n] != UNREACHED) {
+                        // unlink from its current bucket
+                        final int oldBucket = (int) ((long) this.distances[n] % bucketCount);
+                        if (prev[n] == NONE) {
+                            bucketHead[oldBucket] = next[n];
+                        } else {
+                            next[prev[n]] = next[n];
+                        }
+                        if (next[n] != NONE) {
+                            prev[next[n]] = prev[n];
+                        }
+                        queued--;
+                    }
+                    this.distances[n] = d;
+                    this.parents[n] = ai;
+
+                    final int newBucket = (int) ((long) d % bucketCount);
+                    next[n] = bucketHead[newBucket];
+                    prev[n] = NONE;
+                    if (bucketHead[newBucket] != NONE) {
+                        prev[bucketHead[newBucket]] = n;
+                    }
+                    bucketHead[newBucket] = n;
+                    queued++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Label distances by Dijkstra's algorithm on an indexed binary heap.
+     */
+    private void dijkstra() {
+        final CompactGraph graph = this.weighted.getGraph();
+        final double [] weights = this.weighted.weights;
+        final IndexedHeap heap = new IndexedHeap(this.distances);
+
+        this.distances[this.a1] = 0;
+        heap.insert(this.a1);
+
+        while (!heap.isEmpty()) {
+            final int ai = heap.poll();
+            for (int j = graph.offsets[ai]; j < graph.offsets[ai + 1]; j++) {
+                final int n = graph.neighbors[j];
+                final double d = this.distances[ai] + weights[j];
+                if (d < this.distances[n]) {
+                    final boolean reached = this.distances[n] != UNREACHED;
+                    this.distances[n] = d;
+                    this.parents[n] = ai;
+                    if (reached) {
+                        heap.decreased(n);
+                    } else {
+                        heap.insert(n);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Binary min heap of atom indices keyed by their distances, supporting decrease key.
+     */
+    private static final class IndexedHeap {
+        /**
+         * Keys, indexed by atom.
+         */
+        private final double [] keys;
+
+        /**
+         * Heap of atom indices.
+         */
+        private final int [] heap;
+
+        /**
+         * Position of each atom in {@link #heap}; {@code -1} when not in the heap.
+         */
+        private final int [] position;
+
+        /**
+         * Number of atoms in the heap.
+         */
+        private int size;
+
+        /**
+         * Construct.
+         *
+         * @param keys Keys indexed by atom; read on each operation
+         */
+        private IndexedHeap(double [] keys) {
+            this.keys = keys;
+            this.heap = new int[keys.length];
+            this.position = new int[keys.length];
+            Arrays.fill(this.position, -1);
+        }
+
+        /**
+         * Check if empty.
+         *
+         * @return {@code true} when no atoms are in the heap
+         */
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Insert an atom.
+         *
+         * @param atom Atom not in the heap
+         */
+        private void insert(int atom) {
+            this.heap[this.size] = atom;
+            this.position[atom] = this.size;
+            this.size++;
+            siftUp(this.size - 1);
+        }
+
+        /**
+         * Restore heap order after the key of an atom decreased.
+         *
+         * @param atom Atom in the heap
+         */
+        private void decreased(int atom) {
+            siftUp(this.position[atom]);
+        }
+
+        /**
+         * Remove the atom with the smallest key.
+         *
+         * @return Atom removed
+         */
+        private int poll() {
+            final int ret = this.heap[0];
+            this.position[ret] = -1;
+            this.size--;
+            if (this.size > 0) {
+                this.heap[0] = this.heap[this.size];
+                this.position[this.heap[0]] = 0;
+                siftDown(0);
+            }
+            return ret;
+        }
+
+        /**
+         * Move an entry towards the root.
+         *
+         * @param index Heap index
+         */
+        private void siftUp(int index) {
+            final int atom = this.heap[index];
+            final double key = this.keys[atom];
+            int i = index;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (this.keys[this.heap[parent]] <= key) {
+                    break;
+                }
+                this.heap[i] = this.heap[parent];
+                this.position[this.heap[i]] = i;
+                i = parent;
+            }
+            this.heap[i] = atom;
+            this.position[atom] = i;
+        }
+
+        /**
+         * Move an entry towards the leaves.
+         *
+         * @param index Heap index
+         */
+        private void siftDown(int index) {
+            final int atom = this.heap[index];
+            final double key = this.keys[atom];
+            int i = index;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.size) {
+                    break;
+                }
+                if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+                    child++;
+                }
+                if (this.keys[this.heap[child]] >= key) {
+                    break;
+                }
+                this.heap[i] = this.heap[child];
+                this.position[this.heap[i]] = i;
+                i = child;
+            }
+            this.heap[i] = atom;
+            this.position[atom] = i;
+        }
+    }
+
+    /**
+     * Check if a bond is on a shortest path.
+     *
+     * @param from Atom closer to the central atom
+     * @param slot Neighbor list index of the bond to the other atom
+     * @param to Other atom
+     * @return {@code true} when the shortest distance of {@code to} is reached through {@code from}
+     */
+    private boolean isTight(int from, int slot, int to) {
+        final double d = this.distances[from] + this.weighted.weights[slot];
+        final double target = this.distances[to];
+        return Math.abs(d - target) <= TOLERANCE * Math.max(1, target);
+    }
+
+    /**
+     * Central atom.
+     *
+     * @return Central atom index
+     */
+    public int getA1() {
+        return this.a1;
+    }
+
+    /**
+     * Atom count.
+     *
+     * @return Atom count
+     */
+    public int getAtomCount() {
+        return this.distances.length;
+    }
+
+    /**
+     * Check if a path exists to an other atom.
+     *
+     * @param a2 Other atom
+     * @return {@code true} when the central atom and the specified atom are connected
+     */
+    public boolean isPathExistsTo(int a2) {
+        return this.distances[a2] != UNREACHED;
+    }
+
+    /**
+     * Get shortest path length to an other atom.
+     *
+     * @param a2 Other atom
+     * @return Sum of the bond weights along the shortest path from the central atom
+     * @throws IllegalArgumentException when no path exists
+     */
+    public double getShortestPathLengthTo(int a2) throws IllegalArgumentException {
+        if (!isPathExistsTo(a2)) {
+            throw new IllegalArgumentException("No path found between central atom " + this.a1 + " and " + a2);
+        }
+        return this.distances[a2];
+    }
+
+    /**
+     * Get a shortest path to an other atom.
+     *
+     * @param a2 Other atom
+     * @return Atom indices along the path, starting with the central atom
+     * @throws IllegalArgumentException when no path exists
+     */
+    public int [] getSingleShortestPathTo(int a2) throws IllegalArgumentException {
+        getShortestPathLengthTo(a2);
+        int length = 1;
+        for (int ai = a2; ai != this.a1; ai = this.parents[ai]) {
+            length++;
+        }
+        final int [] ret = new int[length];
+        int ai = a2;
+        for (int i = length - 1; i >= 0; i--) {
+            ret[i] = ai;
+            ai = this.parents[ai];
+        }
+        return ret;
+    }
+
+    /**
+     * Depth first walk from a target atom back to the central atom along bonds of shortest paths.
+     */
+    private final class PathWalker {
+        /**
+         * Atoms of the current partial path, from the target atom.
+         */
+        private final int [] stack;
+
+        /**
+         * Next neighbor list index to try for each atom of {@link #stack}.
+         */
+        private final int [] slots;
+
+        /**
+         * Atoms on the current partial path.
+         */
+        private final boolean [] onPath;
+
+        /**
+         * Number of atoms in {@link #stack}.
+         */
+        private int depth;
+
+        /**
+         * {@code true} when {@link #stack} holds a path returned by the previous {@link #advance()}.
+         */
+        private boolean complete;
+
+        /**
+         * Construct.
+         *
+         * @param a2 Target atom
+         */
+        private PathWalker(int a2) {
+            final int atomCount = getAtomCount();
+            this.stack = new int[atomCount];
+            this.slots = new int[atomCount];
+            this.onPath = new boolean[atomCount];
+            push(a2);
+        }
+
+        /**
+         * Extend the partial path.
+         *
+         * @param atom Atom to append
+         */
+        private void push(int atom) {
+            this.stack[this.depth] = atom;
+            this.slots[this.depth] = WeightedShortestPaths.this.weighted.getGraph().offsets[atom];
+            this.onPath[atom] = true;
+            this.depth++;
+        }
+
+        /**
+         * Find the next path.
+         *
+         * @return {@code true} when {@link #stack} holds the next complete path, {@code false} when all paths were
+         * found
+         */
+        private boolean advance() {
+            final CompactGraph graph = WeightedShortestPaths.this.weighted.getGraph();
+
+            // a complete path from the previous call is backtracked first
+            if (this.complete) {
+                this.onPath[this.stack[--this.depth]] = false;
+                this.complete = false;
+            }
+
+            while (this.depth > 0) {
+                final int top = this.depth - 1;
+                final int ai = this.stack[top];
+                if (ai == WeightedShortestPaths.this.a1) {
+                    this.complete = true;
+                    return true;
+                }
+
+                boolean extended = false;
+                final int end = graph.offsets[ai + 1];
+                while (this.slots[top] < end) {
+                    final int slot = this.slots[top]++;
+                    final int n = graph.neighbors[slot];
+                    if (!this.onPath[n] && isTight(n, slot, ai)) {
+                        push(n);
+                        extended = true;
+                        break;
+                    }
+                }
+                if (!extended) {
+                    this.onPath[this.stack[--this.depth]] = false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copy the current path.
+         *
+         * @param path Array to fill, {@link #depth} long; filled starting with the central atom
+         */
+        private void copyTo(int [] path) {
+            for (int i = 0; i < this.depth; i++) {
+                path[i] = this.stack[this.depth - 1 - i];
+            }
+        }
+    }
+
+    /**
+     * Enumerate all shortest paths to an other atom.
+     *
+     * @param a2 Other atom
+     * @return Iterator of shortest paths, each starting with the central atom; paths can have different atom counts
+     * @throws IllegalArgumentException when no path exists
+     */
+    public Iterator<int []> enumerateShortestPathsTo(int a2) throws IllegalArgumentException {
+        getShortestPathLengthTo(a2);
+        final PathWalker walker = new PathWalker(a2);
+
+        return new AbstractIterator<int []>() {
+            @Override
+            protected int [] computeNext() {
+                if (walker.advance()) {
+                    final int [] ret = new int[walker.depth];
+                    walker.copyTo(ret);
+                    return ret;
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Visit all shortest paths to an other atom.
+     *
+     * Paths of the same atom count are passed in the same buffer.
+     *
+     * @param a2 Other atom
+     * @param visitor Visitor to invoke for each path
+     * @return {@code true} when all paths were visited, {@code false} when the visitor stopped the enumeration
+     * @throws IllegalArgumentException when no path exists
+     */
+    public boolean forEachShortestPathTo(int a2, PathVisitor visitor) throws IllegalArgumentException {
+        getShortestPathLengthTo(a2);
+        final PathWalker walker = new PathWalker(a2);
+        final int [][] buffers = new int[getAtomCount() + 1][];
+
+        while (walker.advance()) {
+            if (buffers[walker.depth] == null) {
+                buffers[walker.depth] = new int[walker.depth];
+            }
+            walker.copyTo(buffers[walker.depth]);
+            if (!visitor.visit(buffers[walker.depth])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Union of shortest paths to a single atom.
+     *
+     * @param startAtom Start atom index
+     * @return Atom indices from the union of all of the shortest paths between the central atom and the start atom
+     * @throws IllegalArgumentException when no path exists
+     */
+    public BitSet unionOfShortestPaths(int startAtom) throws IllegalArgumentException {
+        final BitSet start = new BitSet();
+        start.set(startAtom);
+        return unionOfShortestPaths(start);
+    }
+
+    /**
+     * Union of shortest paths to multiple atoms.
+     *
+     * Walks back towards the central atom along bonds of shortest paths, expanding each atom once. With zero weight
+     * bonds the union contains all atoms on equally short walks: atoms connected by zero weight bonds to a path are
+     * included even when no simple shortest path visits them.
+     *
+     * @param startAtoms Start atom indices. An arbitrary set of atoms.
+     * @return Atom indices from the union of all of the shortest paths between the central atom and the start atoms
+     * @throws IllegalArgumentException when no path exists from a start atom
+     */
+    public BitSet unionOfShortestPaths(BitSet startAtoms) throws IllegalArgumentException {
+        final CompactGraph graph = this.weighted.getGraph();
+        final BitSet ret = new BitSet(getAtomCount());
+        final int [] work = new int[getAtomCount()];
+        int count = 0;
+
+        for (int i = startAtoms.nextSetBit(0); i >= 0; i = startAtoms.nextSetBit(i + 1)) {
+            getShortestPathLengthTo(i);
+            ret.set(i);
+            work[count++] = i;
+
+            if (i == Integer.MAX_VALUE) {
+                break; // or (i+1) would overflow
+            }
+        }
+
+        while (count > 0) {
+            final int ai = work[--count];
+            for (int j = graph.offsets[ai]; j < graph.offsets[ai + 1]; j++) {
+                final int n = graph.neighbors[j];
+                if (!ret.get(n) && isTight(n, j, ai)) {
+                    ret.set(n);
+                    work[count++] = n;
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        return "a1: " + this.a1 + ", shortest distances from a1: " + Arrays.toString(this.distances);
+    }
+
+}
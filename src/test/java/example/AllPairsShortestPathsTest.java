@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.collect.Lists;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class AllPairsShortestPathsTest {
+
+    public static void ensure_consistency_with_findshortestpaths(int [][] ctab) {
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, a1);
+            final FindShortestPaths view = allPairs.getShortestPathsFrom(a1);
+
+            assertThat("Same distances in view", view.toString(), is(fp.toString()));
+
+            for (int a2 = 0; a2 < ctab.length; a2++) {
+                assertThat("Same connectivity", allPairs.pathExists(a1, a2), is(fp.isPathExistsTo(a2)));
+                if (fp.isPathExistsTo(a2)) {
+                    assertThat("Same path length", allPairs.distance(a1, a2), is(fp.getShortestPathLengthTo(a2)));
+                }
+            }
+        }
+    }
+
+    public static void ensure_same_as_bfs(int [][] ctab, AllPairsShortestPaths.Algorithm algorithm) {
+        final AllPairsShortestPaths bfs = new AllPairsShortestPaths(ctab, AllPairsShortestPaths.Algorithm.BFS);
+        final AllPairsShortestPaths other = new AllPairsShortestPaths(ctab, algorithm);
+
+        assertThat("Same diameter", other.getDiameter(), is(bfs.getDiameter()));
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            assertThat("Same distances from " + a1, other.getShortestPathsFrom(a1).toString(),
+                    is(bfs.getShortestPathsFrom(a1).toString()));
+        }
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        ensure_consistency_with_findshortestpaths(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab());
+    }
+
+    @Test
+    public void large_multifrag() {
+        ensure_consistency_with_findshortestpaths(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+    }
+
+    @Test
+    public void long_chain_uses_short_distances() {
+        final int [][] ctab = SyntheticGraphs.chain(300);
+
+        ensure_consistency_with_findshortestpaths(ctab);
+        assertThat(new AllPairsShortestPaths(ctab).getDiameter(), is(299));
+    }
+
+    @Test
+    public void fullerene_distances() {
+        final int [][] ctab = SyntheticGraphs.fullerene60();
+
+        assertThat(ctab.length, is(60));
+        for (int [] neighbors : ctab) {
+            assertThat(neighbors.length, is(3));
+        }
+        ensure_consistency_with_findshortestpaths(ctab);
+        assertThat(new AllPairsShortestPaths(ctab).getDiameter(), is(9));
+    }
+
+    @Test
+    public void dense_on_structures() {
+        final AllPairsShortestPaths.Algorithm dense = AllPairsShortestPaths.Algorithm.DENSE;
+        ensure_same_as_bfs(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab(), dense);
+        ensure_same_as_bfs(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab(), dense);
+        ensure_same_as_bfs(ofSmiles(ShortestPathsTest.BIPHENYL_SMILES).getCtab(), dense);
+        ensure_same_as_bfs(SyntheticGraphs.fullerene60(), dense);
+    }
+
+    @Test
+    public void dense_on_word_boundaries() {
+        for (int atomCount : new int [] {0, 1, 2, 63, 64, 65, 127, 128, 129, 200}) {
+            ensure_same_as_bfs(SyntheticGraphs.randomSparse(atomCount, atomCount / 8, atomCount),
+                    AllPairsShortestPaths.Algorithm.DENSE);
+        }
+    }
+
+    @Test
+    public void dense_long_chain_uses_short_distances() {
+        ensure_same_as_bfs(SyntheticGraphs.chain(300), AllPairsShortestPaths.Algorithm.DENSE);
+    }
+
+    @Test
+    public void dense_falls_back_above_max_atoms() {
+        ensure_same_as_bfs(SyntheticGraphs.grid(40, 40), AllPairsShortestPaths.Algorithm.DENSE);
+    }
+
+    @Test
+    public void auto_selects_by_atom_count() {
+        ensure_same_as_bfs(SyntheticGraphs.grid(4, 4), AllPairsShortestPaths.Algorithm.AUTO);
+        ensure_same_as_bfs(SyntheticGraphs.grid(8, 8), AllPairsShortestPaths.Algorithm.AUTO);
+        ensure_same_as_bfs(SyntheticGraphs.grid(20, 20), AllPairsShortestPaths.Algorithm.AUTO);
+    }
+
+    @Test
+    public void view_drives_path_enumeration() {
+        final Molecule m = ofSmiles(ShortestPathsTest.BIPHENYL_SMILES);
+
+        final FindShortestPaths fp = new AllPairsShortestPaths(m.getCtab()).getShortestPathsFrom(2);
+
+        final List<int []> allPaths = Lists.newArrayList(fp.enumerateShortestPathsTo(9));
+
+        assertThat(allPaths, containsInAnyOrder(
+                new int [] { 2, 3, 4, 5, 6, 7, 8, 9 },
+                new int [] { 2, 3, 4, 5, 6, 11, 10, 9 },
+                new int [] { 2, 1, 0, 5, 6, 7, 8, 9 },
+                new int [] { 2, 1, 0, 5, 6, 11, 10, 9 }
+        ));
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.util.Arrays;
+import java.util.BitSet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class BoundedNeighborhoodTest {
+
+    public static void ensure_consistency_with_findshortestpaths(int [][] ctab, int maxDepth) {
+        final BoundedNeighborhood neighborhood = new BoundedNeighborhood(ctab);
+
+        for (int center = 0; center < ctab.length; center++) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, center);
+            neighborhood.search(center, maxDepth);
+
+            assertThat(neighborhood.getCenter(), is(center));
+
+            final BitSet expectedAtoms = new BitSet();
+            int expectedDepth = 0;
+            for (int ai = 0; ai < ctab.length; ai++) {
+                final boolean inside = fp.isPathExistsTo(ai) && fp.getShortestPathLengthTo(ai) <= maxDepth;
+                assertThat("Same atoms in neighborhood", neighborhood.contains(ai), is(inside));
+                if (inside) {
+                    expectedAtoms.set(ai);
+                    expectedDepth = Math.max(expectedDepth, fp.getShortestPathLengthTo(ai));
+                    assertThat("Same distance", neighborhood.getDistanceTo(ai), is(fp.getShortestPathLengthTo(ai)));
+                    assertThat("Same union", neighborhood.unionOfShortestPaths(ai), is(fp.unionOfShortestPaths(ai)));
+                }
+            }
+
+            assertThat(neighborhood.getDepth(), is(expectedDepth));
+            assertThat(neighborhood.getSize(), is(expectedAtoms.cardinality()));
+            assertThat(neighborhood.getAtoms(), is(expectedAtoms.stream().toArray()));
+
+            final BitSet shellUnion = new BitSet();
+            for (int d = 0; d <= neighborhood.getDepth(); d++) {
+                final BitSet shell = neighborhood.getShell(d);
+                for (int ai = shell.nextSetBit(0); ai >= 0; ai = shell.nextSetBit(ai + 1)) {
+                    assertThat("Shell atom at shell distance", fp.getShortestPathLengthTo(ai), is(d));
+                }
+                shellUnion.or(shell);
+            }
+            assertThat("Shells cover neighborhood", shellUnion, is(expectedAtoms));
+        }
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab();
+        for (int maxDepth : Arrays.asList(0, 1, 3, 6, 1000)) {
+            ensure_consistency_with_findshortestpaths(ctab, maxDepth);
+        }
+    }
+
+    @Test
+    public void large_multifrag() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab();
+        for (int maxDepth : Arrays.asList(2, 5, 1000)) {
+            ensure_consistency_with_findshortestpaths(ctab, maxDepth);
+        }
+    }
+
+    @Test
+    public void neighborhood_on_chain() {
+        final BoundedNeighborhood neighborhood = new BoundedNeighborhood(SyntheticGraphs.chain(1000));
+
+        neighborhood.search(500, 2);
+        assertThat(neighborhood.getAtoms(), is(new int [] { 498, 499, 500, 501, 502 }));
+
+        neighborhood.search(0, 3);
+        assertThat(neighborhood.getAtoms(), is(new int [] { 0, 1, 2, 3 }));
+        assertThat(neighborhood.contains(500), is(false));
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class CompactGraphTest {
+
+    public static void ensure_same_as_ctab(int [][] ctab) {
+        final CompactGraph graph = CompactGraph.of(ctab);
+
+        assertThat(graph.getAtomCount(), is(ctab.length));
+        int degreeSum = 0;
+        for (int i = 0; i < ctab.length; i++) {
+            assertThat(graph.getDegree(i), is(ctab[i].length));
+            for (int j = 0; j < ctab[i].length; j++) {
+                assertThat(graph.getNeighbor(i, j), is(ctab[i][j]));
+            }
+            degreeSum += ctab[i].length;
+        }
+        assertThat(graph.getBondCount(), is(degreeSum / 2));
+        assertThat(graph.toCtab(), is(ctab));
+    }
+
+    public static void ensure_same_shortest_paths(int [][] ctab) {
+        final CompactGraph graph = CompactGraph.of(ctab);
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fromCtab = new FindShortestPaths(ctab, a1, FindShortestPaths.Algorithm.SWEEP);
+            final FindShortestPaths fromGraph = new FindShortestPaths(graph, a1);
+            for (int a2 = 0; a2 < ctab.length; a2++) {
+                assertThat(fromGraph.isPathExistsTo(a2), is(fromCtab.isPathExistsTo(a2)));
+                if (fromCtab.isPathExistsTo(a2)) {
+                    assertThat(fromGraph.getShortestPathLengthTo(a2), is(fromCtab.getShortestPathLengthTo(a2)));
+                    assertThat(fromGraph.getSingleShortestPathTo(a2), is(fromCtab.getSingleShortestPathTo(a2)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ctab_preserved_on_vancomycin() {
+        ensure_same_as_ctab(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab());
+    }
+
+    @Test
+    public void ctab_preserved_on_large_multifrag() {
+        ensure_same_as_ctab(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+    }
+
+    @Test
+    public void empty_graph() {
+        ensure_same_as_ctab(new int[0][]);
+    }
+
+    @Test
+    public void shortest_paths_same_on_vancomycin() {
+        ensure_same_shortest_paths(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab());
+    }
+
+    @Test
+    public void shortest_paths_same_on_large_multifrag() {
+        ensure_same_shortest_paths(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+    }
+
+    @Test
+    public void built_from_bonds() {
+        final CompactGraph graph = CompactGraph.ofBonds(4, new int [] {0, 1, 2}, new int [] {1, 2, 0});
+        assertThat(graph.toCtab(), is(new int [][] {{1, 2}, {0, 2}, {1, 0}, {}}));
+        assertThat(graph.getBondCount(), is(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_bond_rejected() {
+        CompactGraph.ofBonds(2, new int [] {0}, new int [] {2});
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void invalid_neighbor_index() {
+        CompactGraph.of(SyntheticGraphs.chain(3)).getNeighbor(0, 1);
+    }
+
+    @Test
+    public void serialized_round_trip() {
+        final CompactGraph graph = CompactGraph.of(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES));
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(graph.getSerializedSize() + 3);
+        buffer.put((byte) 1).put((byte) 2).put((byte) 3);
+        graph.writeTo(buffer);
+        assertThat(buffer.remaining(), is(0));
+
+        buffer.position(3);
+        final CompactGraph read = CompactGraph.readFrom(buffer);
+        assertThat(buffer.remaining(), is(0));
+        assertThat(read.toCtab(), is(graph.toCtab()));
+    }
+
+    @Test
+    public void invalid_serialized_graph_rejected() {
+        final CompactGraph graph = CompactGraph.of(SyntheticGraphs.chain(3));
+        final ByteBuffer valid = ByteBuffer.allocate(graph.getSerializedSize()).order(ByteOrder.LITTLE_ENDIAN);
+        graph.writeTo(valid);
+
+        // header: atom count, neighbor count; then offsets 0, 1, 3, 4 and neighbors 1, 0, 2, 1
+        final int [][] corruptions = {{0, -1}, {0, Integer.MAX_VALUE}, {1, 1000}, {2, 5}, {4, 0}, {5, 3}, {6, 3}};
+        for (int [] corruption : corruptions) {
+            final ByteBuffer buffer = ByteBuffer.wrap(valid.array().clone()).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(4 * corruption[0], corruption[1]);
+            try {
+                CompactGraph.readFrom(buffer);
+                fail("Corrupt int #" + corruption[0] + " accepted");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        try {
+            CompactGraph.readFrom(ByteBuffer.wrap(valid.array(), 0, 6));
+            fail("Truncated header accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
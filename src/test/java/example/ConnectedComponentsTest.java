@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.util.Iterator;
+import org.junit.Test;
+
+public class ConnectedComponentsTest {
+
+    /**
+     * Compare components and confined searches with searches on the whole structure.
+     *
+     * @param ctab Connection table
+     */
+    private static void ensure_consistency_with_findshortestpaths(int [][] ctab) {
+        final ConnectedComponents components = new ConnectedComponents(ctab);
+
+        int sizes = 0;
+        for (int c = 0; c < components.getComponentCount(); c++) {
+            final int [] members = components.getMembers(c);
+            assertThat(members.length, is(components.getComponentSize(c)));
+            assertThat(components.getComponentGraph(c).getAtomCount(), is(members.length));
+            for (int k = 0; k < members.length; k++) {
+                assertThat(components.getComponent(members[k]), is(c));
+                assertThat(components.getLocalIndex(members[k]), is(k));
+                assertThat(components.getAtom(c, k), is(members[k]));
+                if (k > 0) {
+                    assertThat("Members in index order", members[k - 1] < members[k], is(true));
+                }
+            }
+            sizes += members.length;
+        }
+        assertThat(sizes, is(ctab.length));
+
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, a1);
+            final int c = components.getComponent(a1);
+            final FindShortestPaths confined = components.getShortestPathsFrom(a1);
+            assertThat(confined.getAtomCount(), is(components.getComponentSize(c)));
+
+            for (int a2 = 0; a2 < ctab.length; a2++) {
+                assertThat("Same connectivity", components.isConnected(a1, a2), is(fp.isPathExistsTo(a2)));
+                if (!fp.isPathExistsTo(a2)) {
+                    try {
+                        components.getShortestPathLength(a1, a2);
+                        fail("Path length of disconnected atoms accepted");
+                    } catch (IllegalArgumentException e) {
+                        // expected
+                    }
+                    continue;
+                }
+                final int local2 = components.getLocalIndex(a2);
+                assertThat("Same path length", confined.getShortestPathLengthTo(local2),
+                        is(fp.getShortestPathLengthTo(a2)));
+                assertThat("Same pair query length", components.getShortestPathLength(a1, a2),
+                        is(fp.getShortestPathLengthTo(a2)));
+                assertThat("Same path count", confined.countShortestPathsTo(local2),
+                        is(fp.countShortestPathsTo(a2)));
+            }
+        }
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab();
+        ensure_consistency_with_findshortestpaths(ctab);
+
+        final ConnectedComponents components = new ConnectedComponents(ctab);
+        assertThat(components.getComponentCount(), is(1));
+        assertThat(components.getLargestComponent(), is(0));
+    }
+
+    @Test
+    public void large_multifrag() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab();
+        ensure_consistency_with_findshortestpaths(ctab);
+
+        final ConnectedComponents components = new ConnectedComponents(ctab);
+        assertThat(components.getComponentCount(), is(DistanceDescriptors.of(ctab).getFragmentCount()));
+    }
+
+    @Test
+    public void salt() {
+        // sodium benzoate: Na+ is a separate single atom component
+        final int [][] ctab = ofSmiles("[Na+].[O-]C(=O)c1ccccc1").getCtab();
+        ensure_consistency_with_findshortestpaths(ctab);
+
+        final ConnectedComponents components = new ConnectedComponents(ctab);
+        assertThat(components.getComponentCount(), is(2));
+        assertThat(components.getComponentSize(0), is(1));
+        assertThat(components.getLargestComponent(), is(1));
+        assertThat(components.getComponentGraph(0).getBondCount(), is(0));
+        assertThat(components.isConnected(0, 5), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void no_path_length_between_components() {
+        new ConnectedComponents(ofSmiles("[Na+].[O-]C(=O)c1ccccc1").getCtab()).getShortestPathLength(0, 5);
+    }
+
+    @Test
+    public void interleaved_components() {
+        // two chains with alternating atom indices: 0-2-4-6 and 1-3-5
+        final int [][] ctab = new int [][] {{2}, {3}, {0, 4}, {1, 5}, {2, 6}, {3}, {4}};
+        ensure_consistency_with_findshortestpaths(ctab);
+
+        final ConnectedComponents components = new ConnectedComponents(ctab);
+        assertThat(components.getMembers(0), is(new int [] {0, 2, 4, 6}));
+        assertThat(components.getMembers(1), is(new int [] {1, 3, 5}));
+
+        final FindShortestPaths confined = components.getShortestPathsFrom(1);
+        final Iterator<int []> it = confined.enumerateShortestPathsTo(components.getLocalIndex(5));
+        assertThat(components.toAtoms(1, it.next()), is(new int [] {1, 3, 5}));
+        assertThat(it.hasNext(), is(false));
+    }
+
+    @Test
+    public void single_component_shares_graph() {
+        final CompactGraph graph = CompactGraph.of(SyntheticGraphs.grid(5, 6));
+        final ConnectedComponents components = new ConnectedComponents(graph);
+
+        assertThat(components.getComponentCount(), is(1));
+        assertThat(components.getComponentGraph(0), is(sameInstance(graph)));
+    }
+
+    @Test
+    public void component_graph_built_once() {
+        final ConnectedComponents components = new ConnectedComponents(
+                ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+
+        final CompactGraph graph = components.getComponentGraph(1);
+        assertThat(components.getComponentGraph(1), is(sameInstance(graph)));
+        assertThat(graph.getAtomCount(), is(components.getComponentSize(1)));
+    }
+
+    @Test
+    public void empty_structure() {
+        final ConnectedComponents components = new ConnectedComponents(new int[0][]);
+
+        assertThat(components.getComponentCount(), is(0));
+        assertThat(components.getLargestComponent(), is(-1));
+    }
+
+}
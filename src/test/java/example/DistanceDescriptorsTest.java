@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class DistanceDescriptorsTest {
+
+    /**
+     * Compare descriptors with values derived from the all pairs distance matrix.
+     *
+     * @param ctab Connection table
+     */
+    private static void ensure_consistency_with_allpairs(int [][] ctab) {
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+        final DistanceDescriptors descriptors = DistanceDescriptors.of(ctab);
+
+        long wiener = 0;
+        int radius = ctab.length == 0 ? 0 : Integer.MAX_VALUE;
+        final long [] histogram = new long[allPairs.getDiameter() + 1];
+        for (int i = 0; i < ctab.length; i++) {
+            int eccentricity = 0;
+            long sum = 0;
+            for (int j = 0; j < ctab.length; j++) {
+                if (allPairs.pathExists(i, j)) {
+                    final int d = allPairs.distance(i, j);
+                    eccentricity = Math.max(eccentricity, d);
+                    sum += d;
+                    if (j < i) {
+                        wiener += d;
+                        histogram[d]++;
+                    }
+                }
+            }
+            assertThat("Eccentricity of " + i, descriptors.getEccentricity(i), is(eccentricity));
+            assertThat("Distance sum of " + i, descriptors.getDistanceSum(i), is(sum));
+            radius = Math.min(radius, eccentricity);
+        }
+
+        assertThat(descriptors.getAtomCount(), is(ctab.length));
+        assertThat(descriptors.getWienerIndex(), is(wiener));
+        assertThat(descriptors.getDiameter(), is(allPairs.getDiameter()));
+        assertThat(descriptors.getRadius(), is(radius));
+        assertThat(descriptors.getDistanceHistogram(), is(histogram));
+    }
+
+    /**
+     * Check that parallel calculation gives the same descriptors.
+     *
+     * @param ctab Connection table
+     */
+    private static void ensure_parallel_is_same(int [][] ctab) {
+        final CompactGraph graph = CompactGraph.of(ctab);
+        final DistanceDescriptors sequential = DistanceDescriptors.of(graph, false);
+        final DistanceDescriptors parallel = DistanceDescriptors.of(graph, true);
+
+        assertThat(parallel.getWienerIndex(), is(sequential.getWienerIndex()));
+        assertThat(parallel.getEccentricities(), is(sequential.getEccentricities()));
+        assertThat(parallel.getDistanceHistogram(), is(sequential.getDistanceHistogram()));
+        assertThat(parallel.getFragmentCount(), is(sequential.getFragmentCount()));
+        assertThat(parallel.getBalabanJ(), is(sequential.getBalabanJ()));
+        for (int i = 0; i < ctab.length; i++) {
+            assertThat(parallel.getDistanceSum(i), is(sequential.getDistanceSum(i)));
+        }
+    }
+
+    @Test
+    public void chain_wiener_index() {
+        final int n = 50;
+        final DistanceDescriptors descriptors = DistanceDescriptors.of(SyntheticGraphs.chain(n));
+
+        assertThat(descriptors.getWienerIndex(), is((long) n * (n * n - 1) / 6));
+        assertThat(descriptors.getDiameter(), is(n - 1));
+        assertThat(descriptors.getRadius(), is(n / 2));
+        assertThat(descriptors.getFragmentCount(), is(1));
+    }
+
+    @Test
+    public void cyclohexane() {
+        final DistanceDescriptors descriptors = DistanceDescriptors.of(ofSmiles(ShortestPathsTest.C6_SMILES).getCtab());
+
+        assertThat(descriptors.getWienerIndex(), is(27L));
+        assertThat(descriptors.getDistanceHistogram(), is(new long [] {0, 6, 6, 3}));
+        assertThat(descriptors.getRadius(), is(3));
+        assertThat(descriptors.getBalabanJ(), closeTo(2.0, 1e-9));
+    }
+
+    @Test
+    public void propane_balaban_j() {
+        final DistanceDescriptors descriptors = DistanceDescriptors.of(SyntheticGraphs.chain(3));
+
+        assertThat(descriptors.getBalabanJ(), closeTo(2 * 2 / Math.sqrt(6), 1e-9));
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab();
+        ensure_consistency_with_allpairs(ctab);
+        ensure_parallel_is_same(ctab);
+    }
+
+    @Test
+    public void large_multifrag() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab();
+        ensure_consistency_with_allpairs(ctab);
+        ensure_parallel_is_same(ctab);
+        assertThat(DistanceDescriptors.of(ctab).getFragmentCount() > 1, is(true));
+    }
+
+    @Test
+    public void parallel_on_large_grid() {
+        final int [][] ctab = SyntheticGraphs.grid(40, 50);
+        ensure_consistency_with_allpairs(ctab);
+        ensure_parallel_is_same(ctab);
+    }
+
+    @Test
+    public void biphenyl_fragments() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.BIPHENYL_SMILES).getCtab();
+        ensure_consistency_with_allpairs(ctab);
+        assertThat(DistanceDescriptors.of(ctab).getFragmentCount(), is(1));
+    }
+
+    @Test
+    public void empty_structure() {
+        final DistanceDescriptors descriptors = DistanceDescriptors.of(new int[0][]);
+
+        assertThat(descriptors.getWienerIndex(), is(0L));
+        assertThat(descriptors.getDiameter(), is(0));
+        assertThat(descriptors.getRadius(), is(0));
+        assertThat(descriptors.getBalabanJ(), is(0.0));
+        assertThat(descriptors.getDistanceHistogram(), is(new long [] {0}));
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DistanceStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Compare stored distances with the all pairs distance matrix.
+     *
+     * @param reader Store
+     * @param molId Molecule id
+     * @param ctab Connection table of the molecule
+     */
+    private static void ensure_consistency_with_allpairs(DistanceStoreReader reader, int molId, int [][] ctab) {
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+        assertThat(reader.getAtomCount(molId), is(ctab.length));
+        for (int i = 0; i < ctab.length; i++) {
+            for (int j = 0; j < ctab.length; j++) {
+                assertThat("Same connectivity", reader.pathExists(molId, i, j), is(allPairs.pathExists(i, j)));
+                if (allPairs.pathExists(i, j)) {
+                    assertThat("Same distance", reader.distance(molId, i, j), is(allPairs.distance(i, j)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Library of test structures.
+     *
+     * @return Connection tables
+     */
+    private static List<int [][]> library() {
+        final List<int [][]> ret = new ArrayList<>();
+        ret.add(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab());
+        ret.add(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+        ret.add(ofSmiles(ShortestPathsTest.C6_SMILES).getCtab());
+        ret.add(new int[0][]);
+        ret.add(new int [][] {{}});
+        ret.add(SyntheticGraphs.chain(255));
+        ret.add(SyntheticGraphs.grid(12, 12));
+        ret.add(SyntheticGraphs.fullerene60());
+        return ret;
+    }
+
+    @Test
+    public void round_trip() throws IOException {
+        final Path path = this.folder.newFile().toPath();
+        final List<int [][]> library = library();
+
+        try (DistanceStoreWriter writer = new DistanceStoreWriter(path)) {
+            for (int k = 0; k < library.size(); k++) {
+                assertThat(writer.add(library.get(k)), is(k));
+            }
+            assertThat(writer.getMoleculeCount(), is(library.size()));
+        }
+
+        try (DistanceStoreReader reader = new DistanceStoreReader(path)) {
+            assertThat(reader.getMoleculeCount(), is(library.size()));
+            for (int k = 0; k < library.size(); k++) {
+                ensure_consistency_with_allpairs(reader, k, library.get(k));
+            }
+            assertThat(reader.distance(5, 0, 254), is(254));
+        }
+    }
+
+    @Test
+    public void records_do_not_cross_segments() throws IOException {
+        final Path path = this.folder.newFile().toPath();
+        final List<int [][]> library = library();
+
+        // 64 KiB segments: records of the multi fragment structure and the chain take 41 and 32 KiB
+        try (DistanceStoreWriter writer = new DistanceStoreWriter(path, 16)) {
+            for (int round = 0; round < 20; round++) {
+                for (int [][] ctab : library) {
+                    writer.add(ctab);
+                }
+            }
+        }
+        assertThat(Files.size(path) > 20 * (1 << 16), is(true));
+
+        try (DistanceStoreReader reader = new DistanceStoreReader(path)) {
+            assertThat(reader.getMoleculeCount(), is(20 * library.size()));
+            for (int molId = 0; molId < reader.getMoleculeCount(); molId++) {
+                ensure_consistency_with_allpairs(reader, molId, library.get(molId % library.size()));
+            }
+        }
+    }
+
+    @Test
+    public void concurrent_readers() throws IOException {
+        final Path path = this.folder.newFile().toPath();
+        final int [][] ctab = SyntheticGraphs.grid(20, 20);
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+        try (DistanceStoreWriter writer = new DistanceStoreWriter(path)) {
+            for (int k = 0; k < 50; k++) {
+                writer.add(ctab);
+            }
+        }
+
+        try (DistanceStoreReader reader = new DistanceStoreReader(path)) {
+            final long mismatches = IntStream.range(0, 50 * ctab.length).parallel()
+                    .filter(q -> {
+                        final int molId = q / ctab.length;
+                        final int i = q % ctab.length;
+                        for (int j = 0; j < ctab.length; j++) {
+                            if (reader.distance(molId, i, j) != allPairs.distance(i, j)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    })
+                    .count();
+            assertThat(mismatches, is(0L));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void too_large_distance() throws IOException {
+        try (DistanceStoreWriter writer = new DistanceStoreWriter(this.folder.newFile().toPath())) {
+            writer.add(SyntheticGraphs.chain(DistanceStoreWriter.MAX_DISTANCE + 2));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void too_large_record() throws IOException {
+        try (DistanceStoreWriter writer = new DistanceStoreWriter(this.folder.newFile().toPath(), 10)) {
+            writer.add(SyntheticGraphs.grid(8, 8));
+        }
+    }
+
+    @Test
+    public void invalid_queries() throws IOException {
+        final Path path = this.folder.newFile().toPath();
+        try (DistanceStoreWriter writer = new DistanceStoreWriter(path)) {
+            writer.add(ofSmiles(ShortestPathsTest.C6_SMILES).getCtab());
+        }
+
+        try (DistanceStoreReader reader = new DistanceStoreReader(path)) {
+            try {
+                reader.distance(1, 0, 1);
+                fail("Invalid molecule id accepted");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+            try {
+                reader.distance(0, 0, 6);
+                fail("Invalid atom index accepted");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void not_a_store() throws IOException {
+        final Path path = this.folder.newFile().toPath();
+        Files.write(path, new byte[64]);
+        new DistanceStoreReader(path).close();
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class DynamicShortestPathsTest {
+
+    public static void ensure_same_as_recalculated(DynamicShortestPaths dynamic) {
+        final CompactGraph graph = dynamic.toGraph();
+        for (int a1 : dynamic.getSources()) {
+            final FindShortestPaths fp = new FindShortestPaths(graph, a1);
+            final FindShortestPaths snapshot = dynamic.getShortestPathsFrom(a1);
+            assertThat("Same distances in snapshot", snapshot.toString(), is(fp.toString()));
+            for (int a2 = 0; a2 < graph.getAtomCount(); a2++) {
+                assertThat(dynamic.isPathExists(a1, a2), is(fp.isPathExistsTo(a2)));
+                if (fp.isPathExistsTo(a2)) {
+                    assertThat(dynamic.getShortestPathLength(a1, a2), is(fp.getShortestPathLengthTo(a2)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply random bond additions and removals and check distances after each.
+     *
+     * @param dynamic Instance to update
+     * @param changes Number of changes
+     * @param seed Random seed
+     */
+    public static void ensure_consistent_under_random_changes(DynamicShortestPaths dynamic, int changes, long seed) {
+        final Random random = new Random(seed);
+        final int atomCount = dynamic.getAtomCount();
+        for (int c = 0; c < changes; c++) {
+            final int i = random.nextInt(atomCount);
+            final int j = random.nextInt(atomCount);
+            if (i == j) {
+                continue;
+            }
+            if (dynamic.hasBond(i, j)) {
+                dynamic.removeBond(i, j);
+            } else {
+                dynamic.addBond(i, j);
+            }
+            ensure_same_as_recalculated(dynamic);
+        }
+    }
+
+    @Test
+    public void random_changes_on_vancomycin() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab();
+        ensure_consistent_under_random_changes(new DynamicShortestPaths(ctab, 0, 17, 42, 100), 300, 1);
+    }
+
+    @Test
+    public void random_changes_all_pairs() {
+        final CompactGraph graph = CompactGraph.of(ofSmiles(ShortestPathsTest.BIPHENYL_SMILES));
+        ensure_consistent_under_random_changes(DynamicShortestPaths.allPairs(graph), 200, 2);
+    }
+
+    @Test
+    public void bond_removals_on_large_multifrag() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab();
+        final DynamicShortestPaths dynamic = new DynamicShortestPaths(ctab, 0, 5, 150);
+
+        // remove every bond one by one, disconnecting the structure gradually
+        for (int i = 0; i < ctab.length; i++) {
+            for (int j : ctab[i]) {
+                if (i < j) {
+                    dynamic.removeBond(i, j);
+                    ensure_same_as_recalculated(dynamic);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void random_changes_on_grid() {
+        ensure_consistent_under_random_changes(new DynamicShortestPaths(SyntheticGraphs.grid(8, 8), 0, 27, 63), 400, 3);
+    }
+
+    @Test
+    public void local_change_relabels_few_atoms() {
+        // far end of a long chain: only the distances beyond the change are re-labeled
+        final DynamicShortestPaths dynamic = new DynamicShortestPaths(SyntheticGraphs.chain(100000), 0);
+
+        dynamic.addBond(99990, 99999);
+        assertThat(dynamic.getLastRelabeledCount(), lessThanOrEqualTo(10L));
+        assertThat(dynamic.getShortestPathLength(0, 99999), is(99991));
+
+        dynamic.removeBond(99990, 99999);
+        assertThat(dynamic.getLastRelabeledCount(), lessThanOrEqualTo(10L));
+        assertThat(dynamic.getShortestPathLength(0, 99999), is(99999));
+
+        // shortcut 5 - 106 relabels the rest of the chain
+        dynamic.addBond(5, 106);
+        assertThat(dynamic.getShortestPathLength(0, 99999), is(99999 - 100));
+
+        // bond 6 - 7 between atoms of the same layer is on no shortest path
+        dynamic.addBond(5, 7);
+        dynamic.removeBond(6, 7);
+        assertThat(dynamic.getLastRelabeledCount(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void existing_bond_rejected() {
+        new DynamicShortestPaths(SyntheticGraphs.chain(3), 0).addBond(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missing_bond_rejected() {
+        new DynamicShortestPaths(SyntheticGraphs.chain(3), 0).removeBond(0, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void query_requires_central_atom() {
+        new DynamicShortestPaths(SyntheticGraphs.chain(3), 0).getShortestPathLength(1, 2);
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class MultiSourceBfsTest {
+
+    /**
+     * Compare bit parallel distance rows with the original sweep implementation.
+     *
+     * @param ctab Connection table
+     */
+    public static void ensure_same_rows_as_sweep(int [][] ctab) {
+        final int atomCount = ctab.length;
+        final MultiSourceBfs bfs = new MultiSourceBfs(ctab);
+
+        // use central atoms in reverse order to exercise batches not aligned to atom indices
+        final int [] sources = new int[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            sources[i] = atomCount - 1 - i;
+        }
+
+        final int [][] rows = new int[MultiSourceBfs.BATCH_SIZE][atomCount];
+        for (int first = 0; first < atomCount; first += MultiSourceBfs.BATCH_SIZE) {
+            final int count = Math.min(MultiSourceBfs.BATCH_SIZE, atomCount - first);
+            bfs.run(sources, first, count, rows);
+
+            for (int k = 0; k < count; k++) {
+                final int a1 = sources[first + k];
+                final FindShortestPaths fp = new FindShortestPaths(ctab, a1, FindShortestPaths.Algorithm.SWEEP);
+                assertThat("Same distances from " + a1,
+                        "a1: " + a1 + ", shortest distances from a1: " + Arrays.toString(rows[k]),
+                        is(fp.toString()));
+            }
+        }
+
+        final AllPairsShortestPaths bitParallel =
+                new AllPairsShortestPaths(ctab, AllPairsShortestPaths.Algorithm.BIT_PARALLEL);
+        for (int a1 = 0; a1 < atomCount; a1++) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, a1, FindShortestPaths.Algorithm.SWEEP);
+            assertThat("Same distances in all pairs matrix", bitParallel.getShortestPathsFrom(a1).toString(),
+                    is(fp.toString()));
+        }
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        ensure_same_rows_as_sweep(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab());
+    }
+
+    @Test
+    public void large_multifrag() {
+        ensure_same_rows_as_sweep(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+    }
+
+    @Test
+    public void long_chain() {
+        ensure_same_rows_as_sweep(SyntheticGraphs.chain(300));
+    }
+
+    @Test
+    public void small_structures() {
+        ensure_same_rows_as_sweep(ofSmiles(ShortestPathsTest.C6_SMILES).getCtab());
+        ensure_same_rows_as_sweep(ofSmiles(ShortestPathsTest.BIPHENYL_SMILES).getCtab());
+        ensure_same_rows_as_sweep(SyntheticGraphs.chain(1));
+    }
+
+}
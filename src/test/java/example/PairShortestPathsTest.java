@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import chemaxon.struc.Molecule;
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.collect.Lists;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+public class PairShortestPathsTest {
+
+    public static void ensure_consistency_with_findshortestpaths(final Molecule m) {
+        final int [][] ctab = m.getCtab();
+        final int atomCount = m.getAtomCount();
+
+        for (int a1 = 0; a1 < atomCount; a1++) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, a1);
+
+            for (int a2 = 0; a2 < atomCount; a2++) {
+                final PairShortestPaths pair = FindShortestPaths.pairQuery(ctab, a1, a2);
+
+                assertThat("Same connectivity", pair.isPathExists(), is(fp.isPathExistsTo(a2)));
+                if (!fp.isPathExistsTo(a2)) {
+                    continue;
+                }
+
+                assertThat("Same path length", pair.getShortestPathLength(), is(fp.getShortestPathLengthTo(a2)));
+                ShortestPathsTest.ensure_consistent_path(m, a1, a2, pair.getSingleShortestPath());
+
+                final List<int []> allPaths = Lists.newArrayList(fp.enumerateShortestPathsTo(a2));
+                assertThat("Same paths enumerated", Lists.newArrayList(pair.enumerateShortestPaths()),
+                        containsInAnyOrder(allPaths.toArray(new int[0][])));
+                assertThat("Same path count", pair.countShortestPaths(), is((long) allPaths.size()));
+                assertThat("Same union", pair.unionOfShortestPaths(), is(fp.unionOfShortestPaths(a2)));
+            }
+        }
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        ensure_consistency_with_findshortestpaths(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES));
+    }
+
+    @Test
+    public void large_multifrag() {
+        ensure_consistency_with_findshortestpaths(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES));
+    }
+
+    @Test
+    public void run_on_biphenyl() {
+        final Molecule m = ofSmiles(ShortestPathsTest.BIPHENYL_SMILES);
+
+        final PairShortestPaths pair = FindShortestPaths.pairQuery(m.getCtab(), 2, 9);
+
+        assertThat(pair.getShortestPathLength(), is(7));
+        assertThat(Lists.newArrayList(pair.enumerateShortestPaths()), containsInAnyOrder(
+                new int [] { 2, 3, 4, 5, 6, 7, 8, 9 },
+                new int [] { 2, 3, 4, 5, 6, 11, 10, 9 },
+                new int [] { 2, 1, 0, 5, 6, 7, 8, 9 },
+                new int [] { 2, 1, 0, 5, 6, 11, 10, 9 }
+        ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void disconnected_pair() {
+        final Molecule m = ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES);
+
+        final int [][] ctab = m.getCtab();
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+        int other = 0;
+        while (fp.isPathExistsTo(other)) {
+            other++;
+        }
+
+        final PairShortestPaths pair = FindShortestPaths.pairQuery(ctab, 0, other);
+        assertThat(pair.isPathExists(), is(false));
+        pair.getSingleShortestPath();
+    }
+
+    /**
+     * Thread allocation counters; skips the test when not available.
+     *
+     * @return Allocation counters
+     */
+    private static com.sun.management.ThreadMXBean allocationCounters() {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+        return allocations;
+    }
+
+    /**
+     * Bytes allocated by a local pair query in the middle of a chain.
+     *
+     * @param allocations Thread allocation counters
+     * @param atomCount Chain length
+     * @param scratch Search state, {@code null} for the per thread scratch
+     * @return Average bytes allocated per query
+     */
+    private static long local_query_allocation(com.sun.management.ThreadMXBean allocations, int atomCount,
+            PairShortestPaths.Scratch scratch) {
+        final CompactGraph graph = CompactGraph.of(SyntheticGraphs.chain(atomCount));
+        final int a1 = atomCount / 2;
+
+        // warm up, also sizes the scratch
+        for (int k = 0; k < 100; k++) {
+            assertThat(FindShortestPaths.pairQuery(graph, a1, a1 + 3, scratch).getShortestPathLength(), is(3));
+        }
+
+        final int calls = 1000;
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        int lengths = 0;
+        for (int k = 0; k < calls; k++) {
+            lengths += FindShortestPaths.pairQuery(graph, a1, a1 + 3, scratch).getShortestPathLength();
+        }
+        final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertThat(lengths, is(3 * calls));
+        return allocated / calls;
+    }
+
+    @Test
+    public void local_query_does_not_scale_with_atom_count() {
+        final com.sun.management.ThreadMXBean allocations = allocationCounters();
+
+        final long small = local_query_allocation(allocations, 100, null);
+        final long retained = local_query_allocation(allocations, PairShortestPaths.MAX_RETAINED_ATOMS, null);
+        final long large = local_query_allocation(allocations, 100000, new PairShortestPaths.Scratch());
+
+        // the result and the atoms on the path only; a per atom array would be 256 KB or more here
+        assertThat(small, lessThan(512L));
+        assertThat(retained, lessThan(512L));
+        assertThat(large, lessThan(512L));
+    }
+
+    @Test
+    public void scratch_not_retained_for_large_structures() {
+        final com.sun.management.ThreadMXBean allocations = allocationCounters();
+
+        // a per query scratch of 8 arrays of the atom count
+        final int atomCount = PairShortestPaths.MAX_RETAINED_ATOMS + 1;
+        assertThat(local_query_allocation(allocations, atomCount, null), greaterThan(8L * 4 * atomCount));
+    }
+
+    @Test
+    public void caller_scratch_reused_across_structures() {
+        final PairShortestPaths.Scratch scratch = new PairShortestPaths.Scratch();
+        final CompactGraph grid = CompactGraph.of(SyntheticGraphs.grid(10, 10));
+        final CompactGraph chain = CompactGraph.of(SyntheticGraphs.chain(5));
+
+        assertThat(FindShortestPaths.pairQuery(grid, 0, 99, scratch).countShortestPaths(), is(48620L));
+        assertThat(FindShortestPaths.pairQuery(chain, 0, 4, scratch).getShortestPathLength(), is(4));
+        assertThat(FindShortestPaths.pairQuery(grid, 0, 99, scratch).getShortestPathLength(), is(18));
+    }
+
+    @Test
+    public void paths_after_queries_on_other_structures() {
+        final int [][] ctab = ofSmiles("c1ccccc1-c2ccccc2").getCtab();
+        final PairShortestPaths pair = FindShortestPaths.pairQuery(ctab, 2, 9);
+
+        // scratch is reused by later queries; the result must not depend on it
+        FindShortestPaths.pairQuery(SyntheticGraphs.grid(10, 10), 0, 99);
+        FindShortestPaths.pairQuery(ctab, 0, 11);
+        assertThat(pair.countShortestPaths(), is(4L));
+        assertThat(pair.unionOfShortestPaths().cardinality(), is(12));
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Empirical scaling of shortest path operations on large synthetic structures.
+ *
+ * For each structure family and operation the running time is measured on sizes growing geometrically, and the
+ * scaling exponent is fitted as the least squares slope of log time vs. log atom count. The test fails when a fitted
+ * exponent exceeds its bound.
+ *
+ * Excluded from the {@code test} task; run with {@code stressTest}. Configurable through system properties:
+ * <ul>
+ *   <li>{@code stress.minAtoms}, {@code stress.maxAtoms}: size range (default 10^2 - 10^6)</li>
+ *   <li>{@code stress.runs}: repeated measurements, the fastest is used (default 5)</li>
+ *   <li>{@code stress.maxExponent.<operation>}: bound of the exponent of an operation</li>
+ *   <li>{@code stress.maxAtoms.<operation>}: size limit of an operation, overriding {@code stress.maxAtoms}</li>
+ * </ul>
+ */
+public class ScalingStressTest {
+
+    private static final int MIN_ATOMS = Integer.getInteger("stress.minAtoms", 100);
+
+    private static final int MAX_ATOMS = Integer.getInteger("stress.maxAtoms", 1000000);
+
+    private static final int RUNS = Integer.getInteger("stress.runs", 5);
+
+    /**
+     * Minimal duration of a single measurement; fast operations are repeated to reach it.
+     */
+    private static final long MIN_MEASUREMENT_NANOS = 20000000L;
+
+    /**
+     * Number of paths enumerated.
+     */
+    private static final int ENUMERATION_LIMIT = 100;
+
+    /**
+     * Structure to measure on.
+     */
+    private static final class Fixture {
+        final CompactGraph graph;
+        final FindShortestPaths paths;
+        final int a2;
+
+        Fixture(int [][] ctab) {
+            this.graph = CompactGraph.of(ctab);
+            this.paths = new FindShortestPaths(this.graph, 0);
+            int farthest = 0;
+            for (int ai = 0; ai < ctab.length; ai++) {
+                if (this.paths.isPathExistsTo(ai)
+                        && this.paths.getShortestPathLengthTo(ai) > this.paths.getShortestPathLengthTo(farthest)) {
+                    farthest = ai;
+                }
+            }
+            this.a2 = farthest;
+        }
+    }
+
+    /**
+     * Measured operations.
+     */
+    private enum Operation {
+        CONSTRUCTION(1.5) {
+            @Override
+            Object run(Fixture fixture) {
+                return new FindShortestPaths(fixture.graph, 0);
+            }
+        },
+
+        ENUMERATION(1.5) {
+            @Override
+            Object run(Fixture fixture) {
+                final int [] count = new int[1];
+                fixture.paths.forEachShortestPathTo(fixture.a2, path -> ++count[0] < ENUMERATION_LIMIT);
+                return count;
+            }
+        },
+
+        UNION(1.5) {
+            @Override
+            Object run(Fixture fixture) {
+                return fixture.paths.unionOfShortestPaths(fixture.a2);
+            }
+        };
+
+        final double maxExponent;
+
+        final int maxAtoms;
+
+        Operation(double maxExponent) {
+            final String key = name().toLowerCase(Locale.ROOT);
+            this.maxExponent = Double.parseDouble(
+                    System.getProperty("stress.maxExponent." + key, Double.toString(maxExponent)));
+            this.maxAtoms = Integer.getInteger("stress.maxAtoms." + key, MAX_ATOMS);
+        }
+
+        abstract Object run(Fixture fixture);
+    }
+
+    /**
+     * Sink preventing dead code elimination of measured operations.
+     */
+    private static volatile Object sink;
+
+    /**
+     * Measure an operation.
+     *
+     * @param operation Operation
+     * @param fixture Structure
+     * @return Fastest time of a single invocation in nanoseconds
+     */
+    private static double measure(Operation operation, Fixture fixture) {
+        long start = System.nanoTime();
+        sink = operation.run(fixture);
+        final long first = System.nanoTime() - start;
+        final long reps = Math.max(1, MIN_MEASUREMENT_NANOS / Math.max(1, first));
+
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            start = System.nanoTime();
+            for (long r = 0; r < reps; r++) {
+                sink = operation.run(fixture);
+            }
+            best = Math.min(best, (double) (System.nanoTime() - start) / reps);
+        }
+        return best;
+    }
+
+    /**
+     * Least squares slope of log-log data.
+     *
+     * @param sizes Sizes
+     * @param times Times
+     * @return Fitted exponent
+     */
+    static double fitExponent(List<Integer> sizes, List<Double> times) {
+        final int n = sizes.size();
+        double sx = 0;
+        double sy = 0;
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < n; i++) {
+            final double x = Math.log(sizes.get(i));
+            final double y = Math.log(times.get(i));
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+
+    /**
+     * Measure all operations on a structure family and check fitted exponents.
+     *
+     * @param family Family name for reporting
+     * @param generator Structure generator; invoked with the approximate atom count
+     */
+    private static void ensure_scaling(String family, IntFunction<int [][]> generator) {
+        final List<Integer> sizes = new ArrayList<>();
+        for (double size = MIN_ATOMS; size <= MAX_ATOMS * 1.0001; size *= Math.sqrt(10)) {
+            sizes.add((int) Math.round(size));
+        }
+
+        final List<List<Integer>> measuredSizes = new ArrayList<>();
+        final List<List<Double>> measuredTimes = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            measuredSizes.add(new ArrayList<>());
+            measuredTimes.add(new ArrayList<>());
+        }
+
+        for (int size : sizes) {
+            final Fixture fixture = new Fixture(generator.apply(size));
+            for (Operation operation : Operation.values()) {
+                if (size <= operation.maxAtoms) {
+                    final double time = measure(operation, fixture);
+                    measuredSizes.get(operation.ordinal()).add(fixture.graph.getAtomCount());
+                    measuredTimes.get(operation.ordinal()).add(time);
+                    System.out.println(String.format(Locale.ROOT, "%-14s %-14s %9d atoms %14.0f ns",
+                            family, operation, fixture.graph.getAtomCount(), time));
+                }
+            }
+        }
+
+        final StringBuilder failures = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            final List<Integer> s = measuredSizes.get(operation.ordinal());
+            if (s.size() < 2) {
+                continue;
+            }
+            final double exponent = fitExponent(s, measuredTimes.get(operation.ordinal()));
+            System.out.println(String.format(Locale.ROOT, "%-14s %-14s exponent %.2f (bound %.2f)",
+                    family, operation, exponent, operation.maxExponent));
+            if (exponent > operation.maxExponent) {
+                failures.append(String.format(Locale.ROOT, "%n%s %s: exponent %.2f exceeds %.2f",
+                        family, operation, exponent, operation.maxExponent));
+            }
+        }
+        if (failures.length() > 0) {
+            fail("Scaling regression" + failures);
+        }
+    }
+
+    @Test
+    public void chain_scaling() {
+        ensure_scaling("chain", SyntheticGraphs::chain);
+    }
+
+    @Test
+    public void ladder_scaling() {
+        ensure_scaling("ladder", n -> SyntheticGraphs.ladder(n / 2));
+    }
+
+    @Test
+    public void dendrimer_scaling() {
+        ensure_scaling("dendrimer", n -> SyntheticGraphs.dendrimer(n, 3));
+    }
+
+    @Test
+    public void random_sparse_scaling() {
+        ensure_scaling("random sparse", n -> SyntheticGraphs.randomSparse(n, n / 2, 42));
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.util.BitSet;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ShortestPathsBetweenSetsTest {
+
+    /**
+     * Check against all pairs distances.
+     *
+     * @param ctab Connection table
+     * @param queries Number of random set pairs to check
+     * @param maxSetSize Largest set size
+     * @param seed Random seed
+     */
+    public static void ensure_consistency_with_allpairs(int [][] ctab, int queries, int maxSetSize, long seed) {
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+        final ShortestPathsBetweenSets betweenSets = new ShortestPathsBetweenSets(ctab);
+        final Random random = new Random(seed);
+        final BitSet union = new BitSet();
+
+        for (int q = 0; q < queries; q++) {
+            final BitSet sources = randomSet(ctab.length, 1 + random.nextInt(maxSetSize), random);
+            final BitSet targets = randomSet(ctab.length, 1 + random.nextInt(maxSetSize), random);
+
+            int expectedDistance = -1;
+            for (int a = sources.nextSetBit(0); a >= 0; a = sources.nextSetBit(a + 1)) {
+                for (int b = targets.nextSetBit(0); b >= 0; b = targets.nextSetBit(b + 1)) {
+                    if (allPairs.pathExists(a, b)
+                            && (expectedDistance == -1 || allPairs.distance(a, b) < expectedDistance)) {
+                        expectedDistance = allPairs.distance(a, b);
+                    }
+                }
+            }
+
+            final BitSet expectedUnion = new BitSet();
+            if (expectedDistance != -1) {
+                for (int v = 0; v < ctab.length; v++) {
+                    final int fromSources = distanceToSet(allPairs, v, sources);
+                    final int fromTargets = distanceToSet(allPairs, v, targets);
+                    if (fromSources != -1 && fromTargets != -1 && fromSources + fromTargets == expectedDistance) {
+                        expectedUnion.set(v);
+                    }
+                }
+            }
+
+            assertThat(betweenSets.unionOfShortestPaths(sources, targets, union), is(expectedDistance));
+            assertThat(union, is(expectedUnion));
+            assertThat(betweenSets.getShortestDistance(sources, targets), is(expectedDistance));
+            assertThat(betweenSets.unionOfShortestPaths(sources, targets), is(expectedUnion));
+        }
+    }
+
+    private static int distanceToSet(AllPairsShortestPaths allPairs, int v, BitSet set) {
+        int ret = -1;
+        for (int a = set.nextSetBit(0); a >= 0; a = set.nextSetBit(a + 1)) {
+            if (allPairs.pathExists(v, a) && (ret == -1 || allPairs.distance(v, a) < ret)) {
+                ret = allPairs.distance(v, a);
+            }
+        }
+        return ret;
+    }
+
+    private static BitSet randomSet(int atomCount, int size, Random random) {
+        final BitSet ret = new BitSet();
+        for (int i = 0; i < size; i++) {
+            ret.set(random.nextInt(atomCount));
+        }
+        return ret;
+    }
+
+    @Test
+    public void run_on_vancomycin() {
+        ensure_consistency_with_allpairs(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab(), 300, 5, 1);
+    }
+
+    @Test
+    public void run_on_large_multifrag() {
+        ensure_consistency_with_allpairs(ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab(), 300, 8, 2);
+    }
+
+    @Test
+    public void run_on_grid() {
+        ensure_consistency_with_allpairs(SyntheticGraphs.grid(9, 9), 200, 4, 3);
+    }
+
+    @Test
+    public void linker_between_rings() {
+        // biphenyl like: two six rings connected by a bond
+        final int [][] ctab = ofSmiles(ShortestPathsTest.BIPHENYL_SMILES).getCtab();
+        final ShortestPathsBetweenSets betweenSets = new ShortestPathsBetweenSets(ctab);
+
+        final BitSet ring1 = new BitSet();
+        ring1.set(0, 6);
+        final BitSet ring2 = new BitSet();
+        ring2.set(6, 12);
+
+        final BitSet union = new BitSet();
+        assertThat(betweenSets.unionOfShortestPaths(ring1, ring2, union), is(1));
+        assertThat(union.cardinality(), is(2));
+    }
+
+    @Test
+    public void intersecting_sets() {
+        final ShortestPathsBetweenSets betweenSets = new ShortestPathsBetweenSets(SyntheticGraphs.chain(10));
+        final BitSet sources = new BitSet();
+        sources.set(2, 6);
+        final BitSet targets = new BitSet();
+        targets.set(5, 9);
+
+        final BitSet union = betweenSets.unionOfShortestPaths(sources, targets);
+        assertThat(betweenSets.getShortestDistance(sources, targets), is(0));
+        assertThat(union.cardinality(), is(1));
+        assertThat(union.get(5), is(true));
+    }
+
+    @Test
+    public void disconnected_sets() {
+        final int [][] ctab = ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab();
+        final ShortestPathsBetweenSets betweenSets = new ShortestPathsBetweenSets(ctab);
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+
+        final BitSet sources = new BitSet();
+        sources.set(0);
+        final BitSet targets = new BitSet();
+        for (int i = 0; i < ctab.length; i++) {
+            if (!fp.isPathExistsTo(i)) {
+                targets.set(i);
+            }
+        }
+
+        final BitSet union = new BitSet();
+        union.set(3);
+        assertThat(betweenSets.unionOfShortestPaths(sources, targets, union), is(-1));
+        assertThat(union.isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_atom_rejected() {
+        final BitSet sources = new BitSet();
+        sources.set(10);
+        new ShortestPathsBetweenSets(SyntheticGraphs.chain(10)).unionOfShortestPaths(sources, sources);
+    }
+
+}
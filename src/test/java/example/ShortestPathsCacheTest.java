@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.cache.CacheStats;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ShortestPathsCacheTest {
+
+    /**
+     * Renumber atoms.
+     *
+     * @param ctab Connection table
+     * @param permutation New index of each atom
+     * @param random Random source for shuffling neighbor lists
+     * @return Renumbered connection table; neighbor lists are also shuffled
+     */
+    public static int [][] permute(int [][] ctab, int [] permutation, Random random) {
+        final int [][] ret = new int[ctab.length][];
+        for (int i = 0; i < ctab.length; i++) {
+            final int [] row = new int[ctab[i].length];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = permutation[ctab[i][j]];
+            }
+            for (int j = row.length - 1; j > 0; j--) {
+                final int k = random.nextInt(j + 1);
+                final int t = row[j];
+                row[j] = row[k];
+                row[k] = t;
+            }
+            ret[permutation[i]] = row;
+        }
+        return ret;
+    }
+
+    public static int [] randomPermutation(int size, Random random) {
+        final int [] ret = new int[size];
+        for (int i = 0; i < size; i++) {
+            final int j = random.nextInt(i + 1);
+            ret[i] = ret[j];
+            ret[j] = i;
+        }
+        return ret;
+    }
+
+    public static void ensure_same_as_uncached(ShortestPathsCache.Entry entry, int [][] ctab) {
+        final AllPairsShortestPaths expected = new AllPairsShortestPaths(ctab);
+        assertThat(entry.getAtomCount(), is(ctab.length));
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fp = entry.getShortestPathsFrom(a1);
+            assertThat("Same distances in view", fp.toString(), is(expected.getShortestPathsFrom(a1).toString()));
+            for (int a2 = 0; a2 < ctab.length; a2++) {
+                assertThat(entry.pathExists(a1, a2), is(expected.pathExists(a1, a2)));
+                if (expected.pathExists(a1, a2)) {
+                    assertThat(entry.distance(a1, a2), is(expected.distance(a1, a2)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Look up renumbered variants of a structure.
+     *
+     * @param ctab Connection table
+     * @param variants Number of random renumberings
+     * @return Cache statistics
+     */
+    public static CacheStats ensure_correct_on_renumbering(int [][] ctab, int variants) {
+        final ShortestPathsCache cache = new ShortestPathsCache(1 << 24);
+        final Random random = new Random(ctab.length);
+
+        ensure_same_as_uncached(cache.get(ctab), ctab);
+        for (int v = 0; v < variants; v++) {
+            final int [][] permuted = permute(ctab, randomPermutation(ctab.length, random), random);
+            ensure_same_as_uncached(cache.get(permuted), permuted);
+        }
+        return cache.getStats();
+    }
+
+    @Test
+    public void renumbered_vancomycin_hits() {
+        final CacheStats stats = ensure_correct_on_renumbering(
+                ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab(), 5);
+        assertThat(stats.missCount(), is(1L));
+        assertThat(stats.hitCount(), is(5L));
+    }
+
+    @Test
+    public void renumbered_large_multifrag_hits() {
+        final CacheStats stats = ensure_correct_on_renumbering(
+                ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab(), 3);
+        assertThat(stats.missCount(), is(1L));
+        assertThat(stats.hitCount(), is(3L));
+    }
+
+    @Test
+    public void symmetric_structures_correct() {
+        ensure_correct_on_renumbering(SyntheticGraphs.fullerene60(), 5);
+        ensure_correct_on_renumbering(SyntheticGraphs.grid(5, 7), 5);
+        ensure_correct_on_renumbering(ofSmiles(ShortestPathsTest.BIPHENYL_SMILES).getCtab(), 5);
+    }
+
+    @Test
+    public void renumbered_synthetic_structures_hit() {
+        for (int [][] ctab : new int [][][] {SyntheticGraphs.chain(200), SyntheticGraphs.grid(16, 16),
+                SyntheticGraphs.fullerene60(), SyntheticGraphs.randomSparse(256, 32, 42)}) {
+            final CacheStats stats = ensure_correct_on_renumbering(ctab, 3);
+            assertThat(stats.missCount(), is(1L));
+            assertThat(stats.hitCount(), is(3L));
+        }
+    }
+
+    @Test
+    public void different_structures_do_not_collide() {
+        final ShortestPathsCache cache = new ShortestPathsCache(1 << 24);
+        final int [][] c6 = ofSmiles(ShortestPathsTest.C6_SMILES).getCtab();
+        final int [][] chain = SyntheticGraphs.chain(6);
+
+        ensure_same_as_uncached(cache.get(c6), c6);
+        ensure_same_as_uncached(cache.get(chain), chain);
+        assertThat(cache.getStats().missCount(), is(2L));
+        assertThat(cache.size(), is(2L));
+    }
+
+    @Test
+    public void evicted_over_budget() {
+        // each chain needs about 1.5 kB
+        final ShortestPathsCache cache = new ShortestPathsCache(4000);
+        for (int n = 50; n < 60; n++) {
+            cache.get(SyntheticGraphs.chain(n));
+        }
+        assertThat(cache.getStats().evictionCount(), greaterThan(0L));
+        assertThat(cache.size() < 10, is(true));
+
+        final int [][] chain = SyntheticGraphs.chain(59);
+        ensure_same_as_uncached(cache.get(chain), chain);
+    }
+
+}
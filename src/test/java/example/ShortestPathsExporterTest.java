@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ShortestPathsExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Export distances, all shortest paths and unions of a structure.
+     *
+     * @param exporter Exporter
+     * @param molecule Molecule id
+     * @param ctab Connection table
+     * @throws IOException when writing fails
+     */
+    private static void export(ShortestPathsExporter exporter, int molecule, int [][] ctab) throws IOException {
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+        exporter.writeDistances(molecule, allPairs);
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fsp = allPairs.getShortestPathsFrom(a1);
+            for (int a2 = a1 + 1; a2 < ctab.length; a2++) {
+                if (fsp.isPathExistsTo(a2)) {
+                    exporter.writeShortestPaths(molecule, fsp, a2);
+                    exporter.writeUnion(molecule, a1, a2, fsp.unionOfShortestPaths(a2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Expected text lines of {@link #export(ShortestPathsExporter, int, int[][])}, built with strings.
+     *
+     * @param molecule Molecule id
+     * @param ctab Connection table
+     * @param separator Field separator
+     * @return Lines without header
+     */
+    private static List<String> expectedLines(int molecule, int [][] ctab, String separator) {
+        final AllPairsShortestPaths allPairs = new AllPairsShortestPaths(ctab);
+        final List<String> ret = new ArrayList<>();
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            for (int a2 = a1 + 1; a2 < ctab.length; a2++) {
+                if (allPairs.pathExists(a1, a2)) {
+                    ret.add(String.join(separator, "distance", "" + molecule, "" + a1, "" + a2,
+                            "" + allPairs.distance(a1, a2)));
+                }
+            }
+        }
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fsp = allPairs.getShortestPathsFrom(a1);
+            for (int a2 = a1 + 1; a2 < ctab.length; a2++) {
+                if (!fsp.isPathExistsTo(a2)) {
+                    continue;
+                }
+                final int a2f = a2;
+                fsp.enumerateShortestPathsTo(a2).forEachRemaining(p -> ret.add(String.join(separator, "path",
+                        "" + molecule, "" + p[0], "" + a2f, join(p))));
+                ret.add(String.join(separator, "union", "" + molecule, "" + a1, "" + a2,
+                        join(fsp.unionOfShortestPaths(a2).stream().toArray())));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Join values with spaces.
+     *
+     * @param values Values
+     * @return Space separated values
+     */
+    private static String join(int [] values) {
+        final StringBuilder ret = new StringBuilder();
+        for (int v : values) {
+            ret.append(ret.length() == 0 ? "" : " ").append(v);
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Export into a text format and compare with string formatting.
+     *
+     * @param format Text format
+     * @param separator Expected field separator
+     * @param bufferSize Buffer size
+     * @throws IOException on failure
+     */
+    private void ensure_same_as_string_formatting(ShortestPathsExporter.Format format, String separator,
+            int bufferSize) throws IOException {
+        final int [][] caffeine = ofSmiles(ShortestPathsExample.CAFFEINE_SMILES).getCtab();
+        final int [][] disconnected = ofSmiles("CC1CC1.CCO").getCtab();
+        final Path path = folder.newFile().toPath();
+        try (ShortestPathsExporter exporter = new ShortestPathsExporter(path, format, bufferSize)) {
+            export(exporter, 0, caffeine);
+            export(exporter, 1, disconnected);
+        }
+
+        final List<String> expected = new ArrayList<>();
+        expected.add(String.join(separator, "kind", "molecule", "a1", "a2", "values"));
+        expected.addAll(expectedLines(0, caffeine, separator));
+        expected.addAll(expectedLines(1, disconnected, separator));
+        assertThat(Files.readAllLines(path, StandardCharsets.US_ASCII), is(expected));
+    }
+
+    @Test
+    public void csv_same_as_string_formatting() throws IOException {
+        ensure_same_as_string_formatting(ShortestPathsExporter.Format.CSV, ",",
+                ShortestPathsExporter.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Test
+    public void tsv_same_as_string_formatting() throws IOException {
+        ensure_same_as_string_formatting(ShortestPathsExporter.Format.TSV, "\t",
+                ShortestPathsExporter.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Test
+    public void small_buffer_same_as_string_formatting() throws IOException {
+        ensure_same_as_string_formatting(ShortestPathsExporter.Format.CSV, ",",
+                ShortestPathsExporter.MIN_BUFFER_SIZE);
+    }
+
+    @Test
+    public void extreme_values() throws IOException {
+        final Path path = folder.newFile().toPath();
+        try (ShortestPathsExporter exporter = new ShortestPathsExporter(path, ShortestPathsExporter.Format.CSV)) {
+            exporter.writeDistance(Integer.MAX_VALUE, 0, 10, Integer.MIN_VALUE);
+            exporter.writePath(-1, new int [] {7});
+        }
+        assertThat(Files.readAllLines(path, StandardCharsets.US_ASCII), is(Arrays.asList(
+                "kind,molecule,a1,a2,values", "distance,2147483647,0,10,-2147483648", "path,-1,7,7,7")));
+    }
+
+    @Test
+    public void binary_records() throws IOException {
+        final int [][] grid = SyntheticGraphs.grid(8, 8);
+        final FindShortestPaths fsp = new FindShortestPaths(grid, 0);
+        final Path path = folder.newFile().toPath();
+        try (ShortestPathsExporter exporter = new ShortestPathsExporter(path, ShortestPathsExporter.Format.BINARY,
+                ShortestPathsExporter.MIN_BUFFER_SIZE)) {
+            exporter.writeDistance(3, 0, 63, fsp.getShortestPathLengthTo(63));
+            assertThat(exporter.writeShortestPaths(3, fsp, 63), is(fsp.countShortestPathsTo(63)));
+            exporter.writeUnion(3, 0, 63, fsp.unionOfShortestPaths(63));
+        }
+
+        final ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(in.getInt(), is(ShortestPathsExporter.MAGIC));
+        assertThat(in.getInt(), is(ShortestPathsExporter.VERSION));
+
+        final List<String> paths = new ArrayList<>();
+        final BitSet union = new BitSet();
+        int distances = 0;
+        while (in.hasRemaining()) {
+            final ShortestPathsExporter.Kind kind = ShortestPathsExporter.Kind.values()[in.get()];
+            assertThat(in.getInt(), is(3));
+            assertThat(in.getInt(), is(0));
+            assertThat(in.getInt(), is(63));
+            final int [] values = new int[in.getInt()];
+            for (int k = 0; k < values.length; k++) {
+                values[k] = in.getInt();
+            }
+            switch (kind) {
+                case DISTANCE:
+                    assertThat(values, is(new int [] {14}));
+                    distances++;
+                    break;
+                case PATH:
+                    paths.add(Arrays.toString(values));
+                    break;
+                case UNION:
+                    Arrays.stream(values).forEach(union::set);
+                    break;
+                default:
+                    throw new AssertionError(kind);
+            }
+        }
+        assertThat(distances, is(1));
+
+        final List<String> expected = new ArrayList<>();
+        fsp.enumerateShortestPathsTo(63).forEachRemaining(p -> expected.add(Arrays.toString(p)));
+        assertThat(paths, is(expected));
+        assertThat(union, is(fsp.unionOfShortestPaths(63)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void too_small_buffer_fails() throws IOException {
+        new ShortestPathsExporter(folder.newFile().toPath(), ShortestPathsExporter.Format.CSV, 16);
+    }
+
+}
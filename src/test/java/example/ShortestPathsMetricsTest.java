@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.management.ObjectName;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+public class ShortestPathsMetricsTest {
+
+    @After
+    public void disable_metrics() {
+        ShortestPathsMetrics.disable();
+    }
+
+    @Test
+    public void counts_bfs_search() {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        ShortestPathsMetrics.enable(metrics);
+
+        new FindShortestPaths(SyntheticGraphs.chain(10), 0);
+
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.SEARCHES), is(1L));
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.SWEEPS), is(0L));
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.NEIGHBOR_VISITS), is(18L));
+        assertThat(metrics.getHistogram(ShortestPathsMetrics.Operation.SEARCH, 10).getCount(), is(1L));
+        assertThat(metrics.getHistogram(ShortestPathsMetrics.Operation.SEARCH, 1000).getCount(), is(0L));
+    }
+
+    @Test
+    public void counts_sweeps() {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        ShortestPathsMetrics.enable(metrics);
+
+        // chain numbered against the sweep direction: one new atom labeled per sweep
+        new FindShortestPaths(SyntheticGraphs.chain(10), 9, FindShortestPaths.Algorithm.SWEEP);
+
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.SWEEPS), is(10L));
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.NEIGHBOR_VISITS), greaterThan(18L));
+    }
+
+    @Test
+    public void counts_paths_and_union() {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        final int [][] grid = SyntheticGraphs.grid(4, 4);
+        final FindShortestPaths paths = new FindShortestPaths(grid, 0);
+        ShortestPathsMetrics.enable(metrics);
+
+        final Iterator<int []> it = paths.enumerateShortestPathsTo(15);
+        it.next();
+        it.next();
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.PATHS), is(2L));
+
+        paths.forEachShortestPathTo(15, p -> true);
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.PATHS), is(2L + 20));
+        assertThat(metrics.getHistogram(ShortestPathsMetrics.Operation.ENUMERATION, 16).getCount(), is(1L));
+
+        final BitSet union = paths.unionOfShortestPaths(15);
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.UNION_EXPANSIONS), is((long) union.cardinality()));
+        assertThat(metrics.getHistogram(ShortestPathsMetrics.Operation.UNION, 16).getCount(), is(1L));
+    }
+
+    @Test
+    public void sink_receives_timings() {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        final List<ShortestPathsMetrics.Operation> received = new ArrayList<>();
+        metrics.addSink((operation, atomCount, nanos) -> {
+            assertThat(atomCount, is(100));
+            received.add(operation);
+        });
+        ShortestPathsMetrics.enable(metrics);
+
+        final FindShortestPaths paths = new FindShortestPaths(SyntheticGraphs.chain(100), 0);
+        paths.unionOfShortestPaths(99);
+
+        assertThat(received.size(), is(2));
+        assertThat(received.get(0), is(ShortestPathsMetrics.Operation.SEARCH));
+        assertThat(received.get(1), is(ShortestPathsMetrics.Operation.UNION));
+    }
+
+    @Test
+    public void histogram_percentiles() {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        final ShortestPathsMetrics.Sink ignored = (operation, atomCount, nanos) -> { };
+        metrics.addSink(ignored);
+        metrics.removeSink(ignored);
+        for (int k = 0; k < 99; k++) {
+            metrics.record(ShortestPathsMetrics.Operation.SEARCH, 10, 100);
+        }
+        metrics.record(ShortestPathsMetrics.Operation.SEARCH, 10, 5000);
+
+        final ShortestPathsMetrics.LatencyHistogram histogram =
+                metrics.getHistogram(ShortestPathsMetrics.Operation.SEARCH, 10);
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getTotalNanos(), is(99L * 100 + 5000));
+        assertThat(histogram.getPercentile(50), is(127L));
+        assertThat(histogram.getPercentile(99), is(127L));
+        assertThat(histogram.getPercentile(100), is(8191L));
+
+        metrics.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getPercentile(50), is(0L));
+    }
+
+    @Test
+    public void exposed_through_jmx() throws Exception {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        ShortestPathsMetrics.enable(metrics);
+        new FindShortestPaths(SyntheticGraphs.chain(10), 0);
+
+        final ObjectName name = metrics.registerMBean();
+        try {
+            final Object searches = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "SearchCount");
+            assertThat(searches, is((Object) 1L));
+
+            final Map<String, Long> counts = metrics.getOperationCounts();
+            assertThat(counts.size(), is(1));
+            assertThat(counts.get("SEARCH/<=16"), is(1L));
+        } finally {
+            metrics.unregisterMBean();
+        }
+    }
+
+    @Test
+    public void disabled_records_nothing() {
+        final ShortestPathsMetrics metrics = new ShortestPathsMetrics();
+        ShortestPathsMetrics.enable(metrics);
+        ShortestPathsMetrics.disable();
+
+        final FindShortestPaths paths = new FindShortestPaths(SyntheticGraphs.chain(10), 0);
+        paths.enumerateShortestPathsTo(9).next();
+        paths.unionOfShortestPaths(9);
+
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.SEARCHES), is(0L));
+        assertThat(metrics.get(ShortestPathsMetrics.Counter.PATHS), is(0L));
+        assertThat(metrics.getOperationCounts().isEmpty(), is(true));
+    }
+
+    @Test
+    public void disabled_enumeration_does_not_allocate() {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        // 3432 shortest paths between opposite corners
+        final FindShortestPaths paths = new FindShortestPaths(SyntheticGraphs.grid(8, 8), 0);
+        final long [] visited = new long[1];
+        final PathVisitor visitor = p -> {
+            visited[0]++;
+            return true;
+        };
+        for (int k = 0; k < 200; k++) {
+            paths.forEachShortestPathTo(63, visitor);
+        }
+
+        final int calls = 100;
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int k = 0; k < calls; k++) {
+            paths.forEachShortestPathTo(63, visitor);
+        }
+        final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(visited[0], is(300L * 3432));
+        // only the two path buffers of each call; nothing per path or for the metrics
+        assertThat(allocated / calls, lessThan(512L));
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package example;
+
+import chemaxon.struc.Molecule;
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import example.ShortestPathsPipeline.Format;
+import example.ShortestPathsPipeline.Ordering;
+import example.ShortestPathsPipeline.Result;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ShortestPathsPipelineTest {
+
+    private static final List<String> LIBRARY = ImmutableList.of(
+        ShortestPathsTest.VANCOMYCIN_SMILES,
+        ShortestPathsExample.CAFFEINE_SMILES,
+        ShortestPathsTest.C6_SMILES,
+        ShortestPathsExample.FUMARIC_ACID_SMILES,
+        ShortestPathsTest.LARGE_MULTIFRAG_SMILES,
+        ShortestPathsTest.BIPHENYL_SMILES
+    );
+
+    private static int diameter(Molecule m) {
+        return new AllPairsShortestPaths(CompactGraph.of(m)).getDiameter();
+    }
+
+    private static List<String> library(int copies) {
+        final List<String> ret = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            ret.addAll(LIBRARY);
+        }
+        return ret;
+    }
+
+    @Test
+    public void ordered_results_match_sequential() throws Exception {
+        final List<String> records = library(20);
+        final List<Result<Integer>> results = new ArrayList<>();
+
+        try (ShortestPathsPipeline<Integer> pipeline = new ShortestPathsPipeline<>(
+                Format.SMILES, ShortestPathsPipelineTest::diameter, Ordering.ORDERED, 4, 8)) {
+            assertThat(pipeline.run(records.iterator(), results::add), is((long) records.size()));
+        }
+
+        assertThat(results.size(), is(records.size()));
+        for (int i = 0; i < records.size(); i++) {
+            assertThat(results.get(i).getIndex(), is((long) i));
+            assertThat(results.get(i).getRecord(), is(records.get(i)));
+            assertThat(results.get(i).isSuccess(), is(true));
+            assertThat(results.get(i).getError(), is(nullValue()));
+            assertThat(results.get(i).getValue(), is(diameter(ofSmiles(records.get(i)))));
+        }
+    }
+
+    @Test
+    public void unordered_results_complete() throws Exception {
+        final List<String> records = library(20);
+        final List<Long> indices = new ArrayList<>();
+        final List<Long> expected = new ArrayList<>();
+
+        try (ShortestPathsPipeline<Integer> pipeline = new ShortestPathsPipeline<>(
+                Format.SMILES, ShortestPathsPipelineTest::diameter, Ordering.UNORDERED, 4, 8)) {
+            pipeline.run(records.iterator(), r -> {
+                assertThat(r.getValue(), is(diameter(ofSmiles(r.getRecord()))));
+                indices.add(r.getIndex());
+            });
+        }
+
+        for (long i = 0; i < records.size(); i++) {
+            expected.add(i);
+        }
+        assertThat(indices, containsInAnyOrder(expected.toArray()));
+    }
+
+    @Test
+    public void in_flight_records_bounded() throws Exception {
+        for (Ordering ordering : Ordering.values()) {
+            final List<String> records = library(10);
+            final AtomicInteger read = new AtomicInteger();
+            final AtomicInteger consumed = new AtomicInteger();
+            final Iterator<String> counting = new Iterator<String>() {
+                private final Iterator<String> delegate = records.iterator();
+
+                @Override
+                public boolean hasNext() {
+                    return delegate.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    assertThat(read.incrementAndGet() - consumed.get(), lessThanOrEqualTo(5));
+                    return delegate.next();
+                }
+            };
+
+            try (ShortestPathsPipeline<Integer> pipeline = new ShortestPathsPipeline<>(
+                    Format.SMILES, ShortestPathsPipelineTest::diameter, ordering, 2, 5)) {
+                pipeline.run(counting, r -> consumed.incrementAndGet());
+            }
+            assertThat(consumed.get(), is(records.size()));
+        }
+    }
+
+    @Test
+    public void in_flight_tasks_cancelled_when_sink_fails() throws Exception {
+        for (Ordering ordering : Ordering.values()) {
+            final AtomicInteger started = new AtomicInteger();
+            final AtomicInteger interrupted = new AtomicInteger();
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch never = new CountDownLatch(1);
+
+            // single atom records complete at once, the others block until cancelled
+            final Function<Molecule, Integer> worker = m -> {
+                if (m.getAtomCount() > 1) {
+                    started.incrementAndGet();
+                    blocked.countDown();
+                    try {
+                        never.await();
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                    }
+                }
+                return m.getAtomCount();
+            };
+            final List<String> records = ImmutableList.of("C", "CC", "CC", "CC", "CC", "CC");
+
+            try (ShortestPathsPipeline<Integer> pipeline = new ShortestPathsPipeline<>(
+                    Format.SMILES, worker, ordering, 2, 4)) {
+                try {
+                    pipeline.run(records.iterator(), r -> {
+                        // fail only once a worker is running, not just queued
+                        Uninterruptibles.awaitUninterruptibly(blocked, 10, TimeUnit.SECONDS);
+                        throw new IllegalStateException("Sink failed");
+                    });
+                    fail("Sink failure expected");
+                } catch (IllegalStateException e) {
+                    assertThat(e.getMessage(), is("Sink failed"));
+                }
+
+                // the pool is still open: only cancellation can release the blocked workers
+                final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (interrupted.get() < started.get() && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertThat("Blocked workers cancelled with " + ordering, interrupted.get(), is(started.get()));
+                assertThat(started.get(), greaterThan(0));
+            }
+        }
+    }
+
+    @Test
+    public void failures_reported_per_record() throws Exception {
+        final List<String> records = ImmutableList.of(ShortestPathsTest.C6_SMILES, "C1CC!C1", "CCO");
+        final List<Result<Integer>> results = new ArrayList<>();
+
+        try (ShortestPathsPipeline<Integer> pipeline = new ShortestPathsPipeline<>(
+                Format.SMILES, ShortestPathsPipelineTest::diameter, Ordering.ORDERED)) {
+            pipeline.run(records.iterator(), results::add);
+        }
+
+        assertThat(results.get(0).getValue(), is(3));
+        assertThat(results.get(1).isSuccess(), is(false));
+        assertThat(results.get(1).getError(), is(notNullValue()));
+        assertThat(results.get(2).getValue(), is(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failed_result_has_no_value() throws Exception {
+        try (ShortestPathsPipeline<Integer> pipeline = new ShortestPathsPipeline<>(
+                Format.SMILES, ShortestPathsPipelineTest::diameter, Ordering.UNORDERED)) {
+            pipeline.run(ImmutableList.of("C1CC!C1").iterator(), Result::getValue);
+        }
+    }
+
+    @Test
+    public void smiles_records_split() {
+        final BufferedReader reader = new BufferedReader(new StringReader("CCO ethanol\n\n  \nC1CCCCC1\n"));
+        assertThat(Lists.newArrayList(ShortestPathsPipeline.records(reader, Format.SMILES)),
+                is(ImmutableList.of("CCO ethanol", "C1CCCCC1")));
+    }
+
+    @Test
+    public void sdf_records_split() {
+        final String r1 = "mol1\n  header\n\n  0  0  0  0  0  0            999 V2000\nM  END\n> <NAME>\nx\n\n$$$$\n";
+        final String r2 = "mol2\n\n\nM  END\n$$$$\n";
+        final String r3 = "mol3\n\n\nM  END\n";
+        final BufferedReader reader = new BufferedReader(new StringReader(r1 + r2 + r3));
+        assertThat(Lists.newArrayList(ShortestPathsPipeline.records(reader, Format.SDF)),
+                is(ImmutableList.of(r1, r2, r3)));
+    }
+
+}
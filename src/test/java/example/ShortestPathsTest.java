@@ -20,11 +20,21 @@ package example;
 import chemaxon.marvin.calculations.TopologyAnalyserPlugin;
 import chemaxon.struc.Molecule;
 import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
@@ -114,6 +124,8 @@ public class ShortestPathsTest {
         // ensure consistent behavior with all possible (including self and swapped) atom indices
         for (int a1 = 0; a1 < atomCount; a1++) {
             final FindShortestPaths fp = new FindShortestPaths(m.getCtab(), a1);
+            final FindShortestPaths dagFp = new FindShortestPaths(m.getCtab(), a1);
+            ensure_consistent_dag(m, dagFp, dagFp.getShortestPathDag());
 
             for (int a2 = 0; a2 < atomCount; a2++) {
                 final int tap_path_length = plugin.getShortestPath(a1, a2);
@@ -137,7 +149,25 @@ public class ShortestPathsTest {
                         }
                     }
 
+                    final List<int []> visitedPaths = new ArrayList<>();
+                    assertThat(fp.forEachShortestPathTo(a2, p -> visitedPaths.add(p.clone())), is(true));
+                    assertThat("Visitor receives enumerated paths", visitedPaths,
+                            contains(allPaths.toArray(new int[0][])));
+
+                    assertThat("Path count matches", fp.countShortestPathsTo(a2), is((long) allPaths.size()));
+                    for (int rank = 0; rank < allPaths.size(); rank++) {
+                        assertThat("Path rank follows enumeration order", fp.getShortestPathTo(a2, rank),
+                                is(allPaths.get(rank)));
+                    }
+
                     ensureUnionMatches(allPaths, fp.unionOfShortestPaths(a2));
+
+                    // walking the predecessor DAG gives the same results
+                    assertThat(dagFp.getSingleShortestPathTo(a2), is(fp.getSingleShortestPathTo(a2)));
+                    assertThat(Lists.newArrayList(dagFp.enumerateShortestPathsTo(a2)),
+                            contains(allPaths.toArray(new int[0][])));
+                    assertThat(dagFp.getShortestPathTo(a2, allPaths.size() - 1), is(allPaths.get(allPaths.size() - 1)));
+                    assertThat(dagFp.unionOfShortestPaths(a2), is(fp.unionOfShortestPaths(a2)));
                 } else {
                     assertThat("Plugin found disconnected fragment", tap_path_length, is(Integer.MAX_VALUE));
                 }
@@ -145,6 +175,48 @@ public class ShortestPathsTest {
         }
     }
 
+    public static void ensure_consistent_dag(final Molecule m, FindShortestPaths fp, ShortestPathDag dag) {
+        assertThat(dag.getAtomCount(), is(m.getAtomCount()));
+
+        for (int ai = 0; ai < m.getAtomCount(); ai++) {
+            int expectedCount = 0;
+            if (fp.isPathExistsTo(ai)) {
+                for (int n : m.getCtab()[ai]) {
+                    if (fp.getShortestPathLengthTo(n) == fp.getShortestPathLengthTo(ai) - 1) {
+                        expectedCount++;
+                    }
+                }
+            }
+            assertThat("All predecessors stored", dag.getPredecessorCount(ai), is(expectedCount));
+
+            for (int k = 0; k < dag.getPredecessorCount(ai); k++) {
+                final int p = dag.getPredecessor(ai, k);
+                assertThat("Predecessor is a neighbor", m.getBondTable().getBondIndex(ai, p), greaterThan(-1));
+                assertThat("Predecessor is one step closer", fp.getShortestPathLengthTo(p),
+                        is(fp.getShortestPathLengthTo(ai) - 1));
+            }
+        }
+    }
+
+    public static void ensure_algorithms_agree(final Molecule m) {
+        final int [][] ctab = m.getCtab();
+        final int atomCount = m.getAtomCount();
+
+        for (int a1 = 0; a1 < atomCount; a1++) {
+            final FindShortestPaths sweep = new FindShortestPaths(ctab, a1, FindShortestPaths.Algorithm.SWEEP);
+            final FindShortestPaths bfs = new FindShortestPaths(ctab, a1, FindShortestPaths.Algorithm.BFS);
+
+            assertThat("Same shortest distances found", bfs.toString(), is(sweep.toString()));
+
+            for (int a2 = 0; a2 < atomCount; a2++) {
+                if (bfs.isPathExistsTo(a2)) {
+                    assertThat("Same path counts found", bfs.countShortestPathsTo(a2),
+                            is(sweep.countShortestPathsTo(a2)));
+                }
+            }
+        }
+    }
+
     @Test
     public void run_on_vancomycin() throws Exception {
         ensure_consistency_with_topologyanalyser(ofSmiles(VANCOMYCIN_SMILES));
@@ -156,6 +228,16 @@ public class ShortestPathsTest {
     }
 
 
+    @Test
+    public void bfs_matches_sweep_on_vancomycin() {
+        ensure_algorithms_agree(ofSmiles(VANCOMYCIN_SMILES));
+    }
+
+    @Test
+    public void bfs_matches_sweep_on_large_multifrag() {
+        ensure_algorithms_agree(ofSmiles(LARGE_MULTIFRAG_SMILES));
+    }
+
     @Test
     public void run_on_c6() {
         final Molecule m = ofSmiles(C6_SMILES);
@@ -191,5 +273,233 @@ public class ShortestPathsTest {
 
     }
 
+    @Test
+    public void visitor_stops_enumeration() {
+        final Molecule m = ofSmiles(BIPHENYL_SMILES);
+
+        final FindShortestPaths fp = new FindShortestPaths(m.getCtab(), 2);
+
+        final int [] visitCount = new int[1];
+        final boolean completed = fp.forEachShortestPathTo(9, p -> ++visitCount[0] < 2);
+
+        assertThat("Enumeration stopped", completed, is(false));
+        assertThat("Two paths visited", visitCount[0], is(2));
+    }
+
+    @Test
+    public void visitor_reuses_path_buffer() {
+        final Molecule m = ofSmiles(BIPHENYL_SMILES);
+
+        final FindShortestPaths fp = new FindShortestPaths(m.getCtab(), 2);
+
+        final List<int []> buffers = new ArrayList<>();
+        fp.forEachShortestPathTo(9, p -> buffers.add(p));
+
+        assertThat("Four paths visited", buffers.size(), is(4));
+        for (int [] buffer : buffers) {
+            assertThat("Same buffer passed", buffer == buffers.get(0), is(true));
+        }
+    }
+
+    @Test
+    public void random_paths_sampled() {
+        final Molecule m = ofSmiles(BIPHENYL_SMILES);
+
+        final FindShortestPaths fp = new FindShortestPaths(m.getCtab(), 2);
+        final Random random = new Random(42);
+
+        final Set<List<Integer>> sampled = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            final int [] path = fp.getRandomShortestPathTo(9, random);
+            ensure_consistent_path(m, 2, 9, path);
+            sampled.add(Ints.asList(path));
+        }
+
+        assertThat("All paths sampled", sampled.size(), is(4));
+    }
+
+    @Test
+    public void union_from_start_set_including_central_atom() {
+        final FindShortestPaths fp = new FindShortestPaths(SyntheticGraphs.chain(10), 3);
+        final BitSet start = new BitSet();
+        start.set(3);
+        start.set(7);
+
+        final BitSet expected = new BitSet();
+        expected.set(3, 8);
+        assertThat(fp.unionOfShortestPaths(start), is(expected));
+    }
+
+    @Test
+    public void union_from_start_set_is_union_of_single_atoms() {
+        final int [][] ctab = ofSmiles(VANCOMYCIN_SMILES).getCtab();
+        final Random random = new Random(5);
+        for (int a1 = 0; a1 < ctab.length; a1 += 7) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, a1);
+            final BitSet start = new BitSet();
+            final BitSet expected = new BitSet();
+            for (int k = 0; k < 4; k++) {
+                final int atom = random.nextInt(ctab.length);
+                start.set(atom);
+                expected.or(fp.unionOfShortestPaths(atom));
+            }
+            assertThat(fp.unionOfShortestPaths(start), is(expected));
+        }
+    }
+
+    @Test
+    public void paths_counted_on_grid() {
+        final int [][] ctab = SyntheticGraphs.grid(10, 10);
+
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+
+        // binomial(18, 9) monotone lattice paths between opposite corners
+        assertThat(fp.countShortestPathsTo(99), is(48620L));
+        ensure_consistent_grid_path(fp.getShortestPathTo(99, 48619L));
+    }
+
+    private static void ensure_consistent_grid_path(int [] path) {
+        assertThat(path.length, is(19));
+        for (int i = 1; i < path.length; i++) {
+            assertThat("Monotone step", path[i] - path[i - 1] == 1 || path[i] - path[i - 1] == 10, is(true));
+        }
+    }
+
+    @Test
+    public void stream_matches_enumeration_on_vancomycin() {
+        final int [][] ctab = ofSmiles(VANCOMYCIN_SMILES).getCtab();
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+
+        for (int a2 = 0; a2 < ctab.length; a2++) {
+            final List<List<Integer>> expected = new ArrayList<>();
+            fp.enumerateShortestPathsTo(a2).forEachRemaining(p -> expected.add(Ints.asList(p)));
+
+            final List<List<Integer>> streamed = fp.streamShortestPathsTo(a2).map(Ints::asList)
+                    .collect(Collectors.toList());
+            assertThat("Same paths in same order to " + a2, streamed, is(expected));
+
+            final List<List<Integer>> parallel = fp.streamShortestPathsTo(a2).parallel().map(Ints::asList)
+                    .collect(Collectors.toList());
+            assertThat("Same paths in same order in parallel to " + a2, parallel, is(expected));
+        }
+    }
+
+    @Test
+    public void stream_splits_by_rank() {
+        final int [][] ctab = SyntheticGraphs.grid(6, 6);
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+        final List<List<Integer>> expected = new ArrayList<>();
+        fp.enumerateShortestPathsTo(35).forEachRemaining(p -> expected.add(Ints.asList(p)));
+
+        // consume a few paths, then split repeatedly: prefixes and suffixes concatenate to the enumeration order
+        final Spliterator<int []> spliterator = fp.shortestPathSpliterator(35);
+        assertThat(spliterator.estimateSize(), is(252L));
+        final List<List<Integer>> collected = new ArrayList<>();
+        for (int k = 0; k < 5; k++) {
+            spliterator.tryAdvance(p -> collected.add(Ints.asList(p)));
+        }
+        while (true) {
+            final Spliterator<int []> prefix = spliterator.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            prefix.forEachRemaining(p -> collected.add(Ints.asList(p)));
+        }
+        spliterator.forEachRemaining(p -> collected.add(Ints.asList(p)));
+
+        assertThat(collected, is(expected));
+    }
+
+    @Test
+    public void parallel_stream_on_cage() {
+        final int [][] ctab = SyntheticGraphs.fullerene60();
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+
+        for (int a2 = 0; a2 < ctab.length; a2++) {
+            final Set<List<Integer>> expected = new HashSet<>();
+            fp.enumerateShortestPathsTo(a2).forEachRemaining(p -> expected.add(Ints.asList(p)));
+
+            final Set<List<Integer>> parallel = fp.streamShortestPathsTo(a2).parallel().map(Ints::asList)
+                    .collect(Collectors.toSet());
+            assertThat(parallel, is(expected));
+            assertThat(fp.streamShortestPathsTo(a2).parallel().count(), is(fp.countShortestPathsTo(a2)));
+        }
+    }
+
+    @Test
+    public void parallel_stream_counts_grid_paths() {
+        final int [][] ctab = SyntheticGraphs.grid(12, 12);
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0, FindShortestPaths.Algorithm.SWEEP);
+
+        // binomial(22, 11) monotone lattice paths; filter the ones starting with a step right
+        assertThat(fp.streamShortestPathsTo(143).parallel().count(), is(705432L));
+        assertThat(fp.streamShortestPathsTo(143).parallel().filter(p -> p[1] == 1).count(), is(352716L));
+    }
+
+    @Test
+    public void stream_to_central_atom() {
+        final FindShortestPaths fp = new FindShortestPaths(SyntheticGraphs.chain(5), 2);
+
+        final List<int []> paths = fp.streamShortestPathsTo(2).collect(Collectors.toList());
+        assertThat(paths.size(), is(1));
+        assertThat(paths.get(0), is(new int [] {2}));
+    }
+
+    @Test
+    public void saturated_path_count_streams_unsized() {
+        final int [][] ctab = SyntheticGraphs.grid(35, 35);
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+
+        final Spliterator<int []> spliterator = fp.shortestPathSpliterator(35 * 35 - 1);
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), is(false));
+        assertThat(fp.streamShortestPathsTo(35 * 35 - 1).parallel().limit(1000).count(), is(1000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stream_without_path() {
+        new FindShortestPaths(ofSmiles(LARGE_MULTIFRAG_SMILES).getCtab(), 0).streamShortestPathsTo(287);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void saturated_path_count_cannot_be_ranked() {
+        final int [][] ctab = SyntheticGraphs.grid(35, 35);
+
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0, FindShortestPaths.Algorithm.SWEEP);
+
+        assertThat("Path count saturated", fp.countShortestPathsTo(35 * 35 - 1), is(Long.MAX_VALUE));
+        fp.getShortestPathTo(35 * 35 - 1, 0);
+    }
+
+    @Test
+    public void dag_built_during_enumeration() {
+        final FindShortestPaths fp = new FindShortestPaths(ofSmiles("c1ccccc1-c2ccccc2").getCtab(), 0);
+        final Iterator<int []> paths = fp.enumerateShortestPathsTo(9);
+        final List<List<Integer>> enumerated = new ArrayList<>();
+        enumerated.add(Ints.asList(paths.next()));
+
+        fp.getShortestPathDag();
+        paths.forEachRemaining(p -> enumerated.add(Ints.asList(p)));
+        assertThat(enumerated, is(ImmutableList.of(Ints.asList(0, 5, 6, 7, 8, 9), Ints.asList(0, 5, 6, 11, 10, 9))));
+    }
+
+    @Test
+    public void stream_opened_during_enumeration() {
+        final int [][] ctab = SyntheticGraphs.grid(5, 5);
+        final List<List<Integer>> expected = new ArrayList<>();
+        new FindShortestPaths(ctab, 0).enumerateShortestPathsTo(24).forEachRemaining(p -> expected.add(Ints.asList(p)));
+
+        final FindShortestPaths fp = new FindShortestPaths(ctab, 0);
+        final Iterator<int []> paths = fp.enumerateShortestPathsTo(24);
+        final List<List<Integer>> enumerated = new ArrayList<>();
+        for (int k = 0; k < expected.size() / 2; k++) {
+            enumerated.add(Ints.asList(paths.next()));
+        }
+
+        final List<List<Integer>> streamed = fp.streamShortestPathsTo(24).parallel().map(Ints::asList)
+                .collect(Collectors.toList());
+        paths.forEachRemaining(p -> enumerated.add(Ints.asList(p)));
+        assertThat(enumerated, is(expected));
+        assertThat(streamed, is(expected));
+    }
 
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ShortestPathsWorkspaceTest {
+
+    public static void ensure_consistency_with_findshortestpaths(ShortestPathsWorkspace workspace, int [][] ctab) {
+        workspace.reset(ctab);
+        assertThat(workspace.getAtomCount(), is(ctab.length));
+
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fp = new FindShortestPaths(ctab, a1);
+            workspace.recenter(a1);
+            assertThat(workspace.getCentralAtom(), is(a1));
+
+            for (int a2 = 0; a2 < ctab.length; a2++) {
+                assertThat("Same connectivity", workspace.isPathExistsTo(a2), is(fp.isPathExistsTo(a2)));
+                if (!fp.isPathExistsTo(a2)) {
+                    continue;
+                }
+
+                assertThat("Same path length", workspace.getShortestPathLengthTo(a2),
+                        is(fp.getShortestPathLengthTo(a2)));
+                assertThat("Same path", workspace.getSingleShortestPathTo(a2), is(fp.getSingleShortestPathTo(a2)));
+
+                final List<int []> paths = new ArrayList<>();
+                assertThat(workspace.forEachShortestPathTo(a2, p -> paths.add(p.clone())), is(true));
+                assertThat("Same paths enumerated", paths,
+                        contains(Lists.newArrayList(fp.enumerateShortestPathsTo(a2)).toArray(new int[0][])));
+            }
+        }
+    }
+
+    @Test
+    public void reused_between_structures() {
+        final ShortestPathsWorkspace workspace = new ShortestPathsWorkspace();
+
+        // shrinking and growing structures: stale distances must not leak
+        ensure_consistency_with_findshortestpaths(workspace, ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab());
+        ensure_consistency_with_findshortestpaths(workspace, ofSmiles(ShortestPathsTest.BIPHENYL_SMILES).getCtab());
+        ensure_consistency_with_findshortestpaths(workspace,
+                ofSmiles(ShortestPathsTest.LARGE_MULTIFRAG_SMILES).getCtab());
+        ensure_consistency_with_findshortestpaths(workspace, ofSmiles(ShortestPathsTest.C6_SMILES).getCtab());
+    }
+
+    @Test
+    public void paths_longer_than_cached_buffers() {
+        final ShortestPathsWorkspace workspace = new ShortestPathsWorkspace();
+        ensure_consistency_with_findshortestpaths(workspace,
+                SyntheticGraphs.chain(2 * ShortestPathsWorkspace.CACHED_PATH_LENGTHS));
+        ensure_consistency_with_findshortestpaths(workspace,
+                SyntheticGraphs.ladder(ShortestPathsWorkspace.CACHED_PATH_LENGTHS + 8));
+    }
+
+    @Test
+    public void path_into_buffer() {
+        final ShortestPathsWorkspace workspace = new ShortestPathsWorkspace();
+        workspace.reset(SyntheticGraphs.chain(10)).recenter(2);
+
+        final int [] buffer = new int[10];
+        assertThat(workspace.getSingleShortestPathTo(6, buffer), is(5));
+        assertThat(buffer[0], is(2));
+        assertThat(buffer[4], is(6));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void atom_of_previous_structure_rejected() {
+        final ShortestPathsWorkspace workspace = new ShortestPathsWorkspace();
+        workspace.reset(SyntheticGraphs.chain(10)).recenter(2);
+        workspace.reset(SyntheticGraphs.chain(5)).recenter(2);
+
+        workspace.isPathExistsTo(7);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void not_centered_after_reset() {
+        final ShortestPathsWorkspace workspace = new ShortestPathsWorkspace();
+        workspace.reset(SyntheticGraphs.chain(10)).recenter(2);
+        workspace.reset(SyntheticGraphs.chain(5));
+
+        workspace.isPathExistsTo(0);
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generators of synthetic structures for tests and benchmarks.
+ *
+ * All generators return connection tables in {@link chemaxon.struc.Molecule#getCtab()} form.
+ */
+public final class SyntheticGraphs {
+
+    private SyntheticGraphs() {}
+
+    /**
+     * Linear chain.
+     *
+     * @param atomCount Atom count
+     * @return CTAB of a linear chain
+     */
+    public static int [][] chain(int atomCount) {
+        final int [][] ret = new int[atomCount][];
+        for (int i = 0; i < atomCount; i++) {
+            if (atomCount == 1) {
+                ret[i] = new int[0];
+            } else if (i == 0) {
+                ret[i] = new int [] { 1 };
+            } else if (i == atomCount - 1) {
+                ret[i] = new int [] { i - 1 };
+            } else {
+                ret[i] = new int [] { i - 1, i + 1 };
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Rectangular grid.
+     *
+     * Atom at row {@code r} and column {@code c} has index {@code r * cols + c}.
+     *
+     * @param rows Row count
+     * @param cols Column count
+     * @return CTAB of a grid
+     */
+    public static int [][] grid(int rows, int cols) {
+        final int [][] ret = new int[rows * cols][];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                final int [] neighbors = new int[4];
+                int count = 0;
+                if (r > 0) {
+                    neighbors[count++] = (r - 1) * cols + c;
+                }
+                if (c > 0) {
+                    neighbors[count++] = r * cols + c - 1;
+                }
+                if (c < cols - 1) {
+                    neighbors[count++] = r * cols + c + 1;
+                }
+                if (r < rows - 1) {
+                    neighbors[count++] = (r + 1) * cols + c;
+                }
+                ret[r * cols + c] = Arrays.copyOf(neighbors, count);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Ladder: two parallel chains connected by a bond at each position.
+     *
+     * Atoms of rung {@code r} have indices {@code 2 * r} and {@code 2 * r + 1}.
+     *
+     * @param rungs Rung count
+     * @return CTAB of a ladder
+     */
+    public static int [][] ladder(int rungs) {
+        final int [] bondAtoms1 = new int[Math.max(0, 3 * rungs - 2)];
+        final int [] bondAtoms2 = new int[bondAtoms1.length];
+        int count = 0;
+        for (int r = 0; r < rungs; r++) {
+            bondAtoms1[count] = 2 * r;
+            bondAtoms2[count++] = 2 * r + 1;
+            if (r > 0) {
+                bondAtoms1[count] = 2 * r - 2;
+                bondAtoms2[count++] = 2 * r;
+                bondAtoms1[count] = 2 * r - 1;
+                bondAtoms2[count++] = 2 * r + 1;
+            }
+        }
+        return CompactGraph.ofBonds(2 * rungs, bondAtoms1, bondAtoms2).toCtab();
+    }
+
+    /**
+     * Dendrimer-like tree filled level by level.
+     *
+     * Atom {@code 0} is the core; the parent of atom {@code i > 0} is {@code (i - 1) / branching}.
+     *
+     * @param atomCount Atom count
+     * @param branching Number of children of each inner atom
+     * @return CTAB of the tree
+     */
+    public static int [][] dendrimer(int atomCount, int branching) {
+        final int [] bondAtoms1 = new int[Math.max(0, atomCount - 1)];
+        final int [] bondAtoms2 = new int[bondAtoms1.length];
+        for (int i = 1; i < atomCount; i++) {
+            bondAtoms1[i - 1] = (i - 1) / branching;
+            bondAtoms2[i - 1] = i;
+        }
+        return CompactGraph.ofBonds(atomCount, bondAtoms1, bondAtoms2).toCtab();
+    }
+
+    /**
+     * Random connected sparse graph.
+     *
+     * A random recursive tree (each atom bonded to a random earlier atom) completed with random extra bonds; no
+     * multiple bonds are made.
+     *
+     * @param atomCount Atom count
+     * @param extraBonds Number of bonds added to the tree
+     * @param seed Random seed
+     * @return CTAB of the graph
+     */
+    public static int [][] randomSparse(int atomCount, int extraBonds, long seed) {
+        final Random random = new Random(seed);
+        final Set<Long> bonds = new HashSet<>();
+        final int [] bondAtoms1 = new int[Math.max(0, atomCount - 1) + extraBonds];
+        final int [] bondAtoms2 = new int[bondAtoms1.length];
+        int count = 0;
+        for (int i = 1; i < atomCount; i++) {
+            final int j = random.nextInt(i);
+            bonds.add((long) j * atomCount + i);
+            bondAtoms1[count] = j;
+            bondAtoms2[count++] = i;
+        }
+        while (count < bondAtoms1.length) {
+            final int i = random.nextInt(atomCount);
+            final int j = random.nextInt(atomCount);
+            if (i < j && bonds.add((long) i * atomCount + j)) {
+                bondAtoms1[count] = i;
+                bondAtoms2[count++] = j;
+            }
+        }
+        return CompactGraph.ofBonds(atomCount, bondAtoms1, bondAtoms2).toCtab();
+    }
+
+    /**
+     * Buckminsterfullerene (C60) skeleton.
+     *
+     * Built as a truncated icosahedron: each atom corresponds to a directed edge {@code (u, v)} of an icosahedron and
+     * lies near vertex {@code u}. Atom {@code (u, v)} is bonded to {@code (v, u)} and to the two atoms {@code (u, w)}
+     * where {@code w} is a common neighbor of {@code u} and {@code v}; atoms around {@code u} form a pentagon.
+     *
+     * @return CTAB of C60
+     */
+    public static int [][] fullerene60() {
+        final double phi = (1 + Math.sqrt(5)) / 2;
+
+        // icosahedron vertices: cyclic permutations of (0, +-1, +-phi)
+        final double [][] vertices = new double[12][];
+        int count = 0;
+        for (int s1 : new int [] { -1, 1 }) {
+            for (int s2 : new int [] { -1, 1 }) {
+                vertices[count++] = new double [] { 0, s1, s2 * phi };
+                vertices[count++] = new double [] { s1, s2 * phi, 0 };
+                vertices[count++] = new double [] { s2 * phi, 0, s1 };
+            }
+        }
+
+        // edges have length 2, any other vertex pair is farther
+        final boolean [][] adjacent = new boolean[12][12];
+        for (int u = 0; u < 12; u++) {
+            for (int v = 0; v < 12; v++) {
+                double d2 = 0;
+                for (int k = 0; k < 3; k++) {
+                    d2 += (vertices[u][k] - vertices[v][k]) * (vertices[u][k] - vertices[v][k]);
+                }
+                adjacent[u][v] = u != v && d2 < 4.5;
+            }
+        }
+
+        // number directed edges
+        final int [][] atomOf = new int[12][12];
+        count = 0;
+        for (int u = 0; u < 12; u++) {
+            for (int v = 0; v < 12; v++) {
+                atomOf[u][v] = adjacent[u][v] ? count++ : -1;
+            }
+        }
+
+        final int [][] ret = new int[count][];
+        for (int u = 0; u < 12; u++) {
+            for (int v = 0; v < 12; v++) {
+                if (adjacent[u][v]) {
+                    final int [] neighbors = new int[3];
+                    int n = 0;
+                    neighbors[n++] = atomOf[v][u];
+                    for (int w = 0; w < 12; w++) {
+                        if (adjacent[u][w] && adjacent[v][w]) {
+                            neighbors[n++] = atomOf[u][w];
+                        }
+                    }
+                    ret[atomOf[u][v]] = neighbors;
+                }
+            }
+        }
+        return ret;
+    }
+
+}
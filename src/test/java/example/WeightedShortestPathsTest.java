@@ -0,0 +1,343 @@
+/*
+ * Copyright 2020 ChemAxon Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package example;
+
+import static com.chemaxon.calculations.util.MU.ofSmiles;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+import org.junit.Test;
+
+public class WeightedShortestPathsTest {
+
+    /**
+     * Build a weighted structure from a connection table.
+     *
+     * @param ctab Connection table
+     * @param weight Weight of each bond, called in bond order
+     * @return Weighted structure
+     */
+    private static WeightedGraph weighted(int [][] ctab, IntToDoubleFunction weight) {
+        int bondCount = 0;
+        for (int i = 0; i < ctab.length; i++) {
+            for (int n : ctab[i]) {
+                if (i < n) {
+                    bondCount++;
+                }
+            }
+        }
+        final int [] bondAtoms1 = new int[bondCount];
+        final int [] bondAtoms2 = new int[bondCount];
+        final double [] weights = new double[bondCount];
+        int b = 0;
+        for (int i = 0; i < ctab.length; i++) {
+            for (int n : ctab[i]) {
+                if (i < n) {
+                    bondAtoms1[b] = i;
+                    bondAtoms2[b] = n;
+                    weights[b] = weight.applyAsDouble(b);
+                    b++;
+                }
+            }
+        }
+        return WeightedGraph.ofBonds(ctab.length, bondAtoms1, bondAtoms2, weights);
+    }
+
+    /**
+     * All pairs distances by Floyd-Warshall.
+     *
+     * @param weighted Input structure
+     * @return Distance matrix; infinite for disconnected atoms
+     */
+    private static double [][] floydWarshall(WeightedGraph weighted) {
+        final int n = weighted.getAtomCount();
+        final double [][] ret = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(ret[i], Double.POSITIVE_INFINITY);
+            ret[i][i] = 0;
+            for (int k = 0; k < weighted.getGraph().getDegree(i); k++) {
+                final int j = weighted.getGraph().getNeighbor(i, k);
+                ret[i][j] = Math.min(ret[i][j], weighted.getWeight(i, k));
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    ret[i][j] = Math.min(ret[i][j], ret[i][k] + ret[k][j]);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Collect paths as strings.
+     *
+     * @param paths Paths
+     * @return Set of path representations
+     */
+    private static Set<String> toSet(Iterator<int []> paths) {
+        final Set<String> ret = new HashSet<>();
+        while (paths.hasNext()) {
+            assertThat("Paths are unique", ret.add(Arrays.toString(paths.next())), is(true));
+        }
+        return ret;
+    }
+
+    /**
+     * Check that a path is simple, connected, ends at the expected atoms and has the shortest length.
+     *
+     * @param weighted Input structure
+     * @param sp Shortest paths
+     * @param a2 Target atom
+     * @param path Path to check
+     */
+    private static void ensure_valid_path(WeightedGraph weighted, WeightedShortestPaths sp, int a2, int [] path) {
+        assertThat(path[0], is(sp.getA1()));
+        assertThat(path[path.length - 1], is(a2));
+        final Set<Integer> seen = new HashSet<>();
+        double length = 0;
+        for (int i = 0; i < path.length; i++) {
+            assertThat("Simple path", seen.add(path[i]), is(true));
+            if (i > 0) {
+                final CompactGraph graph = weighted.getGraph();
+                int k = 0;
+                while (graph.getNeighbor(path[i - 1], k) != path[i]) {
+                    k++;
+                }
+                length += weighted.getWeight(path[i - 1], k);
+            }
+        }
+        assertThat(Math.abs(length - sp.getShortestPathLengthTo(a2)) < 1e-9, is(true));
+    }
+
+    /**
+     * Compare searches with unit weights to the unweighted search.
+     *
+     * @param ctab Connection table
+     * @param checkPaths Compare enumerated path sets
+     */
+    private static void ensure_same_as_unweighted(int [][] ctab, boolean checkPaths) {
+        final CompactGraph graph = CompactGraph.of(ctab);
+        final WeightedGraph weighted = WeightedGraph.unweighted(graph);
+        for (int a1 = 0; a1 < ctab.length; a1++) {
+            final FindShortestPaths fp = new FindShortestPaths(graph, a1);
+            for (WeightedShortestPaths.Algorithm algorithm : WeightedShortestPaths.Algorithm.values()) {
+                final WeightedShortestPaths sp = new WeightedShortestPaths(weighted, a1, algorithm);
+                for (int a2 = 0; a2 < ctab.length; a2++) {
+                    assertThat(sp.isPathExistsTo(a2), is(fp.isPathExistsTo(a2)));
+                    if (!fp.isPathExistsTo(a2)) {
+                        continue;
+                    }
+                    assertThat(sp.getShortestPathLengthTo(a2), is((double) fp.getShortestPathLengthTo(a2)));
+                    assertThat(sp.getSingleShortestPathTo(a2).length, is(fp.getShortestPathLengthTo(a2) + 1));
+                    assertThat(sp.unionOfShortestPaths(a2), is(fp.unionOfShortestPaths(a2)));
+                    if (checkPaths) {
+                        assertThat(toSet(sp.enumerateShortestPathsTo(a2)),
+                                is(toSet(fp.enumerateShortestPathsTo(a2))));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unit_weights_on_vancomycin() {
+        ensure_same_as_unweighted(ofSmiles(ShortestPathsTest.VANCOMYCIN_SMILES).getCtab(), true);
+    }
+
+    @Test
+    public void unit_weights_on_fullerene() {
+        ensure_same_as_unweighted(SyntheticGraphs.fullerene60(), true);
+    }
+
+    @Test
+    public void unit_weights_on_grid() {
+        ensure_same_as_unweighted(SyntheticGraphs.grid(6, 7), true);
+    }
+
+    @Test
+    public void unit_weights_on_disconnected() {
+        ensure_same_as_unweighted(ofSmiles("CCC.CC1CC1.O").getCtab(), true);
+    }
+
+    /**
+     * Compare all algorithms on random weights with Floyd-Warshall, checking paths and unions.
+     *
+     * The union is expected to hold the atoms on shortest walks; with positive weights these are the atoms of the
+     * enumerated paths.
+     *
+     * @param weighted Input structure
+     * @param algorithms Algorithms to check
+     */
+    private static void ensure_same_as_floyd_warshall(WeightedGraph weighted,
+            WeightedShortestPaths.Algorithm... algorithms) {
+        final double [][] expected = floydWarshall(weighted);
+        boolean positive = true;
+        for (int i = 0; i < weighted.getAtomCount(); i++) {
+            for (int k = 0; k < weighted.getGraph().getDegree(i); k++) {
+                positive &= weighted.getWeight(i, k) > 0;
+            }
+        }
+        final int atomCount = weighted.getAtomCount();
+        for (int a1 = 0; a1 < atomCount; a1++) {
+            for (WeightedShortestPaths.Algorithm algorithm : algorithms) {
+                final WeightedShortestPaths sp = new WeightedShortestPaths(weighted, a1, algorithm);
+                for (int a2 = 0; a2 < atomCount; a2++) {
+                    final boolean exists = expected[a1][a2] != Double.POSITIVE_INFINITY;
+                    assertThat(sp.isPathExistsTo(a2), is(exists));
+                    if (!exists) {
+                        continue;
+                    }
+                    assertThat(Math.abs(sp.getShortestPathLengthTo(a2) - expected[a1][a2]) < 1e-9, is(true));
+                    ensure_valid_path(weighted, sp, a2, sp.getSingleShortestPathTo(a2));
+
+                    // an atom is in the union exactly when it is on a shortest path
+                    final BitSet fromPaths = new BitSet();
+                    final Iterator<int []> paths = sp.enumerateShortestPathsTo(a2);
+                    while (paths.hasNext()) {
+                        final int [] path = paths.next();
+                        ensure_valid_path(weighted, sp, a2, path);
+                        for (int ai : path) {
+                            fromPaths.set(ai);
+                        }
+                    }
+                    final BitSet fromDistances = new BitSet();
+                    for (int ai = 0; ai < atomCount; ai++) {
+                        if (Math.abs(expected[a1][ai] + expected[ai][a2] - expected[a1][a2]) < 1e-9) {
+                            fromDistances.set(ai);
+                        }
+                    }
+                    final BitSet union = sp.unionOfShortestPaths(a2);
+                    assertThat(union, is(fromDistances));
+                    if (positive) {
+                        assertThat(union, is(fromPaths));
+                    } else {
+                        fromPaths.andNot(union);
+                        assertThat("Paths within union", fromPaths.isEmpty(), is(true));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void random_integer_weights() {
+        final Random random = new Random(42);
+        for (int seed = 0; seed < 10; seed++) {
+            final int [][] ctab = SyntheticGraphs.randomSparse(40, 15, seed);
+            final WeightedGraph weighted = weighted(ctab, b -> 1 + random.nextInt(5));
+            assertThat(WeightedShortestPaths.select(weighted), is(WeightedShortestPaths.Algorithm.DIAL));
+            ensure_same_as_floyd_warshall(weighted, WeightedShortestPaths.Algorithm.DIAL,
+                    WeightedShortestPaths.Algorithm.HEAP);
+        }
+    }
+
+    @Test
+    public void random_large_integer_weights() {
+        final Random random = new Random(42);
+        final int [][] ctab = SyntheticGraphs.randomSparse(40, 15, 7);
+        final WeightedGraph weighted = weighted(ctab, b -> random.nextInt(1000));
+        assertThat(WeightedShortestPaths.select(weighted), is(WeightedShortestPaths.Algorithm.HEAP));
+        ensure_same_as_floyd_warshall(weighted, WeightedShortestPaths.Algorithm.HEAP);
+    }
+
+    @Test
+    public void random_fractional_weights() {
+        final Random random = new Random(42);
+        for (int seed = 0; seed < 5; seed++) {
+            final int [][] ctab = SyntheticGraphs.randomSparse(40, 15, seed);
+            final WeightedGraph weighted = weighted(ctab, b -> 0.5 + random.nextDouble());
+            assertThat(WeightedShortestPaths.select(weighted), is(WeightedShortestPaths.Algorithm.HEAP));
+            ensure_same_as_floyd_warshall(weighted, WeightedShortestPaths.Algorithm.HEAP);
+        }
+    }
+
+    @Test
+    public void zero_one_weights() {
+        final Random random = new Random(42);
+        for (int seed = 0; seed < 10; seed++) {
+            final int [][] ctab = SyntheticGraphs.randomSparse(30, 10, seed);
+            final WeightedGraph weighted = weighted(ctab, b -> random.nextInt(2));
+            assertThat(WeightedShortestPaths.select(weighted), is(WeightedShortestPaths.Algorithm.ZERO_ONE_BFS));
+            ensure_same_as_floyd_warshall(weighted, WeightedShortestPaths.Algorithm.values());
+        }
+    }
+
+    @Test
+    public void equal_length_paths_with_fractional_weights() {
+        // square 0-1-2-3-0, weights summing to 0.3 on both sides of the diagonal 0-2
+        final WeightedGraph weighted = WeightedGraph.ofBonds(4, new int [] {0, 1, 2, 3}, new int [] {1, 2, 3, 0},
+                new double [] {0.1, 0.2, 0.2, 0.1});
+        final WeightedShortestPaths sp = new WeightedShortestPaths(weighted, 0);
+        assertThat(toSet(sp.enumerateShortestPathsTo(2)), is(new HashSet<>(Arrays.asList("[0, 1, 2]", "[0, 3, 2]"))));
+    }
+
+    @Test
+    public void weights_of_molecule_bonds() {
+        // bond order as weight: around the ring through the double bond or through three single bonds
+        final WeightedGraph weighted = WeightedGraph.of(ofSmiles("C1=CCCC1"), b -> b.getType());
+        final WeightedShortestPaths sp = new WeightedShortestPaths(weighted, 0);
+        assertThat(sp.getShortestPathLengthTo(1), is(2.0));
+        assertThat(sp.getShortestPathLengthTo(2), is(3.0));
+        assertThat(toSet(sp.enumerateShortestPathsTo(2)),
+                is(new HashSet<>(Arrays.asList("[0, 1, 2]", "[0, 4, 3, 2]"))));
+        assertThat(sp.unionOfShortestPaths(2).cardinality(), is(5));
+    }
+
+    @Test
+    public void visitor_stops_early() {
+        final WeightedGraph weighted = WeightedGraph.unweighted(CompactGraph.of(SyntheticGraphs.grid(4, 4)));
+        final WeightedShortestPaths sp = new WeightedShortestPaths(weighted, 0);
+        final int [] count = new int[1];
+        assertThat(sp.forEachShortestPathTo(15, p -> ++count[0] < 5), is(false));
+        assertThat(count[0], is(5));
+        count[0] = 0;
+        assertThat(sp.forEachShortestPathTo(15, p -> ++count[0] > 0), is(true));
+        assertThat(count[0], is(20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negative_weight_fails() {
+        WeightedGraph.ofBonds(2, new int [] {0}, new int [] {1}, new double [] {-1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nan_weight_fails() {
+        WeightedGraph.ofBonds(2, new int [] {0}, new int [] {1}, new double [] {Double.NaN});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupported_algorithm_fails() {
+        final WeightedGraph weighted = WeightedGraph.ofBonds(2, new int [] {0}, new int [] {1}, new double [] {0.5});
+        new WeightedShortestPaths(weighted, 0, WeightedShortestPaths.Algorithm.DIAL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void no_path_fails() {
+        final WeightedGraph weighted = WeightedGraph.ofBonds(3, new int [] {0}, new int [] {1}, new double [] {2});
+        new WeightedShortestPaths(weighted, 0).getShortestPathLengthTo(2);
+    }
+
+}